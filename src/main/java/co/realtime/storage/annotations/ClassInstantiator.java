@@ -0,0 +1,87 @@
+package co.realtime.storage.annotations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+/**
+ * The Class ClassInstantiator. Creates instances through a method handle on the no-arg constructor, resolved once.
+ */
+final class ClassInstantiator {
+
+    /** The Constant CONSTRUCTOR_TYPE. */
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    /** The klass. */
+    private final Class<?> klass;
+
+    /** The constructor. Null if the class cannot be instantiated without arguments. */
+    private final MethodHandle constructor;
+
+    /**
+     * Instantiates a new class instantiator.
+     * @param klass
+     *            the klass
+     */
+    ClassInstantiator(final Class<?> klass) {
+        this.klass = klass;
+        this.constructor = findConstructor(klass);
+    }
+
+    /**
+     * Checks if is instantiable.
+     * @param klass
+     *            the klass
+     * @return true, if klass has an accessible no-arg constructor
+     */
+    static boolean isInstantiable(final Class<?> klass) {
+        return findConstructor(klass) != null;
+    }
+
+    /**
+     * New instance.
+     * @return the object
+     * @throws InstantiationException
+     *             the instantiation exception
+     */
+    Object newInstance() throws InstantiationException {
+
+        if (this.constructor == null) {
+            throw new InstantiationException(String.format("%s has no accessible no-arg constructor", this.klass.getName()));
+        }
+
+        try {
+            return this.constructor.invokeExact();
+        } catch (final Throwable e) {
+            final InstantiationException instantiationException = new InstantiationException(String.format("Cannot instantiate %s", this.klass.getName()));
+            instantiationException.initCause(e);
+            throw instantiationException;
+        }
+
+    }
+
+    /**
+     * Find constructor.
+     * @param klass
+     *            the klass
+     * @return the method handle. Null if there is no no-arg constructor
+     */
+    private static MethodHandle findConstructor(final Class<?> klass) {
+
+        if (klass.isInterface() || klass.isPrimitive() || klass.isArray() || Modifier.isAbstract(klass.getModifiers())) {
+            return null;
+        }
+
+        try {
+            final Constructor<?> noArgConstructor = klass.getDeclaredConstructor();
+            noArgConstructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(noArgConstructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+
+    }
+
+}
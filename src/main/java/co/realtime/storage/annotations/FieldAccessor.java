@@ -0,0 +1,153 @@
+package co.realtime.storage.annotations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+
+/**
+ * The Class FieldAccessor. Reads and writes a field through method handles resolved once, with the access checks done at creation.
+ */
+final class FieldAccessor {
+
+    /** The Constant GETTER_TYPE. */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** The Constant SETTER_TYPE. */
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** The field. */
+    private final Field field;
+
+    /** The getter. */
+    private final MethodHandle getter;
+
+    /** The setter. */
+    private final MethodHandle setter;
+
+    /** The primitive setter. Takes the unboxed value, null if the field is not primitive. */
+    private final MethodHandle primitiveSetter;
+
+    /**
+     * Instantiates a new field accessor.
+     * @param field
+     *            the field
+     */
+    FieldAccessor(final Field field) {
+
+        this.field = field;
+        this.field.setAccessible(true);
+
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            final MethodHandle fieldSetter = lookup.unreflectSetter(field);
+            this.setter = fieldSetter.asType(SETTER_TYPE);
+            final Class<?> type = field.getType();
+            this.primitiveSetter = type.isPrimitive() ? fieldSetter.asType(MethodType.methodType(void.class, Object.class, type)) : null;
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(String.format("Cannot access field %s", field), e);
+        }
+
+    }
+
+    /**
+     * Gets the value of the field.
+     * @param instance
+     *            the instance
+     * @return the value
+     * @throws IllegalStateException
+     *             if the field can not be read
+     */
+    Object get(final Object instance) {
+
+        try {
+            return this.getter.invokeExact(instance);
+        } catch (final Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(String.format("Cannot read field %s", this.field), e);
+        }
+
+    }
+
+    /**
+     * Sets the value of the field.
+     * @param instance
+     *            the instance
+     * @param value
+     *            the value
+     * @throws IllegalStateException
+     *             if the value can not be written to the field
+     */
+    void set(final Object instance, final Object value) {
+
+        try {
+            this.setter.invokeExact(instance, value);
+        } catch (final Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(String.format("Cannot write field %s", this.field), e);
+        }
+
+    }
+
+    /**
+     * Sets the value of a primitive field from a stored value, without boxing the converted value.
+     * @param instance
+     *            the instance
+     * @param attribute
+     *            the stored value, a Number, a Boolean or their text
+     * @throws IllegalStateException
+     *             if the value can not be written to the field, e.g. text that is not a number
+     */
+    void setPrimitive(final Object instance, final Object attribute) {
+
+        final Class<?> type = this.field.getType();
+
+        try {
+            if (type == boolean.class) {
+                this.primitiveSetter.invokeExact(instance, attribute instanceof Boolean ? ((Boolean) attribute).booleanValue() : Boolean.parseBoolean(attribute.toString()));
+            } else if (type == long.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).longValue());
+            } else if (type == int.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).intValue());
+            } else if (type == double.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).doubleValue());
+            } else if (type == float.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).floatValue());
+            } else if (type == short.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).shortValue());
+            } else if (type == byte.class) {
+                this.primitiveSetter.invokeExact(instance, toNumber(attribute).byteValue());
+            } else {
+                this.setter.invokeExact(instance, attribute);
+            }
+        } catch (final Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(String.format("Cannot write field %s", this.field), e);
+        }
+
+    }
+
+    /**
+     * To number.
+     * @param attribute
+     *            the attribute
+     * @return the attribute as a number
+     */
+    private static Number toNumber(final Object attribute) {
+        return attribute instanceof Number ? (Number) attribute : new BigDecimal(attribute.toString());
+    }
+
+    /**
+     * Gets the field.
+     * @return the field
+     */
+    Field getField() {
+        return this.field;
+    }
+
+}
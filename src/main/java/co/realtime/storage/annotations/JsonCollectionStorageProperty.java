@@ -23,4 +23,12 @@ public @interface JsonCollectionStorageProperty {
      * @return the class
      */
     Class<?> klass() default Object.class;
+
+    /**
+     * Lazy. When true the json of an ActiveRecord property is only decoded when the record calls loadLazyProperty, usually from the getter, and is
+     * saved back unchanged if never loaded. Setters must call discardLazyProperty.
+     * @return true, if lazy
+     */
+    boolean lazy() default false;
+
 }
@@ -0,0 +1,746 @@
+package co.realtime.storage.annotations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The Class JsonStorageCodec. Single pass json codec for the JsonStorageProperty and JsonCollectionStorageProperty values: objects are written
+ * straight to a reusable per thread buffer and parsed straight into instances of the target class, following its mapping plan.
+ */
+public final class JsonStorageCodec {
+
+    /** The Constant MAX_REUSED_BUFFER_SIZE. Bigger buffers are not kept between calls. */
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    /** The Constant HEX_DIGITS. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The Constant BUFFER. */
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+
+    };
+
+    /**
+     * Instantiates a new json storage codec.
+     */
+    private JsonStorageCodec() {
+        // static access only
+    }
+
+    /**
+     * Write the storage properties of the instance as a json object.
+     * @param instance
+     *            the instance
+     * @return the json string
+     */
+    public static String write(final Object instance) {
+
+        final StringBuilder buffer = acquireBuffer();
+        try {
+            writeObject(buffer, instance);
+            return buffer.toString();
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+    }
+
+    /**
+     * Write the storage properties of each item as a json array of objects.
+     * @param collection
+     *            the collection
+     * @return the json string
+     */
+    public static String writeCollection(final Collection<?> collection) {
+
+        final StringBuilder buffer = acquireBuffer();
+        try {
+            writeArray(buffer, collection);
+            return buffer.toString();
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+    }
+
+    /**
+     * Read a json object into a new instance of klass.
+     * @param json
+     *            the json
+     * @param klass
+     *            the klass
+     * @return the instance. Null if json is the null literal
+     */
+    public static Object read(final String json, final Class<?> klass) {
+
+        final Reader reader = new Reader(json);
+        final Object instance = reader.readObject(StorageMappingRegistry.planOf(klass));
+        reader.expectEnd();
+
+        return instance;
+
+    }
+
+    /**
+     * Read a json array of objects into a list of instances of itemsClass.
+     * @param json
+     *            the json
+     * @param itemsClass
+     *            the items class
+     * @return the list
+     */
+    public static List<Object> readCollection(final String json, final Class<?> itemsClass) {
+
+        final Reader reader = new Reader(json);
+        final List<Object> items = reader.readArray(StorageMappingRegistry.planOf(itemsClass));
+        reader.expectEnd();
+
+        return items;
+
+    }
+
+    /**
+     * Acquire buffer. A nested call on the same thread gets a fresh buffer.
+     * @return the string builder
+     */
+    private static StringBuilder acquireBuffer() {
+
+        final StringBuilder buffer = BUFFER.get();
+        if (buffer.length() != 0) {
+            return new StringBuilder(256);
+        }
+
+        return buffer;
+
+    }
+
+    /**
+     * Release buffer.
+     * @param buffer
+     *            the buffer
+     */
+    private static void releaseBuffer(final StringBuilder buffer) {
+
+        if (buffer.capacity() > MAX_REUSED_BUFFER_SIZE) {
+            BUFFER.remove();
+        } else {
+            buffer.setLength(0);
+        }
+
+    }
+
+    /**
+     * Write object.
+     * @param buffer
+     *            the buffer
+     * @param instance
+     *            the instance
+     */
+    private static void writeObject(final StringBuilder buffer, final Object instance) {
+
+        if (instance == null) {
+            buffer.append("null");
+            return;
+        }
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(instance.getClass());
+        boolean first = true;
+
+        buffer.append('{');
+        for (final StoragePropertyMapping mapping : plan.mappings()) {
+
+            final Object value = mapping.get(instance);
+            if (value == null || mapping.getKind() == StoragePropertyKindEnum.JSON_COLLECTION && !(value instanceof Collection<?>)) {
+                continue;
+            }
+
+            if (!first) {
+                buffer.append(',');
+            }
+            first = false;
+
+            writeString(buffer, mapping.getName());
+            buffer.append(':');
+
+            switch (mapping.getKind()) {
+            case SIMPLE:
+                writeScalar(buffer, mapping.toStorage(value));
+                break;
+            case ENUM:
+                writeString(buffer, value.toString());
+                break;
+            case JSON_COLLECTION:
+                writeArray(buffer, (Collection<?>) value);
+                break;
+            default:
+                writeObject(buffer, value);
+                break;
+            }
+
+        }
+        buffer.append('}');
+
+    }
+
+    /**
+     * Write array.
+     * @param buffer
+     *            the buffer
+     * @param collection
+     *            the collection
+     */
+    private static void writeArray(final StringBuilder buffer, final Collection<?> collection) {
+
+        boolean first = true;
+
+        buffer.append('[');
+        for (final Object item : collection) {
+
+            if (!first) {
+                buffer.append(',');
+            }
+            first = false;
+
+            writeObject(buffer, item);
+
+        }
+        buffer.append(']');
+
+    }
+
+    /**
+     * Write scalar.
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    private static void writeScalar(final StringBuilder buffer, final Object value) {
+
+        if (value instanceof Number) {
+
+            final Number number = (Number) value;
+            if (number instanceof Double && (((Double) number).isNaN() || ((Double) number).isInfinite()) || number instanceof Float && (((Float) number).isNaN() || ((Float) number).isInfinite())) {
+                buffer.append("null");
+            } else {
+                buffer.append(number.toString());
+            }
+
+        } else if (value instanceof Boolean) {
+            buffer.append(((Boolean) value).booleanValue());
+        } else {
+            writeString(buffer, value.toString());
+        }
+
+    }
+
+    /**
+     * Write string.
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    private static void writeString(final StringBuilder buffer, final String value) {
+
+        buffer.append('"');
+
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                buffer.append("\\\"");
+                break;
+            case '\\':
+                buffer.append("\\\\");
+                break;
+            case '\n':
+                buffer.append("\\n");
+                break;
+            case '\r':
+                buffer.append("\\r");
+                break;
+            case '\t':
+                buffer.append("\\t");
+                break;
+            case '\b':
+                buffer.append("\\b");
+                break;
+            case '\f':
+                buffer.append("\\f");
+                break;
+            default:
+                if (c < ' ' || c == '\u2028' || c == '\u2029') {
+                    buffer.append("\\u").append(HEX_DIGITS[c >> 12 & 0xF]).append(HEX_DIGITS[c >> 8 & 0xF]).append(HEX_DIGITS[c >> 4 & 0xF]).append(HEX_DIGITS[c & 0xF]);
+                } else {
+                    buffer.append(c);
+                }
+                break;
+            }
+
+        }
+
+        buffer.append('"');
+
+    }
+
+    /**
+     * The Class Reader. Recursive descent parser that maps json objects directly to instances.
+     */
+    private static final class Reader {
+
+        /** The json. */
+        private final String json;
+
+        /** The position. */
+        private int position;
+
+        /**
+         * Instantiates a new reader.
+         * @param json
+         *            the json
+         */
+        Reader(final String json) {
+            this.json = json;
+            this.position = 0;
+        }
+
+        /**
+         * Read object.
+         * @param plan
+         *            the plan of the target class
+         * @return the instance. Null if the value is the null literal
+         */
+        Object readObject(final StorageMappingPlan plan) {
+
+            skipWhitespace();
+            if (tryLiteral("null")) {
+                return null;
+            }
+
+            expect('{');
+
+            final Object instance;
+            try {
+                instance = plan.newInstance();
+            } catch (final InstantiationException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+
+            skipWhitespace();
+            if (peek() == '}') {
+                this.position++;
+                return instance;
+            }
+
+            while (true) {
+
+                skipWhitespace();
+                final String name = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+
+                final StoragePropertyMapping mapping = findMapping(plan, name);
+                if (mapping == null) {
+                    skipValue();
+                } else {
+                    readProperty(instance, mapping);
+                }
+
+                skipWhitespace();
+                final char c = next();
+                if (c == '}') {
+                    return instance;
+                } else if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+
+            }
+
+        }
+
+        /**
+         * Read array.
+         * @param itemPlan
+         *            the plan of the items class
+         * @return the list
+         */
+        List<Object> readArray(final StorageMappingPlan itemPlan) {
+
+            skipWhitespace();
+            final List<Object> items = new ArrayList<>();
+            if (tryLiteral("null")) {
+                return items;
+            }
+
+            expect('[');
+            skipWhitespace();
+            if (peek() == ']') {
+                this.position++;
+                return items;
+            }
+
+            while (true) {
+
+                skipWhitespace();
+                if (peek() == '{') {
+                    items.add(readObject(itemPlan));
+                } else {
+                    skipValue();
+                }
+
+                skipWhitespace();
+                final char c = next();
+                if (c == ']') {
+                    return items;
+                } else if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+
+            }
+
+        }
+
+        /**
+         * Expect end.
+         */
+        void expectEnd() {
+            skipWhitespace();
+            if (this.position < this.json.length()) {
+                throw error("Unexpected trailing characters");
+            }
+        }
+
+        /**
+         * Read property.
+         * @param instance
+         *            the instance
+         * @param mapping
+         *            the mapping
+         */
+        private void readProperty(final Object instance, final StoragePropertyMapping mapping) {
+
+            final char c = peek();
+
+            switch (mapping.getKind()) {
+            case SIMPLE:
+                if (c == '{' || c == '[') {
+                    skipValue();
+                } else {
+                    final Object attribute = readScalar();
+                    if (attribute != null) {
+                        mapping.assign(instance, attribute);
+                    }
+                }
+                break;
+            case ENUM:
+                if (c == '{' || c == '[') {
+                    skipValue();
+                } else {
+                    final Object attribute = readScalar();
+                    if (attribute != null) {
+                        mapping.set(instance, StorageAnnotationsManager.calculateValueToMapping(mapping, attribute));
+                    }
+                }
+                break;
+            case JSON:
+            case EMBEDDED:
+                if (c == '{') {
+                    mapping.set(instance, readObject(StorageMappingRegistry.planOf(mapping.getType())));
+                } else if (c == '"') {
+                    mapping.set(instance, read(readString(), mapping.getType()));
+                } else {
+                    skipValue();
+                }
+                break;
+            case JSON_COLLECTION:
+                if (c == '[') {
+                    mapping.set(instance, readArray(StorageMappingRegistry.planOf(mapping.getItemClass())));
+                } else if (c == '"') {
+                    mapping.set(instance, readCollection(readString(), mapping.getItemClass()));
+                } else {
+                    skipValue();
+                }
+                break;
+            default:
+                skipValue();
+                break;
+            }
+
+        }
+
+        /**
+         * Read scalar.
+         * @return the string, boolean or number. Null for the null literal
+         */
+        private Object readScalar() {
+
+            final char c = peek();
+            if (c == '"') {
+                return readString();
+            } else if (tryLiteral("true")) {
+                return Boolean.TRUE;
+            } else if (tryLiteral("false")) {
+                return Boolean.FALSE;
+            } else if (tryLiteral("null")) {
+                return null;
+            }
+
+            return readNumber();
+
+        }
+
+        /**
+         * Read number.
+         * @return the number, a Long when integral and a Double otherwise
+         */
+        private Object readNumber() {
+
+            final int start = this.position;
+            boolean integral = true;
+
+            while (this.position < this.json.length()) {
+
+                final char c = this.json.charAt(this.position);
+                if (c >= '0' && c <= '9' || c == '-' || c == '+') {
+                    this.position++;
+                } else if (c == '.' || c == 'e' || c == 'E') {
+                    integral = false;
+                    this.position++;
+                } else {
+                    break;
+                }
+
+            }
+
+            if (start == this.position) {
+                throw error("Unexpected character");
+            }
+
+            final String number = this.json.substring(start, this.position);
+            try {
+                return integral ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+            } catch (final NumberFormatException e) {
+                // out of range integral values are kept as text, as org.json does
+                return number;
+            }
+
+        }
+
+        /**
+         * Read string.
+         * @return the string
+         */
+        private String readString() {
+
+            expect('"');
+
+            final int start = this.position;
+            final int length = this.json.length();
+
+            // fast path, no escapes
+            while (this.position < length) {
+                final char c = this.json.charAt(this.position);
+                if (c == '"') {
+                    return this.json.substring(start, this.position++);
+                } else if (c == '\\') {
+                    break;
+                }
+                this.position++;
+            }
+
+            final StringBuilder value = new StringBuilder(this.position - start + 16);
+            value.append(this.json, start, this.position);
+
+            while (this.position < length) {
+
+                final char c = this.json.charAt(this.position++);
+                if (c == '"') {
+                    return value.toString();
+                } else if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                final char escaped = next();
+                switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (this.position + 4 > length) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(this.json.substring(this.position, this.position + 4), 16));
+                    } catch (final NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    this.position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+                }
+
+            }
+
+            throw error("Unterminated string");
+
+        }
+
+        /**
+         * Skip value.
+         */
+        private void skipValue() {
+
+            final char c = peek();
+            if (c == '{' || c == '[') {
+
+                int depth = 0;
+                while (this.position < this.json.length()) {
+
+                    final char current = peek();
+                    if (current == '"') {
+                        readString();
+                        continue;
+                    }
+
+                    this.position++;
+                    if (current == '{' || current == '[') {
+                        depth++;
+                    } else if ((current == '}' || current == ']') && --depth == 0) {
+                        return;
+                    }
+
+                }
+
+                throw error("Unterminated value");
+
+            }
+
+            readScalar();
+
+        }
+
+        /**
+         * Find mapping.
+         * @param plan
+         *            the plan
+         * @param name
+         *            the name
+         * @return the storage property mapping. Null if the property is not mapped
+         */
+        private static StoragePropertyMapping findMapping(final StorageMappingPlan plan, final String name) {
+
+            final StoragePropertyMapping mapping = plan.mapping(name);
+            if (mapping != null) {
+                return mapping;
+            }
+
+            // embedded properties are nested by field name
+            for (final StoragePropertyMapping candidate : plan.mappings()) {
+                if (candidate.getKind() == StoragePropertyKindEnum.EMBEDDED && candidate.getName().equals(name)) {
+                    return candidate;
+                }
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Try literal.
+         * @param literal
+         *            the literal
+         * @return true, if the literal was consumed
+         */
+        private boolean tryLiteral(final String literal) {
+
+            if (this.json.startsWith(literal, this.position)) {
+                this.position += literal.length();
+                return true;
+            }
+
+            return false;
+
+        }
+
+        /**
+         * Skip whitespace.
+         */
+        private void skipWhitespace() {
+            while (this.position < this.json.length() && Character.isWhitespace(this.json.charAt(this.position))) {
+                this.position++;
+            }
+        }
+
+        /**
+         * Peek.
+         * @return the current char
+         */
+        private char peek() {
+
+            if (this.position >= this.json.length()) {
+                throw error("Unexpected end of json");
+            }
+
+            return this.json.charAt(this.position);
+
+        }
+
+        /**
+         * Next.
+         * @return the current char, consuming it
+         */
+        private char next() {
+            final char c = peek();
+            this.position++;
+            return c;
+        }
+
+        /**
+         * Expect.
+         * @param expected
+         *            the expected char
+         */
+        private void expect(final char expected) {
+            if (next() != expected) {
+                throw error(String.format("Expected '%c'", Character.valueOf(expected)));
+            }
+        }
+
+        /**
+         * Error.
+         * @param message
+         *            the message
+         * @return the illegal argument exception
+         */
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(String.format("Invalid json at position %d: %s", Integer.valueOf(this.position), message));
+        }
+
+    }
+
+}
@@ -5,8 +5,24 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * The Interface JsonStorageProperty.
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
 public @interface JsonStorageProperty {
+
+    /**
+     * Name.
+     * @return the string
+     */
     String name() default "";
+
+    /**
+     * Lazy. When true the json of an ActiveRecord property is only decoded when the record calls loadLazyProperty, usually from the getter, and is
+     * saved back unchanged if never loaded. Setters must call discardLazyProperty.
+     * @return true, if lazy
+     */
+    boolean lazy() default false;
+
 }
@@ -0,0 +1,25 @@
+package co.realtime.storage.annotations;
+
+/**
+ * The Interface LazyJsonPropertiesHolder. Implemented by the instances that keep the raw json of their lazy json properties until it is needed.
+ */
+public interface LazyJsonPropertiesHolder {
+
+    /**
+     * Defer json property.
+     * @param propertyName
+     *            the property name
+     * @param json
+     *            the raw json
+     */
+    void deferJsonProperty(String propertyName, String json);
+
+    /**
+     * Deferred json property.
+     * @param propertyName
+     *            the property name
+     * @return the raw json. Null if the property was loaded, discarded or never deferred
+     */
+    String deferredJsonProperty(String propertyName);
+
+}
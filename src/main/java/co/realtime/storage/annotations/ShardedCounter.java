@@ -0,0 +1,41 @@
+package co.realtime.storage.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The Interface ShardedCounter. A numeric field of an ActiveRecord counted in shards, items of a counter table whose primary key is the counter
+ * key, a string, and whose secondary key is the shard, a number. Increments go to one random shard, so the write throughput grows with the
+ * number of shards, and the value is the sum of all shards.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ShardedCounter {
+
+    /**
+     * Table.
+     * @return the name of the counter table
+     */
+    String table();
+
+    /**
+     * Name.
+     * @return the counter name, the field name by default
+     */
+    String name() default "";
+
+    /**
+     * Shards.
+     * @return the number of shards
+     */
+    int shards() default 8;
+
+    /**
+     * Property.
+     * @return the storage property of the shards holding the count
+     */
+    String property() default "value";
+
+}
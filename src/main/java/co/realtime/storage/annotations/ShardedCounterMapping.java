@@ -0,0 +1,224 @@
+package co.realtime.storage.annotations;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import co.realtime.storage.utils.TypeValidatorUtils;
+
+/**
+ * The Class ShardedCounterMapping. Immutable description of a field annotated with ShardedCounter.
+ */
+public final class ShardedCounterMapping {
+
+    /** The field. */
+    private final Field field;
+
+    /** The accessor. */
+    private final FieldAccessor accessor;
+
+    /** The name. */
+    private final String name;
+
+    /** The table. */
+    private final String table;
+
+    /** The shards. */
+    private final int shards;
+
+    /** The property. */
+    private final String property;
+
+    /** The converter. Null when there is none for the type. */
+    private final StorageValueConverter<Object> converter;
+
+    /**
+     * Instantiates a new sharded counter mapping.
+     * @param field
+     *            the field
+     */
+    @SuppressWarnings("unchecked")
+    ShardedCounterMapping(final Field field) {
+
+        final ShardedCounter shardedCounterAnnotation = field.getAnnotation(ShardedCounter.class);
+
+        if (StoragePropertyKindEnum.fromField(field) != null) {
+            throw new IllegalArgumentException(String.format("%s can not be both a storage property and a sharded counter", field.getName()));
+        }
+
+        if (!TypeValidatorUtils.isNumberType(field.getType())) {
+            throw new IllegalArgumentException(String.format("sharded counter %s must be numeric", field.getName()));
+        }
+
+        if (shardedCounterAnnotation.shards() < 1) {
+            throw new IllegalArgumentException(String.format("sharded counter %s needs at least one shard", field.getName()));
+        }
+
+        this.field = field;
+        this.accessor = new FieldAccessor(field);
+        this.name = shardedCounterAnnotation.name().isEmpty() ? field.getName() : shardedCounterAnnotation.name();
+        this.table = shardedCounterAnnotation.table();
+        this.shards = shardedCounterAnnotation.shards();
+        this.property = shardedCounterAnnotation.property();
+        this.converter = (StorageValueConverter<Object>) StorageValueConverters.converterFor(field.getType());
+
+    }
+
+    /**
+     * Counter key, the primary key of the shards of the counter of a record.
+     * @param recordTable
+     *            the table of the record
+     * @param primaryKey
+     *            the primary key of the record
+     * @param secondaryKey
+     *            the secondary key of the record, may be null
+     * @return the counter key
+     */
+    public String counterKey(final String recordTable, final Object primaryKey, final Object secondaryKey) {
+
+        final StringBuilder key = new StringBuilder(recordTable).append(':').append(primaryKey);
+        if (secondaryKey != null) {
+            key.append(':').append(secondaryKey);
+        }
+
+        return key.append(':').append(this.name).toString();
+
+    }
+
+    /**
+     * Random shard.
+     * @return a shard, from 0 to shards - 1
+     */
+    public int randomShard() {
+        return ThreadLocalRandom.current().nextInt(this.shards);
+    }
+
+    /**
+     * Sum the counts of the shards. Missing shards count as zero.
+     * @param counts
+     *            the counts, null for the missing shards
+     * @return the sum, a Long when every count is integral and the sum fits a long, a BigDecimal otherwise
+     */
+    public static Number sum(final Collection<?> counts) {
+
+        BigDecimal total = BigDecimal.ZERO;
+        boolean integral = true;
+
+        for (final Object count : counts) {
+
+            if (count == null) {
+                continue;
+            }
+
+            if (count instanceof Long || count instanceof Integer || count instanceof Short || count instanceof Byte) {
+                total = total.add(BigDecimal.valueOf(((Number) count).longValue()));
+            } else if (count instanceof BigInteger) {
+                total = total.add(new BigDecimal((BigInteger) count));
+            } else {
+                final BigDecimal decimal = new BigDecimal(count.toString());
+                integral &= decimal.stripTrailingZeros().scale() <= 0;
+                total = total.add(decimal);
+            }
+
+        }
+
+        if (integral) {
+            try {
+                return Long.valueOf(total.longValueExact());
+            } catch (final ArithmeticException e) {
+                // beyond a long, the exact sum is kept
+            }
+        }
+
+        return total;
+
+    }
+
+    /**
+     * Assigns the sum of the shards to the field of the instance.
+     * @param instance
+     *            the instance
+     * @param sum
+     *            the sum
+     * @throws ArithmeticException
+     *             if the sum does not fit an integral field exactly
+     */
+    public void assign(final Object instance, final Number sum) {
+
+        checkFits(sum);
+
+        if (this.field.getType().isPrimitive()) {
+            this.accessor.setPrimitive(instance, sum);
+        } else {
+            this.accessor.set(instance, this.converter == null ? sum : this.converter.fromStorage(sum));
+        }
+
+    }
+
+    /**
+     * Check the sum fits the field, an integral field is never assigned a truncated sum.
+     * @param sum
+     *            the sum
+     * @throws ArithmeticException
+     *             if the sum does not fit an integral field exactly
+     */
+    private void checkFits(final Number sum) {
+
+        final Class<?> type = this.field.getType();
+        final BigDecimal exact = sum instanceof BigDecimal ? (BigDecimal) sum : new BigDecimal(sum.toString());
+
+        if (type == long.class || type == Long.class) {
+            exact.longValueExact();
+        } else if (type == int.class || type == Integer.class) {
+            exact.intValueExact();
+        } else if (type == short.class || type == Short.class) {
+            exact.shortValueExact();
+        } else if (type == byte.class || type == Byte.class) {
+            exact.byteValueExact();
+        }
+
+    }
+
+    /**
+     * Gets the field.
+     * @return the field
+     */
+    public Field getField() {
+        return this.field;
+    }
+
+    /**
+     * Gets the name.
+     * @return the counter name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the table.
+     * @return the counter table
+     */
+    public String getTable() {
+        return this.table;
+    }
+
+    /**
+     * Gets the shards.
+     * @return the number of shards
+     */
+    public int getShards() {
+        return this.shards;
+    }
+
+    /**
+     * Gets the property.
+     * @return the storage property of the shards holding the count
+     */
+    public String getProperty() {
+        return this.property;
+    }
+
+}
@@ -1,7 +1,6 @@
 package co.realtime.storage.annotations;
 
 import java.lang.reflect.Field;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -9,11 +8,6 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import co.realtime.storage.ItemAttribute;
 import co.realtime.storage.utils.TypeValidatorUtils;
@@ -32,27 +26,63 @@ public class StorageAnnotationsManager {
      */
     public static void mapAttributesToInstance(final Object instance, final Map<String, Object> attributes) {
 
-        final Field[] fields = instance.getClass().getDeclaredFields();
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(instance.getClass());
+
+        for (final StoragePropertyMapping mapping : plan.mappings()) {
 
-        for (final Field f : fields) {
+            if (mapping.isLazy() && instance instanceof LazyJsonPropertiesHolder) {
+                deferJsonProperty((LazyJsonPropertiesHolder) instance, mapping, attributes.get(mapping.getName()));
+                continue;
+            }
 
-            if (isFieldStorageProperty(f)) {
+            final Object value = calculateValueToMapping(mapping, attributes);
 
-                final Object value = calculateValueToField(f, attributes);
+            if (value != null) {
+                mapping.set(instance, value);
+            }
+
+        }
 
-                if (value != null) {
+    }
+
+    /**
+     * Map item attributes to instance, in a single pass over the mapping plan. Storage properties missing from the attributes are cleared, the other
+     * kinds of properties are kept.
+     * @param instance
+     *            the instance
+     * @param attributes
+     *            the storage attributes
+     */
+    public static void mapItemAttributesToInstance(final Object instance, final Map<String, ItemAttribute> attributes) {
 
-                    f.setAccessible(true);
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(instance.getClass());
 
-                    try {
-                        f.set(instance, value);
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
+        for (final StoragePropertyMapping mapping : plan.mappings()) {
 
+            if (mapping.getKind() == StoragePropertyKindEnum.EMBEDDED) {
+                final Object embedded = calculateValueToEmbeddedStorageProperties(mapping, attributes);
+                if (embedded != null) {
+                    mapping.set(instance, embedded);
                 }
+                continue;
+            }
 
+            final ItemAttribute itemAttribute = attributes.get(mapping.getName());
+            final Object attribute = itemAttribute == null ? null : itemAttribute.get();
+
+            if (mapping.isLazy() && instance instanceof LazyJsonPropertiesHolder) {
+                deferJsonProperty((LazyJsonPropertiesHolder) instance, mapping, attribute);
+                continue;
+            }
+
+            if (mapping.getKind() == StoragePropertyKindEnum.SIMPLE) {
+                mapping.assign(instance, attribute);
+                continue;
+            }
+
+            final Object value = calculateValueToMapping(mapping, attribute);
+            if (value != null) {
+                mapping.set(instance, value);
             }
 
         }
@@ -68,15 +98,21 @@ public class StorageAnnotationsManager {
     public static Map<String, ItemAttribute> instanceToAttributes(final Object instance) {
 
         final HashMap<String, ItemAttribute> attributes = new LinkedHashMap<>(0);
-        final Field[] fields = instance.getClass().getDeclaredFields();
-
-        for (final Field f : fields) {
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(instance.getClass());
 
-            if (isFieldStorageProperty(f)) {
+        for (final StoragePropertyMapping mapping : plan.mappings()) {
 
-                final Map<String, ItemAttribute> values = buildItemAttributesFromField(f, instance);
-                attributes.putAll(values);
+            if (mapping.isLazy() && instance instanceof LazyJsonPropertiesHolder) {
+                final String json = ((LazyJsonPropertiesHolder) instance).deferredJsonProperty(mapping.getName());
+                if (json != null) {
+                    attributes.put(mapping.getName(), new ItemAttribute(json));
+                    continue;
+                }
+            }
 
+            final Object value = mapping.get(instance);
+            if (value != null) {
+                attributes.putAll(buildItemAttributesFromValue(mapping, prepareValueToStorage(mapping, value)));
             }
 
         }
@@ -86,160 +122,160 @@ public class StorageAnnotationsManager {
     }
 
     /**
-     * Builds the item attribute from field.
-     * @param f
-     *            the f
-     * @param instance
-     *            the instance
-     * @return the item attribute
+     * Json property to value.
+     * @param mapping
+     *            the json or json collection mapping
+     * @param json
+     *            the raw json
+     * @return the decoded value
      */
-    private static Map<String, ItemAttribute> buildItemAttributesFromField(final Field f, final Object instance) {
+    public static Object jsonPropertyToValue(final StoragePropertyMapping mapping, final String json) {
+        return calculateValueToMapping(mapping, (Object) json);
+    }
 
-        try {
-            f.setAccessible(true);
-            final Object value = f.get(instance);
-            if (value != null) {
-                return buildItemAttributesFromValue(f, prepareFieldToStorage(f, instance));
-            }
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
+    /**
+     * Defer json property. Clears the field and keeps the raw json on the holder.
+     * @param holder
+     *            the holder
+     * @param mapping
+     *            the mapping
+     * @param attribute
+     *            the attribute
+     */
+    private static void deferJsonProperty(final LazyJsonPropertiesHolder holder, final StoragePropertyMapping mapping, final Object attribute) {
 
-        return Collections.emptyMap();
+        if (attribute != null) {
+            mapping.set(holder, null);
+            holder.deferJsonProperty(mapping.getName(), attribute.toString());
+        }
 
     }
 
     /**
-     * Convert field to object.
-     * @param f
-     *            the f
+     * Instance to json.
      * @param instance
      *            the instance
-     * @return the object
+     * @return the json string
      */
-    private static Object convertFieldToObject(final Field f, final Object instance) {
+    public static String instanceToJson(final Object instance) {
+        return JsonStorageCodec.write(instance);
+    }
 
-        f.setAccessible(true);
-        Object value = null;
+    /**
+     * Collection to json.
+     * @param collection
+     *            the collection
+     * @return the json string
+     */
+    public static String collectionToJson(final Collection<?> collection) {
+        return JsonStorageCodec.writeCollection(collection);
+    }
 
-        try {
-            value = f.get(instance);
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
+    /**
+     * Json to instance.
+     * @param json
+     *            the json
+     * @param klass
+     *            the klass
+     * @return an instance of klass with json data. null if wasn't possible to instantiate an object of klass
+     */
+    public static Object jsonToInstance(final String json, final Class<?> klass) {
+        return JsonStorageCodec.read(json, klass);
+    }
 
-        if (value == null) {
-            return null;
-        }
+    /**
+     * Json to collection.
+     * @param json
+     *            the json
+     * @param itemsClass
+     *            the items class
+     * @return the list
+     */
+    public static List<Object> jsonToCollection(final String json, final Class<?> itemsClass) {
+        return calculateValueToJsonCollectionStorageProperty(json, itemsClass);
+    }
 
-        if (f.isAnnotationPresent(StorageProperty.class)) {
-            return value;
-        } else if (f.isAnnotationPresent(StoragePropertyEnum.class)) {
-            return value.toString();
-        } else if (f.isAnnotationPresent(JsonStorageProperty.class)) {
-            return convertJsonStoragePropertyToJson(value);
-        } else if (f.isAnnotationPresent(JsonCollectionStorageProperty.class) && value instanceof Collection<?>) {
-            final Collection<?> collection = (Collection<?>) value;
-            final JSONArray jsonArray = new JSONArray();
-            for (final Object item : collection) {
-                final JSONObject jsonField = convertJsonStoragePropertyToJson(item);
-                jsonArray.put(jsonField);
-            }
-            return jsonArray;
-        } else if (f.isAnnotationPresent(EmbeddedStorageProperties.class)) {
-            return value;
+    /**
+     * To item attribute, a value of a simple or enum storage property as it is stored.
+     * @param mapping
+     *            the mapping
+     * @param value
+     *            the value
+     * @return the item attribute. Null if value is null
+     */
+    public static ItemAttribute toItemAttribute(final StoragePropertyMapping mapping, final Object value) {
+
+        final Object storedValue = prepareValueToStorage(mapping, value);
+        if (storedValue == null) {
+            return null;
         }
 
-        return null;
+        return storedValue instanceof Number ? new ItemAttribute((Number) storedValue) : new ItemAttribute(storedValue.toString());
 
     }
 
     /**
-     * Prepare field to storage.
-     * @param f
-     *            the f
-     * @param instance
-     *            the instance
+     * Prepare value to storage.
+     * @param mapping
+     *            the mapping
+     * @param value
+     *            the value
      * @return the object
      */
-    private static Object prepareFieldToStorage(final Field f, final Object instance) {
-
-        Object value = null;
-        if (instance != null && f != null) {
-
-            value = convertFieldToObject(f, instance);
-            if (value != null) {
+    private static Object prepareValueToStorage(final StoragePropertyMapping mapping, final Object value) {
 
-                if (f.isAnnotationPresent(JsonStorageProperty.class) || f.isAnnotationPresent(JsonCollectionStorageProperty.class)) {
-                    return value.toString();
-                }
+        if (value == null) {
+            return null;
+        }
 
+        switch (mapping.getKind()) {
+        case SIMPLE:
+            return mapping.toStorage(value);
+        case ENUM:
+            return value.toString();
+        case JSON:
+            return JsonStorageCodec.write(value);
+        case JSON_COLLECTION:
+            if (value instanceof Collection<?>) {
+                return JsonStorageCodec.writeCollection((Collection<?>) value);
             }
-
+            return null;
+        case EMBEDDED:
+            return value;
+        default:
+            return null;
         }
 
-        return value;
-
     }
 
     /**
      * Builds the item attribute from value.
-     * @param f
-     *            the f
+     * @param mapping
+     *            the mapping
      * @param value
      *            the value
      * @return the item attribute
      */
-    private static Map<String, ItemAttribute> buildItemAttributesFromValue(final Field f, final Object value) {
-
-        Map<String, ItemAttribute> attributes = new HashMap<>();
+    private static Map<String, ItemAttribute> buildItemAttributesFromValue(final StoragePropertyMapping mapping, final Object value) {
 
         if (value != null) {
 
+            final String propertyName = mapping.getName();
+
             // is a Number
             if (value instanceof Number) {
-                final String propertyName = calculatePropertyNameField(f);
-                if (propertyName != null && !propertyName.isEmpty()) {
-                    attributes.put(propertyName, new ItemAttribute((Number) value));
-                }
+                return Collections.singletonMap(propertyName, new ItemAttribute((Number) value));
                 // is not a number but is a primitive value or a String
             } else if (TypeValidatorUtils.isWrapperType(value.getClass()) || value instanceof String) {
-                final String propertyName = calculatePropertyNameField(f);
-                if (propertyName != null && !propertyName.isEmpty()) {
-                    attributes.put(propertyName, new ItemAttribute(value.toString()));
-                }
+                return Collections.singletonMap(propertyName, new ItemAttribute(value.toString()));
                 // is a complex object
             } else {
-                attributes = instanceToAttributes(value);
+                return instanceToAttributes(value);
             }
 
         }
 
-        return attributes;
-
-    }
-
-    /**
-     * Convert json storage property to json.
-     * @param object
-     *            the object
-     * @return the jSON object
-     */
-    private static JSONObject convertJsonStoragePropertyToJson(final Object object) {
-
-        final JSONObject jsonObject = new JSONObject();
-
-        final Field[] itemFields = object.getClass().getDeclaredFields();
-        for (final Field itemField : itemFields) {
-
-            final String propertyName = calculatePropertyNameField(itemField);
-            jsonObject.put(propertyName, convertFieldToObject(itemField, object));
-
-        }
-
-        return jsonObject;
+        return Collections.emptyMap();
 
     }
 
@@ -253,272 +289,155 @@ public class StorageAnnotationsManager {
      */
     public static Object calculateValueToField(final Field f, final Map<String, Object> attributes) {
 
-        Object value = null;
-
-        final String propertyName = calculatePropertyNameField(f);
-        Object attribute = null;
-        if (propertyName != null && !propertyName.isEmpty() && attributes.containsKey(propertyName)) {
-            attribute = attributes.get(propertyName);
-        }
-
-        if (f.isAnnotationPresent(StorageProperty.class)) {
-            value = attribute == null ? null : calculateValueToSimpleStorageProperty(f, attribute);
-        } else if (f.isAnnotationPresent(StoragePropertyEnum.class)) {
-            value = attribute == null ? null : calculateValueToStoragePropertyEnum(f, attribute);
-        } else if (f.isAnnotationPresent(JsonStorageProperty.class)) {
-            value = attribute == null ? null : calculateValueToJsonStorageProperty(f, attribute.toString());
-        } else if (f.isAnnotationPresent(JsonCollectionStorageProperty.class)) {
-            final JsonCollectionStorageProperty jsonCollectionStoragePropertyAnnotation = f.getAnnotation(JsonCollectionStorageProperty.class);
-            final Class<?> klass = jsonCollectionStoragePropertyAnnotation.klass();
-            value = attribute == null ? null : calculateValueToJsonCollectionStorageProperty(f, (String) attribute, klass);
-        } else if (f.isAnnotationPresent(EmbeddedStorageProperties.class)) {
-            final Class<?> klass = f.getType();
-            try {
-                value = klass.newInstance();
-                mapAttributesToInstance(value, attributes);
-            } catch (InstantiationException | IllegalAccessException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+        final StoragePropertyMapping mapping = StorageMappingRegistry.planOf(f.getDeclaringClass()).mapping(f);
+        if (mapping == null) {
+            return null;
         }
 
-        return value;
+        return calculateValueToMapping(mapping, attributes);
 
     }
 
     /**
-     * Calculate property name field.
-     * @param f
-     *            the f
-     * @return the string
+     * Calculate value to mapping.
+     * @param mapping
+     *            the mapping
+     * @param attributes
+     *            the attributes
+     * @return the object
      */
-    private static String calculatePropertyNameField(final Field f) {
-
-        // TODO improve it: DRY
-
-        String propertyName = f.getName();
-        if (f.isAnnotationPresent(StorageProperty.class)) {
-
-            final StorageProperty storagePropertyAnnotation = f.getAnnotation(StorageProperty.class);
-            if (storagePropertyAnnotation.name() != null && !storagePropertyAnnotation.name().isEmpty()) {
-                propertyName = storagePropertyAnnotation.name();
-            }
-
-        } else if (f.isAnnotationPresent(StoragePropertyEnum.class)) {
-
-            final StoragePropertyEnum storagePropertyEnumAnnotation = f.getAnnotation(StoragePropertyEnum.class);
-            if (storagePropertyEnumAnnotation.name() != null && !storagePropertyEnumAnnotation.name().isEmpty()) {
-                propertyName = storagePropertyEnumAnnotation.name();
-            }
-
-        } else if (f.isAnnotationPresent(JsonStorageProperty.class)) {
-
-            final JsonStorageProperty jsonStoragePropertyAnnotation = f.getAnnotation(JsonStorageProperty.class);
-            if (jsonStoragePropertyAnnotation.name() != null && !jsonStoragePropertyAnnotation.name().isEmpty()) {
-                propertyName = jsonStoragePropertyAnnotation.name();
-            }
-
-        } else if (f.isAnnotationPresent(JsonCollectionStorageProperty.class)) {
-
-            final JsonCollectionStorageProperty jsonCollectionStoragePropertyAnnotation = f.getAnnotation(JsonCollectionStorageProperty.class);
-            if (jsonCollectionStoragePropertyAnnotation.name() != null && !jsonCollectionStoragePropertyAnnotation.name().isEmpty()) {
-                propertyName = jsonCollectionStoragePropertyAnnotation.name();
-            }
+    private static Object calculateValueToMapping(final StoragePropertyMapping mapping, final Map<String, Object> attributes) {
 
+        if (mapping.getKind() == StoragePropertyKindEnum.EMBEDDED) {
+            return calculateValueToEmbeddedStorageProperties(mapping, attributes);
         }
 
-        return propertyName;
+        return calculateValueToMapping(mapping, attributes.get(mapping.getName()));
 
     }
 
     /**
-     * Checks if is field storage property.
-     * @param f
-     *            the f
-     * @return true, if is field storage property
+     * Calculate value to mapping.
+     * @param mapping
+     *            the mapping
+     * @param attribute
+     *            the attribute
+     * @return the object
      */
-    private static boolean isFieldStorageProperty(final Field f) {
+    static Object calculateValueToMapping(final StoragePropertyMapping mapping, final Object attribute) {
 
-        if (f == null) {
-            return false;
+        if (attribute == null) {
+            return null;
         }
 
-        return f.isAnnotationPresent(StorageProperty.class) || f.isAnnotationPresent(StoragePropertyEnum.class) || f.isAnnotationPresent(JsonStorageProperty.class) || f.isAnnotationPresent(JsonCollectionStorageProperty.class) || f.isAnnotationPresent(EmbeddedStorageProperties.class);
+        switch (mapping.getKind()) {
+        case SIMPLE:
+            return mapping.fromStorage(attribute);
+        case ENUM:
+            return calculateValueToStoragePropertyEnum(mapping, attribute);
+        case JSON:
+            return calculateValueToJsonStorageProperty(mapping, attribute.toString());
+        case JSON_COLLECTION:
+            return calculateValueToJsonCollectionStorageProperty((String) attribute, mapping.getItemClass());
+        default:
+            return null;
+        }
 
     }
 
     /**
-     * Calculate value to simple storage property.
-     * @param f
-     *            the f
-     * @param attribute
-     *            the attribute
+     * Calculate value to embedded storage properties.
+     * @param mapping
+     *            the mapping
+     * @param attributes
+     *            the attributes, raw values or storage attributes
      * @return the object
+     * @throws IllegalStateException
+     *             if the no-arg constructor of the embedded type throws
      */
-    private static Object calculateValueToSimpleStorageProperty(final Field f, final Object attribute) {
+    @SuppressWarnings("unchecked")
+    private static Object calculateValueToEmbeddedStorageProperties(final StoragePropertyMapping mapping, final Map<String, ?> attributes) {
 
-        if (attribute != null) {
+        final Object value;
 
-            final Class<?> fieldType = f.getType();
-            final String fieldClassName = fieldType.getSimpleName();
-
-            if (attribute instanceof Number) {
-
-                final Number attributeNumber = (Number) attribute;
-                switch (fieldClassName) {
-                case "Long":
-                    return new Long(attributeNumber.longValue());
-                case "Byte":
-                    return new Byte(attributeNumber.byteValue());
-                case "Double":
-                    return new Double(attributeNumber.doubleValue());
-                case "Float":
-                    return new Float(attributeNumber.floatValue());
-                case "Integer":
-                    return new Integer(attributeNumber.intValue());
-                case "Short":
-                    return new Short(attributeNumber.shortValue());
-                case "BigDecimal":
-                    return new BigDecimal(attributeNumber.doubleValue());
-                case "AtomicInteger":
-                    return new AtomicInteger(attributeNumber.intValue());
-                case "AtomicLong":
-                    return new AtomicLong(attributeNumber.longValue());
-                case "String":
-                    return attributeNumber.toString();
-                default:
-                    break;
-                }
+        try {
+            value = StorageMappingRegistry.planOf(mapping.getType()).newInstance();
+        } catch (final InstantiationException e) {
+            // the plan of the owner checked the no-arg constructor, so it threw
+            throw new IllegalStateException(String.format("Cannot instantiate embedded %s", mapping.getType().getName()), e);
+        }
 
-            } else if (fieldClassName.equals("Boolean")) {
-                return Boolean.valueOf(attribute.toString());
-            }
+        if (isItemAttributes(attributes)) {
+            mapItemAttributesToInstance(value, (Map<String, ItemAttribute>) attributes);
+        } else {
+            mapAttributesToInstance(value, (Map<String, Object>) attributes);
+        }
 
+        return value;
+
+    }
+
+    /**
+     * Checks if is item attributes.
+     * @param attributes
+     *            the attributes
+     * @return true, if the values of attributes are storage attributes
+     */
+    private static boolean isItemAttributes(final Map<String, ?> attributes) {
+
+        for (final Object value : attributes.values()) {
+            return value instanceof ItemAttribute;
         }
 
-        return attribute;
+        return false;
 
     }
 
     /**
      * Calculate value to storaget property enum.
-     * @param f
-     *            the f
+     * @param mapping
+     *            the mapping
      * @param attribute
      *            the attribute
      * @return the enum
      */
-    private static Enum<?> calculateValueToStoragePropertyEnum(final Field f, final Object attribute) {
+    private static Enum<?> calculateValueToStoragePropertyEnum(final StoragePropertyMapping mapping, final Object attribute) {
 
         if (attribute == null) {
             return null;
         }
 
-        return Enum.valueOf(((Class<? extends Enum>) f.getType()), attribute.toString());
+        return Enum.valueOf(((Class<? extends Enum>) mapping.getType()), attribute.toString());
 
     }
 
     /**
      * Calculate value to json storage property.
-     * @param f
-     *            the f
-     * @param jsonItemsAsString
-     *            the json items as string
-     * @return the object converted to an instance of the f type. Null if cannot instatiate an object of f type
+     * @param mapping
+     *            the mapping
+     * @param jsonItemAsString
+     *            the json item as string
+     * @return the object converted to an instance of the field type. Null if cannot instatiate an object of the field type
      */
-    private static Object calculateValueToJsonStorageProperty(final Field f, final String jsonItemsAsString) {
-
-        final JSONObject jsonItem = new JSONObject(jsonItemsAsString);
-        final Class<?> klass = f.getType();
-
-        return calculateValueFromJsonObject(jsonItem, klass);
-
-    }
-
-    /**
-     * Calculate value from json object.
-     * @param jsonObject
-     *            the json object
-     * @param itemClass
-     *            the item class
-     * @return an instance of itemClass with json data. null if wasn't possible to instantiate an object of itemClass
-     */
-    private static Object calculateValueFromJsonObject(final JSONObject jsonObject, final Class<?> itemClass) {
-
-        Object itemInstance = null;
-
-        try {
-
-            itemInstance = itemClass.newInstance();
-            final Field[] itemFields = itemClass.getDeclaredFields();
-
-            for (final Field itemField : itemFields) {
-
-                try {
-
-                    final String propertyName = calculatePropertyNameField(itemField);
-
-                    if (jsonObject.has(propertyName)) {
-
-                        final Object attribute = jsonObject.get(propertyName);
-                        final Map<String, Object> attributes = new HashMap<>();
-                        attributes.put(propertyName, attribute);
-
-                        if (attribute != null) {
-                            final Object value = calculateValueToField(itemField, attributes);
-                            itemField.setAccessible(true);
-                            itemField.set(itemInstance, value);
-                        }
-
-                    }
-
-                } catch (final IllegalAccessException exception) {
-                    // TODO Auto-generated catch block
-                    exception.printStackTrace();
-                }
-
-            }
-
-        } catch (final InstantiationException | IllegalAccessException exception) {
-            // TODO Auto-generated catch block
-            exception.printStackTrace();
-        }
-
-        return itemInstance;
-
+    private static Object calculateValueToJsonStorageProperty(final StoragePropertyMapping mapping, final String jsonItemAsString) {
+        return JsonStorageCodec.read(jsonItemAsString, mapping.getType());
     }
 
     /**
      * Calculate value to json collection storage property.
-     * @param f
-     *            the f
      * @param jsonItemsAsString
      *            the json items as string
      * @param itemsClass
      *            the items class
      * @return the list
      */
-    private static List<Object> calculateValueToJsonCollectionStorageProperty(final Field f, final String jsonItemsAsString, final Class<?> itemsClass) {
-
-        final List<Object> items = new ArrayList<>();
-
-        if (jsonItemsAsString != null && !jsonItemsAsString.isEmpty()) {
-
-            final JSONArray jsonItems = new JSONArray(jsonItemsAsString);
-            for (int i = 0; i < jsonItems.length(); i++) {
-
-                final JSONObject jsonItem = jsonItems.getJSONObject(i);
-                final Object itemInstance = calculateValueFromJsonObject(jsonItem, itemsClass);
-
-                if (itemInstance != null) {
-                    items.add(itemInstance);
-                }
-
-            }
+    private static List<Object> calculateValueToJsonCollectionStorageProperty(final String jsonItemsAsString, final Class<?> itemsClass) {
 
+        if (jsonItemsAsString == null || jsonItemsAsString.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        return items;
+        return JsonStorageCodec.readCollection(jsonItemsAsString, itemsClass);
 
     }
 
@@ -0,0 +1,109 @@
+package co.realtime.storage.annotations;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.StorageRef.StorageDataType;
+import co.realtime.storage.utils.TypeValidatorUtils;
+
+/**
+ * The Class StorageKeyDescriptor. The primary or secondary key of a mapped class, with its storage data type resolved once from the declared field
+ * type.
+ */
+public final class StorageKeyDescriptor {
+
+    /** The Constant NONE. Descriptor of an undefined key. */
+    static final StorageKeyDescriptor NONE = new StorageKeyDescriptor(null);
+
+    /** The mapping. Null if the key is not defined. */
+    private final StoragePropertyMapping mapping;
+
+    /** The data type. */
+    private final StorageDataType dataType;
+
+    /**
+     * Instantiates a new storage key descriptor.
+     * @param mapping
+     *            the mapping
+     */
+    StorageKeyDescriptor(final StoragePropertyMapping mapping) {
+        this.mapping = mapping;
+        this.dataType = mapping != null && TypeValidatorUtils.isNumberType(mapping.getType()) ? StorageDataType.NUMBER : StorageDataType.STRING;
+    }
+
+    /**
+     * Checks if is defined.
+     * @return true, if is defined
+     */
+    public boolean isDefined() {
+        return this.mapping != null;
+    }
+
+    /**
+     * Gets the key value from the instance.
+     * @param instance
+     *            the instance
+     * @return the key value. Null if the key is not defined
+     */
+    public Object get(final Object instance) {
+        return this.mapping == null ? null : this.mapping.get(instance);
+    }
+
+    /**
+     * Sets the key value of the instance, converted to the type of the key.
+     * @param instance
+     *            the instance
+     * @param value
+     *            the key value
+     */
+    public void set(final Object instance, final Object value) {
+
+        if (this.mapping == null) {
+            throw new IllegalStateException("The key is not defined");
+        }
+
+        this.mapping.assign(instance, value);
+
+    }
+
+    /**
+     * Gets the name.
+     * @return the property name of the key. Null if the key is not defined
+     */
+    public String getName() {
+        return this.mapping == null ? null : this.mapping.getName();
+    }
+
+    /**
+     * Gets the data type.
+     * @return the data type
+     */
+    public StorageDataType getDataType() {
+        return this.dataType;
+    }
+
+    /**
+     * Gets the mapping.
+     * @return the mapping. Null if the key is not defined
+     */
+    public StoragePropertyMapping getMapping() {
+        return this.mapping;
+    }
+
+    /**
+     * To item attribute.
+     * @param value
+     *            the key value
+     * @return the item attribute. Null if value is null
+     */
+    public static ItemAttribute toItemAttribute(final Object value) {
+
+        if (value == null) {
+            return null;
+        } else if (value instanceof Number) {
+            return new ItemAttribute((Number) value);
+        }
+
+        return new ItemAttribute(value.toString());
+
+    }
+
+}
@@ -0,0 +1,226 @@
+package co.realtime.storage.annotations;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class StorageMappingPlan. Immutable list of the storage property mappings of a class, built once and shared by every map and unmap.
+ */
+public final class StorageMappingPlan {
+
+    /** The type. */
+    private final Class<?> type;
+
+    /** The instantiator. */
+    private final ClassInstantiator instantiator;
+
+    /** The mappings. */
+    private final List<StoragePropertyMapping> mappings;
+
+    /** The mappings by property name. */
+    private final Map<String, StoragePropertyMapping> mappingsByName;
+
+    /** The mappings by field. */
+    private final Map<Field, StoragePropertyMapping> mappingsByField;
+
+    /** The sharded counters by name. */
+    private final Map<String, ShardedCounterMapping> shardedCountersByName;
+
+    /** The primary key. */
+    private final StorageKeyDescriptor primaryKey;
+
+    /** The secondary key. */
+    private final StorageKeyDescriptor secondaryKey;
+
+    /**
+     * Instantiates a new storage mapping plan.
+     * @param type
+     *            the type
+     * @throws IllegalStateException
+     *             if an embedded property can not be instantiated
+     */
+    StorageMappingPlan(final Class<?> type) {
+
+        final List<StoragePropertyMapping> mappingsTemp = new ArrayList<>();
+        final Map<String, StoragePropertyMapping> mappingsByNameTemp = new HashMap<>();
+        final Map<Field, StoragePropertyMapping> mappingsByFieldTemp = new HashMap<>();
+        final Map<String, ShardedCounterMapping> shardedCountersByNameTemp = new HashMap<>();
+
+        for (final Field f : type.getDeclaredFields()) {
+
+            final StoragePropertyKindEnum kind = StoragePropertyKindEnum.fromField(f);
+            if (kind != null) {
+
+                final StoragePropertyMapping mapping = new StoragePropertyMapping(f, kind);
+                if (kind == StoragePropertyKindEnum.EMBEDDED && !ClassInstantiator.isInstantiable(mapping.getType())) {
+                    throw new IllegalStateException(String.format("Embedded property %s of %s has no accessible no-arg constructor", f.getName(), type.getName()));
+                }
+                mappingsTemp.add(mapping);
+                mappingsByFieldTemp.put(f, mapping);
+                if (kind != StoragePropertyKindEnum.EMBEDDED) {
+                    mappingsByNameTemp.put(mapping.getName(), mapping);
+                }
+
+            }
+
+            if (f.isAnnotationPresent(ShardedCounter.class)) {
+                final ShardedCounterMapping shardedCounter = new ShardedCounterMapping(f);
+                shardedCountersByNameTemp.put(shardedCounter.getName(), shardedCounter);
+            }
+
+        }
+
+        this.primaryKey = resolveKey(type, mappingsTemp, true);
+        this.secondaryKey = resolveKey(type, mappingsTemp, false);
+        this.type = type;
+        this.instantiator = new ClassInstantiator(type);
+        this.mappings = Collections.unmodifiableList(mappingsTemp);
+        this.mappingsByName = Collections.unmodifiableMap(mappingsByNameTemp);
+        this.mappingsByField = Collections.unmodifiableMap(mappingsByFieldTemp);
+        this.shardedCountersByName = Collections.unmodifiableMap(shardedCountersByNameTemp);
+
+    }
+
+    /**
+     * Gets the type.
+     * @return the type
+     */
+    public Class<?> getType() {
+        return this.type;
+    }
+
+    /**
+     * New instance of the planned type, through its no-arg constructor.
+     * @return the object
+     * @throws InstantiationException
+     *             the instantiation exception
+     */
+    public Object newInstance() throws InstantiationException {
+        return this.instantiator.newInstance();
+    }
+
+    /**
+     * Gets the primary key.
+     * @return the primary key descriptor
+     */
+    public StorageKeyDescriptor getPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    /**
+     * Gets the secondary key.
+     * @return the secondary key descriptor
+     */
+    public StorageKeyDescriptor getSecondaryKey() {
+        return this.secondaryKey;
+    }
+
+    /**
+     * Mappings.
+     * @return the list
+     */
+    public List<StoragePropertyMapping> mappings() {
+        return this.mappings;
+    }
+
+    /**
+     * Mapping.
+     * @param propertyName
+     *            the property name
+     * @return the storage property mapping. Null if there is no property with that name
+     */
+    public StoragePropertyMapping mapping(final String propertyName) {
+        return this.mappingsByName.get(propertyName);
+    }
+
+    /**
+     * Mapping.
+     * @param f
+     *            the f
+     * @return the storage property mapping. Null if the field is not a storage property
+     */
+    public StoragePropertyMapping mapping(final Field f) {
+        return this.mappingsByField.get(f);
+    }
+
+    /**
+     * Mapping of a field.
+     * @param fieldName
+     *            the field name
+     * @return the storage property mapping of the field with that name. Null if there is none
+     */
+    public StoragePropertyMapping mappingOfField(final String fieldName) {
+
+        for (final StoragePropertyMapping candidate : this.mappings) {
+            if (candidate.getField().getName().equals(fieldName)) {
+                return candidate;
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Sharded counter.
+     * @param counterName
+     *            the counter, or field, name
+     * @return the sharded counter mapping. Null if there is no sharded counter with that name
+     */
+    public ShardedCounterMapping shardedCounter(final String counterName) {
+
+        final ShardedCounterMapping shardedCounter = this.shardedCountersByName.get(counterName);
+        if (shardedCounter != null) {
+            return shardedCounter;
+        }
+
+        for (final ShardedCounterMapping candidate : this.shardedCountersByName.values()) {
+            if (candidate.getField().getName().equals(counterName)) {
+                return candidate;
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Resolve key. The StorageProperty flagged as key wins, otherwise the StorageProperty whose field name is the key name of the StorageTable.
+     * @param type
+     *            the type
+     * @param mappings
+     *            the mappings
+     * @param primary
+     *            true to resolve the primary key, false to resolve the secondary key
+     * @return the storage key descriptor
+     */
+    private static StorageKeyDescriptor resolveKey(final Class<?> type, final List<StoragePropertyMapping> mappings, final boolean primary) {
+
+        String keyName = null;
+        if (type.isAnnotationPresent(StorageTable.class)) {
+            final StorageTable storageTableAnnotation = type.getAnnotation(StorageTable.class);
+            keyName = primary ? storageTableAnnotation.primaryKey() : storageTableAnnotation.secondaryKey();
+        }
+
+        StoragePropertyMapping mappingByKeyName = null;
+        for (final StoragePropertyMapping mapping : mappings) {
+
+            if (mapping.getKind() == StoragePropertyKindEnum.SIMPLE) {
+                if (primary ? mapping.isPrimaryKey() : mapping.isSecondaryKey()) {
+                    return new StorageKeyDescriptor(mapping);
+                } else if (mapping.getField().getName().equals(keyName)) {
+                    mappingByKeyName = mapping;
+                }
+            }
+
+        }
+
+        return mappingByKeyName == null ? StorageKeyDescriptor.NONE : new StorageKeyDescriptor(mappingByKeyName);
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package co.realtime.storage.annotations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class StorageMappingRegistry. Thread safe cache of the mapping plans, one per mapped class.
+ */
+public final class StorageMappingRegistry {
+
+    /** The plans. */
+    private static final ConcurrentMap<Class<?>, StorageMappingPlan> PLANS = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new storage mapping registry.
+     */
+    private StorageMappingRegistry() {
+        // static access only
+    }
+
+    /**
+     * Plan of.
+     * @param klass
+     *            the klass
+     * @return the storage mapping plan
+     */
+    public static StorageMappingPlan planOf(final Class<?> klass) {
+
+        if (klass == null) {
+            throw new IllegalArgumentException("klass argument can not be null");
+        }
+
+        final StorageMappingPlan plan = PLANS.get(klass);
+        if (plan != null) {
+            return plan;
+        }
+
+        final StorageMappingPlan newPlan = new StorageMappingPlan(klass);
+        final StorageMappingPlan previousPlan = PLANS.putIfAbsent(klass, newPlan);
+
+        return previousPlan == null ? newPlan : previousPlan;
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package co.realtime.storage.annotations;
+
+import java.lang.reflect.Field;
+
+/**
+ * The Enum StoragePropertyKindEnum.
+ */
+public enum StoragePropertyKindEnum {
+
+    /** The simple. */
+    SIMPLE,
+    /** The enum. */
+    ENUM,
+    /** The json. */
+    JSON,
+    /** The json collection. */
+    JSON_COLLECTION,
+    /** The embedded. */
+    EMBEDDED;
+
+    /**
+     * From field.
+     * @param f
+     *            the f
+     * @return the storage property kind enum. Null if the field is not a storage property
+     */
+    public static StoragePropertyKindEnum fromField(final Field f) {
+
+        if (f == null) {
+            return null;
+        }
+
+        if (f.isAnnotationPresent(StorageProperty.class)) {
+            return SIMPLE;
+        } else if (f.isAnnotationPresent(StoragePropertyEnum.class)) {
+            return ENUM;
+        } else if (f.isAnnotationPresent(JsonStorageProperty.class)) {
+            return JSON;
+        } else if (f.isAnnotationPresent(JsonCollectionStorageProperty.class)) {
+            return JSON_COLLECTION;
+        } else if (f.isAnnotationPresent(EmbeddedStorageProperties.class)) {
+            return EMBEDDED;
+        }
+
+        return null;
+
+    }
+
+}
@@ -0,0 +1,241 @@
+package co.realtime.storage.annotations;
+
+import java.lang.reflect.Field;
+
+/**
+ * The Class StoragePropertyMapping. Immutable description of how a single field is mapped to and from the storage.
+ */
+public final class StoragePropertyMapping {
+
+    /** The field. */
+    private final Field field;
+
+    /** The accessor. */
+    private final FieldAccessor accessor;
+
+    /** The name. */
+    private final String name;
+
+    /** The kind. */
+    private final StoragePropertyKindEnum kind;
+
+    /** The type. */
+    private final Class<?> type;
+
+    /** The item class. */
+    private final Class<?> itemClass;
+
+    /** The primary key. */
+    private final boolean primaryKey;
+
+    /** The secondary key. */
+    private final boolean secondaryKey;
+
+    /** The lazy. */
+    private final boolean lazy;
+
+    /** The converter of a storage property. Null for the other kinds or when there is none for the type. */
+    private final StorageValueConverter<Object> converter;
+
+    /**
+     * Instantiates a new storage property mapping.
+     * @param field
+     *            the field
+     * @param kind
+     *            the kind
+     */
+    @SuppressWarnings("unchecked")
+    StoragePropertyMapping(final Field field, final StoragePropertyKindEnum kind) {
+
+        this.field = field;
+        this.accessor = new FieldAccessor(field);
+        this.kind = kind;
+        this.type = field.getType();
+        this.name = calculatePropertyName(field, kind);
+
+        if (kind == StoragePropertyKindEnum.JSON_COLLECTION) {
+            this.itemClass = field.getAnnotation(JsonCollectionStorageProperty.class).klass();
+            this.lazy = field.getAnnotation(JsonCollectionStorageProperty.class).lazy();
+        } else if (kind == StoragePropertyKindEnum.JSON) {
+            this.itemClass = this.type;
+            this.lazy = field.getAnnotation(JsonStorageProperty.class).lazy();
+        } else {
+            this.itemClass = this.type;
+            this.lazy = false;
+        }
+
+        if (kind == StoragePropertyKindEnum.SIMPLE) {
+            final StorageProperty storagePropertyAnnotation = field.getAnnotation(StorageProperty.class);
+            this.primaryKey = storagePropertyAnnotation.isPrimaryKey();
+            this.secondaryKey = storagePropertyAnnotation.isSecondaryKey();
+            this.converter = (StorageValueConverter<Object>) StorageValueConverters.converterFor(this.type);
+        } else {
+            this.primaryKey = false;
+            this.secondaryKey = false;
+            this.converter = null;
+        }
+
+    }
+
+    /**
+     * Gets the value of this property from the instance.
+     * @param instance
+     *            the instance
+     * @return the value
+     */
+    public Object get(final Object instance) {
+        return this.accessor.get(instance);
+    }
+
+    /**
+     * Sets the value of this property on the instance.
+     * @param instance
+     *            the instance
+     * @param value
+     *            the value
+     */
+    public void set(final Object instance, final Object value) {
+        this.accessor.set(instance, value);
+    }
+
+    /**
+     * Assigns a stored value to this property on the instance. Primitive fields are set without boxing and are left untouched when the value is
+     * null.
+     * @param instance
+     *            the instance
+     * @param attribute
+     *            the stored value
+     */
+    public void assign(final Object instance, final Object attribute) {
+
+        if (this.type.isPrimitive()) {
+            if (attribute != null) {
+                this.accessor.setPrimitive(instance, attribute);
+            }
+        } else {
+            this.accessor.set(instance, fromStorage(attribute));
+        }
+
+    }
+
+    /**
+     * From storage.
+     * @param attribute
+     *            the stored value
+     * @return the value of this property, the stored value itself when there is no converter
+     */
+    public Object fromStorage(final Object attribute) {
+        return attribute == null || this.converter == null ? attribute : this.converter.fromStorage(attribute);
+    }
+
+    /**
+     * To storage.
+     * @param value
+     *            the value of this property
+     * @return the stored value, the value itself when there is no converter
+     */
+    public Object toStorage(final Object value) {
+        return value == null || this.converter == null ? value : this.converter.toStorage(value);
+    }
+
+    /**
+     * Gets the field.
+     * @return the field
+     */
+    public Field getField() {
+        return this.field;
+    }
+
+    /**
+     * Gets the name.
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the kind.
+     * @return the kind
+     */
+    public StoragePropertyKindEnum getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Gets the type.
+     * @return the type
+     */
+    public Class<?> getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the item class.
+     * @return the item class of a json collection, the field type otherwise
+     */
+    public Class<?> getItemClass() {
+        return this.itemClass;
+    }
+
+    /**
+     * Checks if is primary key.
+     * @return true, if is primary key
+     */
+    public boolean isPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    /**
+     * Checks if is secondary key.
+     * @return true, if is secondary key
+     */
+    public boolean isSecondaryKey() {
+        return this.secondaryKey;
+    }
+
+    /**
+     * Checks if is lazy.
+     * @return true, if the json of this property is decoded on demand
+     */
+    public boolean isLazy() {
+        return this.lazy;
+    }
+
+    /**
+     * Calculate property name.
+     * @param f
+     *            the f
+     * @param kind
+     *            the kind
+     * @return the string
+     */
+    private static String calculatePropertyName(final Field f, final StoragePropertyKindEnum kind) {
+
+        String annotatedName = null;
+        switch (kind) {
+        case SIMPLE:
+            annotatedName = f.getAnnotation(StorageProperty.class).name();
+            break;
+        case ENUM:
+            annotatedName = f.getAnnotation(StoragePropertyEnum.class).name();
+            break;
+        case JSON:
+            annotatedName = f.getAnnotation(JsonStorageProperty.class).name();
+            break;
+        case JSON_COLLECTION:
+            annotatedName = f.getAnnotation(JsonCollectionStorageProperty.class).name();
+            break;
+        default:
+            break;
+        }
+
+        if (annotatedName != null && !annotatedName.isEmpty()) {
+            return annotatedName;
+        }
+
+        return f.getName();
+
+    }
+
+}
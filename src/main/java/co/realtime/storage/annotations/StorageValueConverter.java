@@ -0,0 +1,27 @@
+package co.realtime.storage.annotations;
+
+/**
+ * The Interface StorageValueConverter. Converts the values of a storage property type to and from the storage representation, a String or a
+ * Number. Booleans are also accepted and stored as their text.
+ * @param <T>
+ *            the property type
+ */
+public interface StorageValueConverter<T> {
+
+    /**
+     * From storage.
+     * @param attribute
+     *            the stored value, never null
+     * @return the property value
+     */
+    T fromStorage(Object attribute);
+
+    /**
+     * To storage.
+     * @param value
+     *            the property value, never null
+     * @return the stored value, a String or a Number
+     */
+    Object toStorage(T value);
+
+}
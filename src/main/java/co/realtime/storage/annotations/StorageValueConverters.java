@@ -0,0 +1,373 @@
+package co.realtime.storage.annotations;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class StorageValueConverters. Registry of the converters of the storage properties, keyed by the property type. The converter of each
+ * property is resolved once, when the mapping plan of its class is built, so custom converters must be registered before the first instance of
+ * a class using them is mapped.
+ */
+public final class StorageValueConverters {
+
+    /** The Constant STRING. */
+    public static final StorageValueConverter<String> STRING = new StorageValueConverter<String>() {
+
+        @Override
+        public String fromStorage(final Object attribute) {
+            return attribute.toString();
+        }
+
+        @Override
+        public Object toStorage(final String value) {
+            return value;
+        }
+
+    };
+
+    /** The Constant LONG. */
+    public static final StorageValueConverter<Long> LONG = new NumberConverter<Long>() {
+
+        @Override
+        public Long fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Long.valueOf(((Number) attribute).longValue());
+            }
+            return Long.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant INTEGER. */
+    public static final StorageValueConverter<Integer> INTEGER = new NumberConverter<Integer>() {
+
+        @Override
+        public Integer fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Integer.valueOf(((Number) attribute).intValue());
+            }
+            return Integer.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant SHORT. */
+    public static final StorageValueConverter<Short> SHORT = new NumberConverter<Short>() {
+
+        @Override
+        public Short fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Short.valueOf(((Number) attribute).shortValue());
+            }
+            return Short.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant BYTE. */
+    public static final StorageValueConverter<Byte> BYTE = new NumberConverter<Byte>() {
+
+        @Override
+        public Byte fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Byte.valueOf(((Number) attribute).byteValue());
+            }
+            return Byte.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant DOUBLE. */
+    public static final StorageValueConverter<Double> DOUBLE = new NumberConverter<Double>() {
+
+        @Override
+        public Double fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Double.valueOf(((Number) attribute).doubleValue());
+            }
+            return Double.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant FLOAT. */
+    public static final StorageValueConverter<Float> FLOAT = new NumberConverter<Float>() {
+
+        @Override
+        public Float fromStorage(final Object attribute) {
+            if (attribute instanceof Number) {
+                return Float.valueOf(((Number) attribute).floatValue());
+            }
+            return Float.valueOf(attribute.toString());
+        }
+
+    };
+
+    /** The Constant BIG_DECIMAL. Integral values are converted exactly and the others through their decimal text, never through a double. */
+    public static final StorageValueConverter<BigDecimal> BIG_DECIMAL = new NumberConverter<BigDecimal>() {
+
+        @Override
+        public BigDecimal fromStorage(final Object attribute) {
+            if (attribute instanceof BigDecimal) {
+                return (BigDecimal) attribute;
+            }
+            if (isIntegral(attribute)) {
+                return BigDecimal.valueOf(((Number) attribute).longValue());
+            }
+            return new BigDecimal(attribute.toString());
+        }
+
+    };
+
+    /** The Constant BIG_INTEGER. */
+    public static final StorageValueConverter<BigInteger> BIG_INTEGER = new NumberConverter<BigInteger>() {
+
+        @Override
+        public BigInteger fromStorage(final Object attribute) {
+            if (attribute instanceof BigInteger) {
+                return (BigInteger) attribute;
+            }
+            if (isIntegral(attribute)) {
+                return BigInteger.valueOf(((Number) attribute).longValue());
+            }
+            return new BigDecimal(attribute.toString()).toBigInteger();
+        }
+
+    };
+
+    /** The Constant ATOMIC_INTEGER. */
+    public static final StorageValueConverter<AtomicInteger> ATOMIC_INTEGER = new NumberConverter<AtomicInteger>() {
+
+        @Override
+        public AtomicInteger fromStorage(final Object attribute) {
+            return new AtomicInteger(INTEGER.fromStorage(attribute).intValue());
+        }
+
+    };
+
+    /** The Constant ATOMIC_LONG. */
+    public static final StorageValueConverter<AtomicLong> ATOMIC_LONG = new NumberConverter<AtomicLong>() {
+
+        @Override
+        public AtomicLong fromStorage(final Object attribute) {
+            return new AtomicLong(LONG.fromStorage(attribute).longValue());
+        }
+
+    };
+
+    /** The Constant BOOLEAN. Stored as is, the storage keeps its text. */
+    public static final StorageValueConverter<Boolean> BOOLEAN = new StorageValueConverter<Boolean>() {
+
+        @Override
+        public Boolean fromStorage(final Object attribute) {
+            if (attribute instanceof Boolean) {
+                return (Boolean) attribute;
+            }
+            return Boolean.valueOf(attribute.toString());
+        }
+
+        @Override
+        public Object toStorage(final Boolean value) {
+            return value;
+        }
+
+    };
+
+    /** The Constant UUID_CONVERTER. Stored as its canonical string. */
+    public static final StorageValueConverter<UUID> UUID_CONVERTER = new StorageValueConverter<UUID>() {
+
+        @Override
+        public UUID fromStorage(final Object attribute) {
+            return UUID.fromString(attribute.toString());
+        }
+
+        @Override
+        public Object toStorage(final UUID value) {
+            return value.toString();
+        }
+
+    };
+
+    /** The Constant DATE. Stored as the milliseconds since the epoch. */
+    public static final StorageValueConverter<Date> DATE = new StorageValueConverter<Date>() {
+
+        @Override
+        public Date fromStorage(final Object attribute) {
+            return new Date(LONG.fromStorage(attribute).longValue());
+        }
+
+        @Override
+        public Object toStorage(final Date value) {
+            return Long.valueOf(value.getTime());
+        }
+
+    };
+
+    /** The converters. */
+    private static final ConcurrentMap<Class<?>, StorageValueConverter<?>> CONVERTERS = getDefaultConverters();
+
+    /** The Constant PRIMITIVE_WRAPPERS. */
+    private static final Map<Class<?>, Class<?>> PRIMITIVE_WRAPPERS = getPrimitiveWrappers();
+
+    /**
+     * Instantiates a new storage value converters.
+     */
+    private StorageValueConverters() {
+        // static access only
+    }
+
+    /**
+     * Register a converter, replacing the previous converter of the type.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the property type
+     * @param converter
+     *            the converter
+     */
+    public static <T> void register(final Class<T> type, final StorageValueConverter<T> converter) {
+
+        if (type == null || converter == null) {
+            throw new IllegalArgumentException("type and converter arguments can not be null");
+        }
+
+        if (type.isPrimitive()) {
+            throw new IllegalArgumentException(String.format("Primitive type %s is converted by the converter of its wrapper", type.getName()));
+        }
+
+        CONVERTERS.put(type, converter);
+
+    }
+
+    /**
+     * Converter for.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the property type, primitives resolve to the converter of their wrapper
+     * @return the converter. Null if there is none for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> StorageValueConverter<T> converterFor(final Class<T> type) {
+
+        final Class<?> wrapper = PRIMITIVE_WRAPPERS.get(type);
+        return (StorageValueConverter<T>) CONVERTERS.get(wrapper == null ? type : wrapper);
+
+    }
+
+    /**
+     * From storage.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the property type
+     * @param attribute
+     *            the stored value
+     * @return the property value, the stored value itself if there is no converter for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fromStorage(final Class<T> type, final Object attribute) {
+
+        if (attribute == null) {
+            return null;
+        }
+
+        final StorageValueConverter<T> converter = converterFor(type);
+        return converter == null ? (T) attribute : converter.fromStorage(attribute);
+
+    }
+
+    /**
+     * To storage.
+     * @param value
+     *            the property value
+     * @return the stored value, the value itself if there is no converter for its class
+     */
+    @SuppressWarnings("unchecked")
+    public static Object toStorage(final Object value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        final StorageValueConverter<Object> converter = (StorageValueConverter<Object>) converterFor(value.getClass());
+        return converter == null ? value : converter.toStorage(value);
+
+    }
+
+    /**
+     * Checks if is integral.
+     * @param attribute
+     *            the attribute
+     * @return true, if the attribute is a number without a fractional part representable as a long
+     */
+    private static boolean isIntegral(final Object attribute) {
+        return attribute instanceof Long || attribute instanceof Integer || attribute instanceof Short || attribute instanceof Byte;
+    }
+
+    /**
+     * Gets the default converters.
+     * @return the default converters
+     */
+    private static ConcurrentMap<Class<?>, StorageValueConverter<?>> getDefaultConverters() {
+        final ConcurrentMap<Class<?>, StorageValueConverter<?>> converters = new ConcurrentHashMap<>();
+        converters.put(String.class, STRING);
+        converters.put(Long.class, LONG);
+        converters.put(Integer.class, INTEGER);
+        converters.put(Short.class, SHORT);
+        converters.put(Byte.class, BYTE);
+        converters.put(Double.class, DOUBLE);
+        converters.put(Float.class, FLOAT);
+        converters.put(BigDecimal.class, BIG_DECIMAL);
+        converters.put(BigInteger.class, BIG_INTEGER);
+        converters.put(AtomicInteger.class, ATOMIC_INTEGER);
+        converters.put(AtomicLong.class, ATOMIC_LONG);
+        converters.put(Boolean.class, BOOLEAN);
+        converters.put(UUID.class, UUID_CONVERTER);
+        converters.put(Date.class, DATE);
+        return converters;
+    }
+
+    /**
+     * Gets the primitive wrappers.
+     * @return the primitive wrappers
+     */
+    private static Map<Class<?>, Class<?>> getPrimitiveWrappers() {
+        final Map<Class<?>, Class<?>> wrappers = new HashMap<>();
+        wrappers.put(long.class, Long.class);
+        wrappers.put(int.class, Integer.class);
+        wrappers.put(short.class, Short.class);
+        wrappers.put(byte.class, Byte.class);
+        wrappers.put(double.class, Double.class);
+        wrappers.put(float.class, Float.class);
+        wrappers.put(boolean.class, Boolean.class);
+        return wrappers;
+    }
+
+    /**
+     * The Class NumberConverter. Converter of the numbers, stored as they are.
+     * @param <N>
+     *            the number type
+     */
+    private abstract static class NumberConverter<N extends Number> implements StorageValueConverter<N> {
+
+        /*
+         * (non-Javadoc)
+         * @see co.realtime.storage.annotations.StorageValueConverter#toStorage(java.lang.Object)
+         */
+        @Override
+        public Object toStorage(final N value) {
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package co.realtime.storage.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class ActiveRecordsBatchState. Outcome of a batch operation: every record of the batch, in its order, with the error of each record that
+ * failed.
+ * @param <R>
+ *            the generic type
+ */
+public class ActiveRecordsBatchState<R extends ActiveRecord> {
+
+    /** The records. */
+    private final List<R> records;
+
+    /** The errors, by record position. Null for the records that succeeded. */
+    private final Error[] errors;
+
+    /**
+     * Instantiates a new active records batch state.
+     * @param records
+     *            the records
+     * @param errors
+     *            the errors, by record position
+     */
+    public ActiveRecordsBatchState(final List<R> records, final Error[] errors) {
+
+        if (records.size() != errors.length) {
+            throw new IllegalArgumentException("records and errors arguments must have the same size");
+        }
+
+        this.records = Collections.unmodifiableList(records);
+        this.errors = errors;
+
+    }
+
+    /**
+     * Size.
+     * @return the number of records of the batch
+     */
+    public int size() {
+        return this.records.size();
+    }
+
+    /**
+     * Records.
+     * @return all records of the batch, in order
+     */
+    public List<R> records() {
+        return this.records;
+    }
+
+    /**
+     * Error.
+     * @param position
+     *            the position of the record
+     * @return the error of the record, null if it succeeded
+     */
+    public Error error(final int position) {
+        return this.errors[position];
+    }
+
+    /**
+     * Succeeded records.
+     * @return the records that succeeded, in order
+     */
+    public List<R> succeededRecords() {
+        return filter(false);
+    }
+
+    /**
+     * Failed records.
+     * @return the records that failed, in order
+     */
+    public List<R> failedRecords() {
+        return filter(true);
+    }
+
+    /**
+     * Error count.
+     * @return the number of records that failed
+     */
+    public int errorCount() {
+
+        int count = 0;
+        for (final Error error : this.errors) {
+            if (error != null) {
+                count++;
+            }
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Checks for errors.
+     * @return true, if any record failed
+     */
+    public boolean hasErrors() {
+        return errorCount() > 0;
+    }
+
+    /**
+     * Filter.
+     * @param failed
+     *            the failed
+     * @return the records that failed, or that succeeded
+     */
+    private List<R> filter(final boolean failed) {
+
+        final List<R> filtered = new ArrayList<>();
+        for (int i = 0; i < this.errors.length; i++) {
+            if ((this.errors[i] != null) == failed) {
+                filtered.add(this.records.get(i));
+            }
+        }
+
+        return filtered;
+
+    }
+
+}
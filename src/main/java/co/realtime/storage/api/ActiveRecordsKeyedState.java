@@ -0,0 +1,137 @@
+package co.realtime.storage.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class ActiveRecordsKeyedState. Outcome of fetching records by key: the distinct keys in the order requested, each with its record, or
+ * marked as not found, or with the error of its fetch.
+ * @param <R>
+ *            the generic type
+ */
+public class ActiveRecordsKeyedState<R extends ActiveRecord> {
+
+    /** The keys. */
+    private final List<StorageKey> keys;
+
+    /** The positions, by key. */
+    private final Map<StorageKey, Integer> positions;
+
+    /** The fetches, in the order of the keys. */
+    private final ActiveRecordsBatchState<R> fetches;
+
+    /**
+     * Instantiates a new active records keyed state.
+     * @param keys
+     *            the distinct keys
+     * @param fetches
+     *            the fetches, in the order of the keys
+     */
+    public ActiveRecordsKeyedState(final List<StorageKey> keys, final ActiveRecordsBatchState<R> fetches) {
+
+        if (keys.size() != fetches.size()) {
+            throw new IllegalArgumentException("keys and fetches arguments must have the same size");
+        }
+
+        this.keys = Collections.unmodifiableList(keys);
+        this.fetches = fetches;
+        this.positions = new HashMap<>(keys.size() * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            this.positions.put(keys.get(i), Integer.valueOf(i));
+        }
+
+    }
+
+    /**
+     * Keys.
+     * @return the distinct keys, in the order requested
+     */
+    public List<StorageKey> keys() {
+        return this.keys;
+    }
+
+    /**
+     * Record.
+     * @param key
+     *            the key, a storage key or a primary key value
+     * @return the record, null if not found or failed
+     */
+    public R record(final Object key) {
+        final int position = position(key);
+        return position < 0 || this.fetches.error(position) != null ? null : this.fetches.records().get(position);
+    }
+
+    /**
+     * Checks if is not found.
+     * @param key
+     *            the key, a storage key or a primary key value
+     * @return true, if there is no record with the key
+     */
+    public boolean isNotFound(final Object key) {
+        final Error error = error(key);
+        return error != null && error.getErrorType() == ErrorTypeEnum.RESOURCE_NOT_FOUND;
+    }
+
+    /**
+     * Error.
+     * @param key
+     *            the key, a storage key or a primary key value
+     * @return the error of the fetch, null if found
+     */
+    public Error error(final Object key) {
+        final int position = position(key);
+        return position < 0 ? null : this.fetches.error(position);
+    }
+
+    /**
+     * Records.
+     * @return the records found, in the order of their keys
+     */
+    public List<R> records() {
+        return this.fetches.succeededRecords();
+    }
+
+    /**
+     * Not found keys.
+     * @return the keys without a record, in order
+     */
+    public List<StorageKey> notFoundKeys() {
+
+        final List<StorageKey> notFound = new ArrayList<>();
+        for (final StorageKey key : this.keys) {
+            if (isNotFound(key)) {
+                notFound.add(key);
+            }
+        }
+
+        return notFound;
+
+    }
+
+    /**
+     * Checks for errors.
+     * @return true, if any fetch failed other than by not finding its record
+     */
+    public boolean hasErrors() {
+        return this.fetches.errorCount() > notFoundKeys().size();
+    }
+
+    /**
+     * Position.
+     * @param key
+     *            the key
+     * @return the position of the key, -1 if not requested
+     */
+    private int position(final Object key) {
+        final Integer position = this.positions.get(StorageKey.from(key));
+        return position == null ? -1 : position.intValue();
+    }
+
+}
@@ -0,0 +1,160 @@
+package co.realtime.storage.api;
+
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class QueryCondition. The filters on a field of a query, each added to the query and pushed to the storage.
+ * @param <R>
+ *            the generic type
+ */
+public class QueryCondition<R extends ActiveRecord> {
+
+    /** The query. */
+    private final QueryRef<R> query;
+
+    /** The field name. */
+    private final String fieldName;
+
+    /**
+     * Instantiates a new query condition.
+     * @param query
+     *            the query
+     * @param fieldName
+     *            the field name
+     */
+    QueryCondition(final QueryRef<R> query, final String fieldName) {
+        this.query = query;
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * Equal.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> eq(final Object value) {
+        return filter(QueryOperatorEnum.EQ, value);
+    }
+
+    /**
+     * Not equal.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> ne(final Object value) {
+        return filter(QueryOperatorEnum.NE, value);
+    }
+
+    /**
+     * Greater than.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> gt(final Object value) {
+        return filter(QueryOperatorEnum.GT, value);
+    }
+
+    /**
+     * Greater or equal.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> ge(final Object value) {
+        return filter(QueryOperatorEnum.GE, value);
+    }
+
+    /**
+     * Lesser than.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> lt(final Object value) {
+        return filter(QueryOperatorEnum.LT, value);
+    }
+
+    /**
+     * Lesser or equal.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> le(final Object value) {
+        return filter(QueryOperatorEnum.LE, value);
+    }
+
+    /**
+     * Between, both bounds included.
+     * @param from
+     *            the lower bound
+     * @param to
+     *            the upper bound
+     * @return the query
+     */
+    public QueryRef<R> between(final Object from, final Object to) {
+        return filter(QueryOperatorEnum.BETWEEN, from, to);
+    }
+
+    /**
+     * Begins with.
+     * @param prefix
+     *            the prefix
+     * @return the query
+     */
+    public QueryRef<R> beginsWith(final String prefix) {
+        return filter(QueryOperatorEnum.BEGINS_WITH, prefix);
+    }
+
+    /**
+     * Contains.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> contains(final Object value) {
+        return filter(QueryOperatorEnum.CONTAINS, value);
+    }
+
+    /**
+     * Not contains.
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public QueryRef<R> notContains(final Object value) {
+        return filter(QueryOperatorEnum.NOT_CONTAINS, value);
+    }
+
+    /**
+     * Not null.
+     * @return the query
+     */
+    public QueryRef<R> notNull() {
+        return filter(QueryOperatorEnum.NOT_NULL);
+    }
+
+    /**
+     * Is null.
+     * @return the query
+     */
+    public QueryRef<R> isNull() {
+        return filter(QueryOperatorEnum.IS_NULL);
+    }
+
+    /**
+     * Filter.
+     * @param operator
+     *            the operator
+     * @param values
+     *            the values
+     * @return the query
+     */
+    private QueryRef<R> filter(final QueryOperatorEnum operator, final Object... values) {
+        return this.query.filter(this.fieldName, operator, values);
+    }
+
+}
@@ -0,0 +1,191 @@
+package co.realtime.storage.api;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+import co.realtime.storage.annotations.StorageKeyDescriptor;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class QueryCursor. The keys of the last record of a page, from which the next page of a query resumes. Encoded as a url safe token, so
+ * an endpoint can hand it to its clients and resume from it in another request.
+ */
+public final class QueryCursor {
+
+    /** The Constant SEPARATOR. Escaped by URLEncoder, so never part of an encoded key. */
+    private static final char SEPARATOR = '~';
+
+    /** The Constant CHARSET. */
+    private static final String CHARSET = "UTF-8";
+
+    /** The key. */
+    private final StorageKey key;
+
+    /**
+     * Instantiates a new query cursor.
+     * @param key
+     *            the stored values of the keys of the last record
+     */
+    public QueryCursor(final StorageKey key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("key argument is required");
+        }
+
+        this.key = key;
+
+    }
+
+    /**
+     * After a record.
+     * @param record
+     *            the last record of a page
+     * @return the cursor resuming after the record
+     */
+    public static QueryCursor after(final ActiveRecord record) {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(record.getClass());
+        final Object primaryKey = storedValue(plan.getPrimaryKey(), record);
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("record has no primary key");
+        }
+
+        return new QueryCursor(StorageKey.of(primaryKey, storedValue(plan.getSecondaryKey(), record)));
+
+    }
+
+    /**
+     * Stored value.
+     * @param key
+     *            the key descriptor
+     * @param record
+     *            the record
+     * @return the stored value of the key. Null if not defined
+     */
+    private static Object storedValue(final StorageKeyDescriptor key, final ActiveRecord record) {
+        return key.isDefined() ? key.getMapping().toStorage(key.get(record)) : null;
+    }
+
+    /**
+     * Gets the key.
+     * @return the stored values of the keys of the last record
+     */
+    public StorageKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Encode.
+     * @return the url safe token of this cursor
+     */
+    public String encode() {
+        return new StringBuilder(encodeValue(this.key.getPrimaryKey())).append(SEPARATOR).append(encodeValue(this.key.getSecondaryKey())).toString();
+    }
+
+    /**
+     * Decode.
+     * @param token
+     *            the token
+     * @return the query cursor
+     */
+    public static QueryCursor decode(final String token) {
+
+        final int separator = token == null ? -1 : token.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException(String.format("%s is not a query cursor", token));
+        }
+
+        final Object primaryKey = decodeValue(token.substring(0, separator));
+        if (primaryKey == null) {
+            throw new IllegalArgumentException(String.format("%s is not a query cursor", token));
+        }
+
+        return new QueryCursor(StorageKey.of(primaryKey, decodeValue(token.substring(separator + 1))));
+
+    }
+
+    /**
+     * Encode value, tagged with its type.
+     * @param value
+     *            the value
+     * @return the encoded value, empty if null
+     */
+    private static String encodeValue(final Object value) {
+
+        if (value == null) {
+            return "";
+        }
+
+        try {
+            return (value instanceof Number ? "n" : "s") + URLEncoder.encode(value.toString(), CHARSET);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /**
+     * Decode value.
+     * @param encoded
+     *            the encoded value
+     * @return the value, null if empty
+     */
+    private static Object decodeValue(final String encoded) {
+
+        if (encoded.isEmpty()) {
+            return null;
+        }
+
+        final String text;
+        try {
+            text = URLDecoder.decode(encoded.substring(1), CHARSET);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        switch (encoded.charAt(0)) {
+        case 's':
+            return text;
+        case 'n':
+            try {
+                return text.indexOf('.') < 0 && text.indexOf('E') < 0 ? (Number) Long.valueOf(text) : (Number) Double.valueOf(text);
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("%s is not a number", text), e);
+            }
+        default:
+            throw new IllegalArgumentException(String.format("%s is not a query cursor value", encoded));
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof QueryCursor && this.key.equals(((QueryCursor) obj).key);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return this.key.hashCode();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return encode();
+    }
+
+}
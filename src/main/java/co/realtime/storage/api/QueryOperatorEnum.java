@@ -0,0 +1,165 @@
+package co.realtime.storage.api;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.TableRef;
+
+/**
+ * The Enum QueryOperatorEnum. The filters of the storage, each pushed to the table ref of a query.
+ */
+public enum QueryOperatorEnum {
+
+    /** The equal. */
+    EQ("=", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.equals(name, values[0]);
+        }
+
+    },
+    /** The not equal. */
+    NE("<>", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.notEqual(name, values[0]);
+        }
+
+    },
+    /** The greater than. */
+    GT(">", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.greaterThan(name, values[0]);
+        }
+
+    },
+    /** The greater or equal. */
+    GE(">=", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.greaterEqual(name, values[0]);
+        }
+
+    },
+    /** The lesser than. */
+    LT("<", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.lesserThan(name, values[0]);
+        }
+
+    },
+    /** The lesser or equal. */
+    LE("<=", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.lesserEqual(name, values[0]);
+        }
+
+    },
+    /** The between, both bounds included. */
+    BETWEEN("between", 2) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.between(name, values[0], values[1]);
+        }
+
+    },
+    /** The begins with. */
+    BEGINS_WITH("begins with", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.beginsWith(name, values[0]);
+        }
+
+    },
+    /** The contains. */
+    CONTAINS("contains", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.contains(name, values[0]);
+        }
+
+    },
+    /** The not contains. */
+    NOT_CONTAINS("not contains", 1) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.notContains(name, values[0]);
+        }
+
+    },
+    /** The not null. */
+    NOT_NULL("is not null", 0) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.notNull(name);
+        }
+
+    },
+    /** The is null. */
+    IS_NULL("is null", 0) {
+
+        @Override
+        void apply(final TableRef ref, final String name, final ItemAttribute[] values) {
+            ref.isNull(name);
+        }
+
+    };
+
+    /** The symbol. */
+    private final String symbol;
+
+    /** The arity. */
+    private final int arity;
+
+    /**
+     * Instantiates a new query operator enum.
+     * @param symbol
+     *            the symbol
+     * @param arity
+     *            the number of values
+     */
+    private QueryOperatorEnum(final String symbol, final int arity) {
+        this.symbol = symbol;
+        this.arity = arity;
+    }
+
+    /**
+     * Gets the symbol.
+     * @return the symbol
+     */
+    public String getSymbol() {
+        return this.symbol;
+    }
+
+    /**
+     * Gets the arity.
+     * @return the number of values
+     */
+    public int getArity() {
+        return this.arity;
+    }
+
+    /**
+     * Apply the filter to the table ref.
+     * @param ref
+     *            the table ref
+     * @param name
+     *            the storage property name
+     * @param values
+     *            the stored values
+     */
+    abstract void apply(TableRef ref, String name, ItemAttribute[] values);
+
+}
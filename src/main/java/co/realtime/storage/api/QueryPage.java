@@ -0,0 +1,66 @@
+package co.realtime.storage.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class QueryPage. A page of the results of a query, and the cursor of the next page.
+ * @param <R>
+ *            the generic type
+ */
+public class QueryPage<R extends ActiveRecord> {
+
+    /** The records. */
+    private final List<R> records;
+
+    /** The next cursor. Null on the last page. */
+    private final QueryCursor nextCursor;
+
+    /**
+     * Instantiates a new query page from the results of a query limited to one record more than the page size, the extra record telling
+     * whether there is a next page.
+     * @param results
+     *            the results
+     * @param pageSize
+     *            the page size
+     */
+    public QueryPage(final List<R> results, final int pageSize) {
+
+        if (results.size() > pageSize) {
+            this.records = Collections.unmodifiableList(new ArrayList<>(results.subList(0, pageSize)));
+            this.nextCursor = pageSize == 0 ? null : QueryCursor.after(this.records.get(pageSize - 1));
+        } else {
+            this.records = Collections.unmodifiableList(new ArrayList<>(results));
+            this.nextCursor = null;
+        }
+
+    }
+
+    /**
+     * Records.
+     * @return the records of this page
+     */
+    public List<R> records() {
+        return this.records;
+    }
+
+    /**
+     * Next cursor.
+     * @return the cursor of the next page, null on the last page
+     */
+    public QueryCursor nextCursor() {
+        return this.nextCursor;
+    }
+
+    /**
+     * Checks for next.
+     * @return true, if there is a next page
+     */
+    public boolean hasNext() {
+        return this.nextCursor != null;
+    }
+
+}
@@ -0,0 +1,134 @@
+package co.realtime.storage.api;
+
+import java.util.Collections;
+import java.util.List;
+
+import co.realtime.storage.ItemAttribute;
+
+/**
+ * The Class QueryPlan. How a query reaches the storage, chosen by the QueryPlanner from its predicates and the keys of the queried table.
+ */
+public final class QueryPlan {
+
+    /** The kind. */
+    private final QueryPlanKindEnum kind;
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The primary key predicate. Null for a scan. */
+    private final QueryPredicate primaryKeyPredicate;
+
+    /** The secondary key predicates. */
+    private final List<QueryPredicate> secondaryKeyPredicates;
+
+    /** The filter predicates. */
+    private final List<QueryPredicate> filterPredicates;
+
+    /**
+     * Instantiates a new query plan.
+     * @param kind
+     *            the kind
+     * @param tableName
+     *            the table name
+     * @param primaryKeyPredicate
+     *            the primary key predicate
+     * @param secondaryKeyPredicates
+     *            the secondary key predicates
+     * @param filterPredicates
+     *            the filter predicates
+     */
+    QueryPlan(final QueryPlanKindEnum kind, final String tableName, final QueryPredicate primaryKeyPredicate, final List<QueryPredicate> secondaryKeyPredicates, final List<QueryPredicate> filterPredicates) {
+        this.kind = kind;
+        this.tableName = tableName;
+        this.primaryKeyPredicate = primaryKeyPredicate;
+        this.secondaryKeyPredicates = Collections.unmodifiableList(secondaryKeyPredicates);
+        this.filterPredicates = Collections.unmodifiableList(filterPredicates);
+    }
+
+    /**
+     * Gets the kind.
+     * @return the kind
+     */
+    public QueryPlanKindEnum getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Gets the primary key predicate.
+     * @return the equality on the primary key, null for a scan
+     */
+    public QueryPredicate getPrimaryKeyPredicate() {
+        return this.primaryKeyPredicate;
+    }
+
+    /**
+     * Gets the secondary key predicates.
+     * @return the predicates on the secondary key: its equality for a point get, its range for a key query
+     */
+    public List<QueryPredicate> getSecondaryKeyPredicates() {
+        return this.secondaryKeyPredicates;
+    }
+
+    /**
+     * Gets the filter predicates.
+     * @return the predicates filtering the items read
+     */
+    public List<QueryPredicate> getFilterPredicates() {
+        return this.filterPredicates;
+    }
+
+    /**
+     * Primary key.
+     * @return the pinned primary key, null for a scan
+     */
+    public ItemAttribute primaryKey() {
+        return this.primaryKeyPredicate == null ? null : this.primaryKeyPredicate.getValues().get(0);
+    }
+
+    /**
+     * Secondary key.
+     * @return the pinned secondary key of a point get, null otherwise
+     */
+    public ItemAttribute secondaryKey() {
+        return this.kind == QueryPlanKindEnum.POINT_GET && !this.secondaryKeyPredicates.isEmpty() ? this.secondaryKeyPredicates.get(0).getValues().get(0) : null;
+    }
+
+    /**
+     * Explain.
+     * @return the description of the plan, e.g. KEY_QUERY Entity where cnes = 1, key range cap > C1, filter name begins with Rio
+     */
+    public String explain() {
+
+        final StringBuilder text = new StringBuilder(this.kind.name()).append(' ').append(this.tableName);
+        String separator = " where ";
+
+        if (this.primaryKeyPredicate != null) {
+            text.append(separator).append(this.primaryKeyPredicate);
+            separator = ", ";
+        }
+
+        for (final QueryPredicate predicate : this.secondaryKeyPredicates) {
+            text.append(separator).append(this.kind == QueryPlanKindEnum.POINT_GET ? "" : "key range ").append(predicate);
+            separator = ", ";
+        }
+
+        for (final QueryPredicate predicate : this.filterPredicates) {
+            text.append(separator).append("filter ").append(predicate);
+            separator = ", ";
+        }
+
+        return text.toString();
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+}
@@ -0,0 +1,15 @@
+package co.realtime.storage.api;
+
+/**
+ * The Enum QueryPlanKindEnum.
+ */
+public enum QueryPlanKindEnum {
+
+    /** The point get. Every key is pinned and nothing else is filtered: a single item get. */
+    POINT_GET,
+    /** The key query. The primary key is pinned: the items of that key, optionally within a range of the secondary key. */
+    KEY_QUERY,
+    /** The scan. The primary key is not pinned: every item of the table is filtered. */
+    SCAN;
+
+}
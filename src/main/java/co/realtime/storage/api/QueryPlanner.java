@@ -0,0 +1,115 @@
+package co.realtime.storage.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import co.realtime.storage.annotations.StorageKeyDescriptor;
+import co.realtime.storage.annotations.StorageMappingPlan;
+
+/**
+ * The Class QueryPlanner. Checks the predicates of a query against the keys of its table: every key pinned by an equality, and nothing else,
+ * is a single item get; the primary key pinned is a query of the items of that key, ranged by the predicates on the secondary key; anything
+ * else is a scan.
+ */
+public final class QueryPlanner {
+
+    /**
+     * Instantiates a new query planner.
+     */
+    private QueryPlanner() {
+        // static
+    }
+
+    /**
+     * Plan.
+     * @param plan
+     *            the mapping plan of the queried class
+     * @param tableName
+     *            the table name
+     * @param predicates
+     *            the predicates of the query
+     * @param resumed
+     *            true, if the query starts after a cursor, which rules out a point get and needs the primary key pinned
+     * @return the query plan
+     * @throws IllegalStateException
+     *             if a query resumed after a cursor does not pin the primary key
+     */
+    public static QueryPlan plan(final StorageMappingPlan plan, final String tableName, final List<QueryPredicate> predicates, final boolean resumed) {
+
+        final StorageKeyDescriptor primaryKey = plan.getPrimaryKey();
+        final StorageKeyDescriptor secondaryKey = plan.getSecondaryKey();
+
+        QueryPredicate primaryKeyPredicate = null;
+        QueryPredicate secondaryKeyEquality = null;
+        final List<QueryPredicate> secondaryKeyRange = new ArrayList<>();
+        final List<QueryPredicate> filters = new ArrayList<>();
+
+        for (final QueryPredicate predicate : predicates) {
+
+            if (primaryKeyPredicate == null && predicate.getOperator() == QueryOperatorEnum.EQ && isKey(primaryKey, predicate)) {
+                primaryKeyPredicate = predicate;
+            } else if (isKey(secondaryKey, predicate) && isRange(predicate.getOperator())) {
+                if (secondaryKeyEquality == null && predicate.getOperator() == QueryOperatorEnum.EQ) {
+                    secondaryKeyEquality = predicate;
+                }
+                secondaryKeyRange.add(predicate);
+            } else {
+                filters.add(predicate);
+            }
+
+        }
+
+        // nothing to route the keys with, every predicate filters the scan
+        if (primaryKeyPredicate == null) {
+            if (resumed) {
+                // the items of a scan are not ordered by key, a key cursor would skip whole primary keys
+                throw new IllegalStateException(String.format("A cursor only resumes the items of a primary key, pin %s with an equality", primaryKey.getName()));
+            }
+            return new QueryPlan(QueryPlanKindEnum.SCAN, tableName, null, new ArrayList<QueryPredicate>(0), new ArrayList<>(predicates));
+        }
+
+        final boolean pinned = secondaryKey.isDefined() ? secondaryKeyEquality != null && secondaryKeyRange.size() == 1 : secondaryKeyRange.isEmpty();
+        if (pinned && filters.isEmpty() && !resumed) {
+            return new QueryPlan(QueryPlanKindEnum.POINT_GET, tableName, primaryKeyPredicate, secondaryKeyRange, filters);
+        }
+
+        return new QueryPlan(QueryPlanKindEnum.KEY_QUERY, tableName, primaryKeyPredicate, secondaryKeyRange, filters);
+
+    }
+
+    /**
+     * Checks if the predicate is on the key.
+     * @param key
+     *            the key
+     * @param predicate
+     *            the predicate
+     * @return true, if is on the key
+     */
+    private static boolean isKey(final StorageKeyDescriptor key, final QueryPredicate predicate) {
+        return key.isDefined() && key.getMapping() == predicate.getMapping();
+    }
+
+    /**
+     * Checks if the operator bounds a range of the sorted secondary key.
+     * @param operator
+     *            the operator
+     * @return true, if is a range
+     */
+    private static boolean isRange(final QueryOperatorEnum operator) {
+
+        switch (operator) {
+        case EQ:
+        case GT:
+        case GE:
+        case LT:
+        case LE:
+        case BETWEEN:
+        case BEGINS_WITH:
+            return true;
+        default:
+            return false;
+        }
+
+    }
+
+}
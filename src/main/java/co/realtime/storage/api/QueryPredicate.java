@@ -0,0 +1,139 @@
+package co.realtime.storage.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.TableRef;
+import co.realtime.storage.annotations.StorageAnnotationsManager;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StoragePropertyKindEnum;
+import co.realtime.storage.annotations.StoragePropertyMapping;
+
+/**
+ * The Class QueryPredicate. An immutable filter on a storage property of a query, its values converted as the property is stored.
+ */
+public final class QueryPredicate {
+
+    /** The mapping. */
+    private final StoragePropertyMapping mapping;
+
+    /** The operator. */
+    private final QueryOperatorEnum operator;
+
+    /** The stored values. */
+    private final ItemAttribute[] values;
+
+    /**
+     * Instantiates a new query predicate.
+     * @param mapping
+     *            the mapping
+     * @param operator
+     *            the operator
+     * @param values
+     *            the stored values
+     */
+    private QueryPredicate(final StoragePropertyMapping mapping, final QueryOperatorEnum operator, final ItemAttribute[] values) {
+        this.mapping = mapping;
+        this.operator = operator;
+        this.values = values;
+    }
+
+    /**
+     * Of a field of a planned class.
+     * @param plan
+     *            the mapping plan of the queried class
+     * @param fieldName
+     *            the field name, or else the storage property name
+     * @param operator
+     *            the operator
+     * @param fieldValues
+     *            the values, of the type of the field
+     * @return the query predicate
+     */
+    public static QueryPredicate of(final StorageMappingPlan plan, final String fieldName, final QueryOperatorEnum operator, final Object... fieldValues) {
+
+        StoragePropertyMapping mapping = plan.mappingOfField(fieldName);
+        if (mapping == null) {
+            mapping = plan.mapping(fieldName);
+        }
+
+        if (mapping == null || (mapping.getKind() != StoragePropertyKindEnum.SIMPLE && mapping.getKind() != StoragePropertyKindEnum.ENUM)) {
+            throw new IllegalArgumentException(String.format("%s is not a queryable storage property of %s", fieldName, plan.getType().getSimpleName()));
+        }
+
+        if (fieldValues.length != operator.getArity()) {
+            throw new IllegalArgumentException(String.format("%s takes %d values", operator, Integer.valueOf(operator.getArity())));
+        }
+
+        final ItemAttribute[] storedValues = new ItemAttribute[fieldValues.length];
+        for (int i = 0; i < fieldValues.length; i++) {
+            storedValues[i] = StorageAnnotationsManager.toItemAttribute(mapping, fieldValues[i]);
+            if (storedValues[i] == null) {
+                throw new IllegalArgumentException(String.format("%s %s needs a value, isNull matches the missing ones", mapping.getName(), operator.getSymbol()));
+            }
+        }
+
+        return new QueryPredicate(mapping, operator, storedValues);
+
+    }
+
+    /**
+     * Apply to the table ref of a query.
+     * @param ref
+     *            the table ref
+     */
+    void applyTo(final TableRef ref) {
+        this.operator.apply(ref, this.mapping.getName(), this.values);
+    }
+
+    /**
+     * Gets the mapping.
+     * @return the mapping of the filtered property
+     */
+    public StoragePropertyMapping getMapping() {
+        return this.mapping;
+    }
+
+    /**
+     * Gets the name.
+     * @return the storage property name
+     */
+    public String getName() {
+        return this.mapping.getName();
+    }
+
+    /**
+     * Gets the operator.
+     * @return the operator
+     */
+    public QueryOperatorEnum getOperator() {
+        return this.operator;
+    }
+
+    /**
+     * Gets the values.
+     * @return the stored values
+     */
+    public List<ItemAttribute> getValues() {
+        return Collections.unmodifiableList(Arrays.asList(this.values));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder text = new StringBuilder(this.mapping.getName()).append(' ').append(this.operator.getSymbol());
+        for (int i = 0; i < this.values.length; i++) {
+            text.append(i == 0 ? " " : " and ").append(this.values[i].get());
+        }
+
+        return text.toString();
+
+    }
+
+}
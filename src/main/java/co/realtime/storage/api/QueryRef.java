@@ -1,9 +1,31 @@
 package co.realtime.storage.api;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.ItemAttribute;
 import co.realtime.storage.ItemSnapshot;
 import co.realtime.storage.TableRef;
+import co.realtime.storage.annotations.StorageKeyDescriptor;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.async.ActiveRecordStream;
 import co.realtime.storage.async.ActiveRecordsCollectionStateFuture;
+import co.realtime.storage.async.StorageDeadlines;
+import co.realtime.storage.async.StoragePromise;
+import co.realtime.storage.async.StorageRequestKindEnum;
+import co.realtime.storage.async.StorageThrottling;
+import co.realtime.storage.async.ThrottledRequest;
 import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
 import co.realtime.storage.ext.OnError;
 import co.realtime.storage.ext.OnItemSnapshot;
 import co.realtime.storage.ext.StorageException;
@@ -19,9 +41,30 @@ public class QueryRef<R extends ActiveRecord> {
     /** The ref. */
     private final TableRef ref;
 
+    /** The table name. */
+    private final String tableName;
+
     /** The klass. */
     private final Class<R> klass;
 
+    /** The mapping executor. Null maps the results on the thread delivering them. */
+    private Executor mappingExecutor = null;
+
+    /** The predicates. */
+    private final List<QueryPredicate> predicates = new ArrayList<>();
+
+    /** The limit. Null returns every result. */
+    private Long limit = null;
+
+    /** The descending. Null keeps the order of the table ref. */
+    private Boolean descending = null;
+
+    /** The cursor. Null starts from the first result. */
+    private QueryCursor cursor = null;
+
+    /** The query plan. Set on the first execution, once the filters, the limit and the cursor were pushed to the table ref. */
+    private volatile QueryPlan queryPlan = null;
+
     /**
      * Instantiates a new query ref.
      * @param concreteActiveRecordClass
@@ -37,6 +80,7 @@ public class QueryRef<R extends ActiveRecord> {
         final R instance = concreteActiveRecordClass.newInstance();
         this.klass = (Class<R>) instance.getClass();
         this.ref = instance.getTableRef();
+        this.tableName = instance.getTableName();
     }
 
     /**
@@ -47,6 +91,286 @@ public class QueryRef<R extends ActiveRecord> {
         return this.ref;
     }
 
+    /**
+     * Where, filtering on a field.
+     * @param fieldName
+     *            the field name, or else the storage property name
+     * @return the conditions on the field
+     */
+    public QueryCondition<R> where(final String fieldName) {
+        return new QueryCondition<>(this, fieldName);
+    }
+
+    /**
+     * Filter on a field, converting the values as the field is stored. Every filter is pushed to the storage, none is applied to the mapped
+     * records.
+     * @param fieldName
+     *            the field name, or else the storage property name
+     * @param operator
+     *            the operator
+     * @param values
+     *            the values, of the type of the field
+     * @return this query
+     */
+    public QueryRef<R> filter(final String fieldName, final QueryOperatorEnum operator, final Object... values) {
+
+        if (this.queryPlan != null) {
+            throw new IllegalStateException("The query was already executed");
+        }
+
+        this.predicates.add(QueryPredicate.of(StorageMappingRegistry.planOf(this.klass), fieldName, operator, values));
+        return this;
+
+    }
+
+    /**
+     * Predicates.
+     * @return the predicates of the filters, in the order they were added
+     */
+    public List<QueryPredicate> predicates() {
+        return Collections.unmodifiableList(this.predicates);
+    }
+
+    /**
+     * Limit the number of results. The limit is pushed to the storage, and the results beyond it are not mapped.
+     * @param maxRecords
+     *            the maximum number of records
+     * @return this query
+     */
+    public QueryRef<R> limit(final long maxRecords) {
+
+        if (maxRecords < 1) {
+            throw new IllegalArgumentException("maxRecords must be positive");
+        }
+
+        this.limit = Long.valueOf(maxRecords);
+        return this;
+
+    }
+
+    /**
+     * Ascending order of the secondary key, the default of the storage.
+     * @return this query
+     */
+    public QueryRef<R> asc() {
+        this.descending = Boolean.FALSE;
+        return this;
+    }
+
+    /**
+     * Descending order of the secondary key. A cursor of a descending query resumes below its keys.
+     * @return this query
+     */
+    public QueryRef<R> desc() {
+        this.descending = Boolean.TRUE;
+        return this;
+    }
+
+    /**
+     * Start after a cursor, filtering out the items of the pinned primary key up to the secondary key of the cursor. The primary key must be
+     * pinned with an equality: the items of a scan are not ordered by key.
+     * @param queryCursor
+     *            the cursor, null starts from the first result
+     * @return this query
+     */
+    public QueryRef<R> startAfter(final QueryCursor queryCursor) {
+        this.cursor = queryCursor;
+        return this;
+    }
+
+    /**
+     * Gets a page of the items of a primary key, pinned with an equality, requesting one record more than the page size to know whether there
+     * is a next page. The query must not be executed again: a page is requested with its own query, started after the cursor of the previous
+     * page.
+     * @param pageSize
+     *            the page size
+     * @return the promise of the page
+     */
+    public StoragePromise<QueryPage<R>> getPage(final int pageSize) {
+
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+
+        if (plan().getKind() == QueryPlanKindEnum.SCAN) {
+            throw new IllegalStateException("Pages resume the items of a primary key, pin it with an equality");
+        }
+
+        final StoragePromise<QueryPage<R>> promise = new StoragePromise<>();
+        limit(pageSize + 1L);
+
+        final ActiveRecordsCollectionStateFuture<R> future = getResults(new OnSuccessCollectionCommand<R>() {
+
+            @Override
+            public void execute(final List<R> records) {
+                promise.complete(new QueryPage<>(records, pageSize));
+            }
+
+        }, new OnErrorCommand() {
+
+            @Override
+            public void execute(final Error error) {
+                promise.fail(error);
+            }
+
+        });
+
+        // a failed or cancelled page stops mapping the results
+        promise.whenComplete(new Runnable() {
+
+            @Override
+            public void run() {
+                if (promise.isFailed()) {
+                    future.cancel(false);
+                }
+            }
+
+        });
+
+        return promise;
+
+    }
+
+    /**
+     * Plan the query from its predicates and the keys of its table. Filters added to the table ref directly are not seen by the planner.
+     * @return the query plan
+     */
+    public QueryPlan plan() {
+
+        final QueryPlan preparedPlan = this.queryPlan;
+        if (preparedPlan != null) {
+            return preparedPlan;
+        }
+
+        return QueryPlanner.plan(StorageMappingRegistry.planOf(this.klass), this.tableName, this.predicates, this.cursor != null);
+
+    }
+
+    /**
+     * Explain.
+     * @return the description of the plan of the query
+     */
+    public String explain() {
+        return plan().explain();
+    }
+
+    /**
+     * Prepare, planning the query and pushing its filters, order, limit and cursor to the table ref before the first execution. A point get
+     * reads its item directly, and pushes nothing.
+     * @return the query plan
+     */
+    private synchronized QueryPlan prepare() {
+
+        if (this.queryPlan != null) {
+            return this.queryPlan;
+        }
+
+        final QueryPlan preparedPlan = plan();
+        this.queryPlan = preparedPlan;
+        if (preparedPlan.getKind() == QueryPlanKindEnum.POINT_GET) {
+            return preparedPlan;
+        }
+
+        for (final QueryPredicate predicate : this.predicates) {
+            predicate.applyTo(this.ref);
+        }
+
+        if (this.descending != null) {
+            if (this.descending.booleanValue()) {
+                this.ref.desc();
+            } else {
+                this.ref.asc();
+            }
+        }
+
+        if (this.limit != null) {
+            this.ref.limit(this.limit);
+        }
+
+        if (this.cursor != null) {
+
+            // a key query, the planner rejects the resumed scans: the items of the pinned primary key are ordered by secondary key
+            final StorageMappingPlan plan = StorageMappingRegistry.planOf(this.klass);
+            final boolean bySecondaryKey = plan.getSecondaryKey().isDefined();
+            final String keyName = bySecondaryKey ? plan.getSecondaryKey().getName() : plan.getPrimaryKey().getName();
+            final Object keyValue = bySecondaryKey ? this.cursor.getKey().getSecondaryKey() : this.cursor.getKey().getPrimaryKey();
+
+            if (keyName == null || keyValue == null) {
+                throw new IllegalArgumentException(String.format("%s is not a cursor of %s", this.cursor, this.klass.getSimpleName()));
+            }
+
+            if (Boolean.TRUE.equals(this.descending)) {
+                this.ref.lesserThan(keyName, StorageKeyDescriptor.toItemAttribute(keyValue));
+            } else {
+                this.ref.greaterThan(keyName, StorageKeyDescriptor.toItemAttribute(keyValue));
+            }
+
+        }
+
+        return preparedPlan;
+
+    }
+
+    /**
+     * Execute the query as planned, delivering the snapshots of its results and then null.
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error
+     */
+    private void execute(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+
+        final QueryPlan preparedPlan = prepare();
+
+        if (preparedPlan.getKind() != QueryPlanKindEnum.POINT_GET) {
+
+            StorageThrottling.INSTANCE.execute(this.tableName, StorageRequestKindEnum.QUERY, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onSnapshot, final OnError onFailure) {
+                    QueryRef.this.ref.getItems(onSnapshot, onFailure);
+                }
+
+            }, onItemSnapshot, onError);
+            return;
+
+        }
+
+        final ItemAttribute primaryKey = preparedPlan.primaryKey();
+        final ItemAttribute secondaryKey = preparedPlan.secondaryKey();
+
+        StorageThrottling.INSTANCE.execute(this.tableName, StorageRequestKindEnum.READ, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onSnapshot, final OnError onFailure) {
+                QueryRef.this.ref.item(primaryKey, secondaryKey).get(onSnapshot, onFailure);
+            }
+
+        }, new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+
+                // the item, if found, then the end of the results
+                if (itemSnapshot != null && itemSnapshot.val() != null && !itemSnapshot.val().isEmpty()) {
+                    onItemSnapshot.run(itemSnapshot);
+                }
+                onItemSnapshot.run(null);
+
+            }
+
+        }, onError);
+
+    }
+
+    /**
+     * Max records.
+     * @return the limit, or Long.MAX_VALUE when there is none
+     */
+    private long maxRecords() {
+        return this.limit == null ? Long.MAX_VALUE : this.limit.longValue();
+    }
+
     /**
      * Gets the results.
      * @param onSuccess
@@ -57,14 +381,28 @@ public class QueryRef<R extends ActiveRecord> {
      */
     public ActiveRecordsCollectionStateFuture<R> getResults(final OnSuccessCollectionCommand<? extends ActiveRecord> onSuccess, final OnErrorCommand onError) {
 
-        final ActiveRecordsCollectionStateFuture<R> future = (ActiveRecordsCollectionStateFuture<R>) new ActiveRecordsCollectionStateFuture<>(onSuccess, onError);
+        final ActiveRecordsCollectionStateFuture<R> future = StorageDeadlines.INSTANCE.applyDefault((ActiveRecordsCollectionStateFuture<R>) new ActiveRecordsCollectionStateFuture<>(onSuccess, onError));
         final Class<R> concreteRecordClass = this.klass;
+        final StorageMappingPlan concreteRecordPlan = StorageMappingRegistry.planOf(concreteRecordClass);
+
+        if (this.mappingExecutor != null) {
+            getResultsMappedInParallel(future, this.mappingExecutor);
+            return future;
+        }
 
-        this.ref.getItems(new OnItemSnapshot() {
+        final long maxRecords = maxRecords();
+        final AtomicLong received = new AtomicLong(0L);
+
+        execute(new OnItemSnapshot() {
 
             @Override
             public void run(final ItemSnapshot itemSnapshot) {
 
+                // cancelled or expired -- the remaining snapshots are not mapped
+                if (future.isSettled()) {
+                    return;
+                }
+
                 // all records have been sent -- finalizing process
                 if (itemSnapshot == null) {
 
@@ -77,11 +415,24 @@ public class QueryRef<R extends ActiveRecord> {
                 } else {
 
                     try {
-                        final R record = concreteRecordClass.newInstance();
-                        record.mapAttributesFromItemSnapshot(itemSnapshot);
-                        future.addRecord(record);
-                    } catch (InstantiationException | IllegalAccessException e) {
-                        // TODO
+                        future.addRecord(mapRecord(concreteRecordClass, concreteRecordPlan, itemSnapshot));
+                    } catch (final RuntimeException e) {
+                        // a snapshot the record can not map fails the query, instead of leaving the record out
+                        try {
+                            future.processError(new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.INVALID_TYPE, e.toString()));
+                        } catch (final InterruptedException interrupted) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return;
+                    }
+
+                    // limit reached -- the remaining snapshots are ignored
+                    if (received.incrementAndGet() >= maxRecords) {
+                        try {
+                            future.processRecordsAsync();
+                        } catch (final InterruptedException e) {
+                            // TODO
+                        }
                     }
 
                 }
@@ -106,4 +457,257 @@ public class QueryRef<R extends ActiveRecord> {
         return future;
 
     }
+
+    /**
+     * Map the snapshots of the results in parallel. Each record keeps the position of its snapshot, and the future completes once every record
+     * is mapped.
+     * @param executor
+     *            the executor mapping the snapshots, null maps them on the thread delivering the results
+     * @return this query
+     */
+    public QueryRef<R> mapInParallel(final Executor executor) {
+        this.mappingExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Gets the results mapped in parallel.
+     * @param future
+     *            the future
+     * @param executor
+     *            the executor
+     */
+    private void getResultsMappedInParallel(final ActiveRecordsCollectionStateFuture<R> future, final Executor executor) {
+
+        final Class<R> concreteRecordClass = this.klass;
+        final StorageMappingPlan concreteRecordPlan = StorageMappingRegistry.planOf(concreteRecordClass);
+
+        // one for each mapping task, plus one for the end of the results
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final AtomicBoolean ended = new AtomicBoolean(false);
+        final long maxRecords = maxRecords();
+        final AtomicLong received = new AtomicLong(0L);
+
+        execute(new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+
+                // cancelled or expired -- the remaining snapshots are not mapped
+                if (future.isSettled()) {
+                    return;
+                }
+
+                // all records have been sent, or the limit reached -- finalizing once mapped
+                if (itemSnapshot == null) {
+                    if (ended.compareAndSet(false, true)) {
+                        finishMapping(future, pending, failed);
+                    }
+                    return;
+                }
+
+                if (ended.get()) {
+                    return;
+                }
+
+                final int position = future.reserveRecord();
+                pending.incrementAndGet();
+
+                final Runnable mapping = mappingTask(future, position, concreteRecordClass, concreteRecordPlan, itemSnapshot, pending, failed);
+
+                try {
+                    executor.execute(mapping);
+                } catch (final RejectedExecutionException e) {
+                    mapping.run();
+                }
+
+                if (received.incrementAndGet() >= maxRecords && ended.compareAndSet(false, true)) {
+                    finishMapping(future, pending, failed);
+                }
+
+            }
+        }, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+
+                failed.set(true);
+                try {
+                    final String code = errorCode == null ? null : errorCode.toString();
+                    future.processError(new Error(code, errorMessage));
+                } catch (final InterruptedException e) {
+                    // TODO
+                }
+
+            }
+
+        });
+
+    }
+
+    /**
+     * Mapping task of a snapshot. A snapshot the record can not map fails the future, instead of leaving its position empty.
+     * @param <R>
+     *            the generic type
+     * @param future
+     *            the future
+     * @param position
+     *            the position reserved for the record
+     * @param concreteRecordClass
+     *            the concrete record class
+     * @param concreteRecordPlan
+     *            the concrete record plan
+     * @param itemSnapshot
+     *            the item snapshot
+     * @param pending
+     *            the pending tasks
+     * @param failed
+     *            the failed
+     * @return the mapping task
+     */
+    static <R extends ActiveRecord> Runnable mappingTask(final ActiveRecordsCollectionStateFuture<R> future, final int position, final Class<R> concreteRecordClass,
+            final StorageMappingPlan concreteRecordPlan, final ItemSnapshot itemSnapshot, final AtomicInteger pending, final AtomicBoolean failed) {
+
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (!future.isSettled()) {
+                        future.setRecord(position, mapRecord(concreteRecordClass, concreteRecordPlan, itemSnapshot));
+                    }
+                } catch (final RuntimeException e) {
+                    failed.set(true);
+                    try {
+                        future.processError(new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.INVALID_TYPE, e.toString()));
+                    } catch (final InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                } finally {
+                    finishMapping(future, pending, failed);
+                }
+            }
+
+        };
+
+    }
+
+    /**
+     * Finish a mapping task, completing the future after the last one.
+     * @param <R>
+     *            the generic type
+     * @param future
+     *            the future
+     * @param pending
+     *            the pending tasks
+     * @param failed
+     *            the failed
+     */
+    static <R extends ActiveRecord> void finishMapping(final ActiveRecordsCollectionStateFuture<R> future, final AtomicInteger pending, final AtomicBoolean failed) {
+
+        if (pending.decrementAndGet() == 0 && !failed.get()) {
+            try {
+                future.processRecordsAsync();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+    /**
+     * Map record.
+     * @param <R>
+     *            the generic type
+     * @param concreteRecordClass
+     *            the concrete record class
+     * @param concreteRecordPlan
+     *            the concrete record plan
+     * @param itemSnapshot
+     *            the item snapshot
+     * @return the record
+     * @throws IllegalStateException
+     *             if the record can not be instantiated
+     */
+    private static <R extends ActiveRecord> R mapRecord(final Class<R> concreteRecordClass, final StorageMappingPlan concreteRecordPlan, final ItemSnapshot itemSnapshot) {
+
+        try {
+            final R record = concreteRecordClass.cast(concreteRecordPlan.newInstance());
+            record.mapAttributesFromItemSnapshot(itemSnapshot);
+            return record;
+        } catch (final InstantiationException e) {
+            throw new IllegalStateException("Can not instantiate " + concreteRecordClass.getName(), e);
+        }
+
+    }
+
+    /**
+     * Stream the results, with the default buffer size.
+     * @return the stream of records
+     */
+    public ActiveRecordStream<R> stream() {
+        return stream(ActiveRecordStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Stream the results. Records are mapped one at a time as they are consumed, instead of collected into a list. The default deadline of
+     * the storage operations applies.
+     * @param bufferSize
+     *            the maximum number of results held until consumed
+     * @return the stream of records
+     */
+    public ActiveRecordStream<R> stream(final int bufferSize) {
+
+        final ActiveRecordStream<R> stream = new ActiveRecordStream<>(this.klass, bufferSize).withDeadline(StorageDeadlines.INSTANCE.getDefaultTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        final long maxRecords = maxRecords();
+        final AtomicLong received = new AtomicLong(0L);
+
+        execute(new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+
+                // closed, or the limit reached
+                if (stream.isClosed() || received.get() >= maxRecords) {
+                    return;
+                }
+
+                try {
+                    // all records have been sent
+                    if (itemSnapshot == null) {
+                        stream.processEnd();
+                    } else {
+                        stream.addSnapshot(itemSnapshot);
+                        if (received.incrementAndGet() >= maxRecords) {
+                            stream.processEnd();
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+            }
+
+        }, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+
+                try {
+                    final String code = errorCode == null ? null : errorCode.toString();
+                    stream.processError(new Error(code, errorMessage));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+            }
+
+        });
+
+        return stream;
+
+    }
+
 }
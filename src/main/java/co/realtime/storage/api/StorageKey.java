@@ -0,0 +1,118 @@
+package co.realtime.storage.api;
+
+/**
+ * The Class StorageKey. The primary key, and optionally the secondary key, of a record to fetch.
+ */
+public final class StorageKey {
+
+    /** The primary key. */
+    private final Object primaryKey;
+
+    /** The secondary key. Null if the table has no secondary key. */
+    private final Object secondaryKey;
+
+    /**
+     * Instantiates a new storage key.
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key
+     */
+    private StorageKey(final Object primaryKey, final Object secondaryKey) {
+
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("primaryKey argument is required");
+        }
+
+        this.primaryKey = primaryKey;
+        this.secondaryKey = secondaryKey;
+
+    }
+
+    /**
+     * Of a primary key.
+     * @param primaryKey
+     *            the primary key
+     * @return the storage key
+     */
+    public static StorageKey of(final Object primaryKey) {
+        return new StorageKey(primaryKey, null);
+    }
+
+    /**
+     * Of a primary and a secondary key.
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key
+     * @return the storage key
+     */
+    public static StorageKey of(final Object primaryKey, final Object secondaryKey) {
+        return new StorageKey(primaryKey, secondaryKey);
+    }
+
+    /**
+     * From a storage key, or a primary key value.
+     * @param key
+     *            the key
+     * @return the storage key
+     */
+    public static StorageKey from(final Object key) {
+        return key instanceof StorageKey ? (StorageKey) key : of(key);
+    }
+
+    /**
+     * Gets the primary key.
+     * @return the primary key
+     */
+    public Object getPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    /**
+     * Gets the secondary key.
+     * @return the secondary key, null if none
+     */
+    public Object getSecondaryKey() {
+        return this.secondaryKey;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.primaryKey.hashCode() + (this.secondaryKey == null ? 0 : this.secondaryKey.hashCode());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof StorageKey)) {
+            return false;
+        }
+
+        final StorageKey other = (StorageKey) obj;
+        return this.primaryKey.equals(other.primaryKey) && (this.secondaryKey == null ? other.secondaryKey == null : this.secondaryKey.equals(other.secondaryKey));
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.secondaryKey == null ? String.valueOf(this.primaryKey) : this.primaryKey + "/" + this.secondaryKey;
+    }
+
+}
@@ -0,0 +1,432 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import co.realtime.storage.exceptions.Error;
+
+/**
+ * The Class AbstractStorageFuture. Lock free completion shared by the storage futures: the outcome is published once with a compare and set,
+ * and the waiting threads and completion callbacks are kept in a single lock free stack, released by the completing thread. The outcome is
+ * settled first, so a completion waiting for its callback to run can not be overtaken by a cancellation or a deadline, and the storage
+ * callbacks arriving after either are ignored.
+ * @param <V>
+ *            the generic type
+ */
+public abstract class AbstractStorageFuture<V> implements Future<V> {
+
+    /** The Constant CANCELLED. Outcome of a cancelled future. */
+    private static final Object CANCELLED = new Object();
+
+    /** The Constant RELEASED. Head of the stack once the waiters were released. */
+    private static final Node RELEASED = new Node(null, null);
+
+    /** The Constant SETTLED. */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<AbstractStorageFuture> SETTLED = AtomicIntegerFieldUpdater.newUpdater(AbstractStorageFuture.class, "settled");
+
+    /** The Constant OUTCOME. */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractStorageFuture, Object> OUTCOME = AtomicReferenceFieldUpdater.newUpdater(AbstractStorageFuture.class, Object.class, "outcome");
+
+    /** The Constant WAITERS. */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractStorageFuture, Node> WAITERS = AtomicReferenceFieldUpdater.newUpdater(AbstractStorageFuture.class, Node.class, "waiters");
+
+    /** The settled. 1 once the outcome is decided, possibly before it is published. */
+    private volatile int settled;
+
+    /** The outcome. Null while running. */
+    private volatile Object outcome;
+
+    /** The waiters. Threads blocked on get and completion callbacks, most recent first. */
+    private volatile Node waiters;
+
+    /**
+     * Complete with an outcome.
+     * @param completionOutcome
+     *            the outcome, not null
+     * @return true, if this call completed the future
+     */
+    protected final boolean completeWith(final Object completionOutcome) {
+
+        if (!settle()) {
+            return false;
+        }
+
+        publish(completionOutcome);
+        return true;
+
+    }
+
+    /**
+     * Settle the future, deciding its outcome before it is published.
+     * @return true, if this call settled the future. False if it was already completed, cancelled or expired
+     */
+    protected final boolean settle() {
+        return SETTLED.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Publish the outcome of a settled future, releasing the waiters.
+     * @param completionOutcome
+     *            the outcome, not null
+     */
+    protected final void publish(final Object completionOutcome) {
+
+        if (completionOutcome == null) {
+            throw new IllegalArgumentException("completionOutcome argument can not be null");
+        }
+
+        if (OUTCOME.compareAndSet(this, null, completionOutcome)) {
+            release();
+        }
+
+    }
+
+    /**
+     * Expire, when the deadline of the future passes before it is settled.
+     * @param timeoutError
+     *            the timeout error
+     * @return true, if this call completed the future with the error
+     */
+    protected abstract boolean expire(Error timeoutError);
+
+    /**
+     * With deadline. The future fails with a timeout error unless settled within the timeout, and the storage callbacks arriving later are
+     * ignored. The earliest of several deadlines applies.
+     * @param timeout
+     *            the timeout
+     * @param unit
+     *            the unit
+     * @return this future
+     */
+    public AbstractStorageFuture<V> withDeadline(final long timeout, final TimeUnit unit) {
+        StorageDeadlines.INSTANCE.schedule(this, unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Checks if is settled.
+     * @return true, if the outcome is decided: completed, cancelled or expired, possibly with the callbacks still running
+     */
+    public boolean isSettled() {
+        return this.settled != 0;
+    }
+
+    /**
+     * Pending waiters.
+     * @return the number of threads waiting for the outcome and of completion callbacks not run yet
+     */
+    int pendingWaiters() {
+
+        int count = 0;
+        for (Node node = this.waiters; node != null && node != RELEASED; node = node.next) {
+            if (node.thread != null || node.callback != null) {
+                count++;
+            }
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Outcome.
+     * @return the outcome. Null while running
+     */
+    protected final Object outcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Report the outcome to get.
+     * @param completionOutcome
+     *            the outcome, neither null nor cancelled
+     * @return the value
+     * @throws ExecutionException
+     *             if the outcome is a failure
+     */
+    protected abstract V report(Object completionOutcome) throws ExecutionException;
+
+    /**
+     * When complete, run the callback on the completing thread, or immediately if already complete. Any number of callbacks can be added.
+     * @param callback
+     *            the callback
+     */
+    public final void whenComplete(final Runnable callback) {
+
+        if (!push(new Node(null, callback))) {
+            runCallback(callback);
+        }
+
+    }
+
+    /**
+     * Cancel. The completion callbacks added with whenComplete run, as they do for any outcome, so the callbacks of a promise get its cancelled
+     * error; the success and error commands of a record operation are not run, and the storage callbacks arriving later are ignored.
+     * @param mayInterruptIfRunning
+     *            ignored, the storage requests can not be interrupted
+     * @return true, if cancelled by this call
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return completeWith(CANCELLED);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.Future#isCancelled()
+     */
+    @Override
+    public boolean isCancelled() {
+        return this.outcome == CANCELLED;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.Future#isDone()
+     */
+    @Override
+    public boolean isDone() {
+        return this.outcome != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.Future#get()
+     */
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+
+        try {
+            return reportOutcome(awaitOutcome(false, 0L));
+        } catch (final TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return reportOutcome(awaitOutcome(true, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Report outcome.
+     * @param completionOutcome
+     *            the outcome
+     * @return the value
+     * @throws ExecutionException
+     *             if the outcome is a failure
+     */
+    private V reportOutcome(final Object completionOutcome) throws ExecutionException {
+
+        if (completionOutcome == CANCELLED) {
+            throw new CancellationException();
+        }
+
+        return report(completionOutcome);
+
+    }
+
+    /**
+     * Await outcome.
+     * @param timed
+     *            the timed
+     * @param timeoutNanos
+     *            the timeout in nanoseconds
+     * @return the outcome
+     * @throws InterruptedException
+     *             the interrupted exception
+     * @throws TimeoutException
+     *             the timeout exception
+     */
+    private Object awaitOutcome(final boolean timed, final long timeoutNanos) throws InterruptedException, TimeoutException {
+
+        final long deadline = timed ? System.nanoTime() + timeoutNanos : 0L;
+        Node node = null;
+
+        for (;;) {
+
+            final Object completionOutcome = this.outcome;
+            if (completionOutcome != null) {
+                return completionOutcome;
+            }
+
+            if (node == null) {
+                node = new Node(Thread.currentThread(), null);
+                if (!push(node)) {
+                    // released meanwhile, the outcome is set
+                    continue;
+                }
+            }
+
+            if (Thread.interrupted()) {
+                abandon(node);
+                throw new InterruptedException();
+            }
+
+            if (timed) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    abandon(node);
+                    throw new TimeoutException();
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+
+        }
+
+    }
+
+    /**
+     * Push a node on the waiters stack.
+     * @param node
+     *            the node
+     * @return true, if pushed. False if the waiters were already released
+     */
+    private boolean push(final Node node) {
+
+        for (;;) {
+            final Node head = this.waiters;
+            if (head == RELEASED) {
+                return false;
+            }
+            node.next = head;
+            if (WAITERS.compareAndSet(this, head, node)) {
+                return true;
+            }
+        }
+
+    }
+
+    /**
+     * Abandon a waiter that timed out or was interrupted, unlinking it and any other abandoned waiter from the stack, so repeated timed gets of
+     * a future that never completes do not grow it.
+     * @param node
+     *            the node
+     */
+    private void abandon(final Node node) {
+
+        node.thread = null;
+
+        retry: for (;;) {
+
+            Node previous = null;
+            Node current = this.waiters;
+
+            while (current != null && current != RELEASED) {
+
+                final Node next = current.next;
+
+                if (current.thread != null || current.callback != null) {
+                    previous = current;
+                } else if (previous != null) {
+                    previous.next = next;
+                    if (previous.thread == null && previous.callback == null) {
+                        // the previous waiter was abandoned meanwhile
+                        continue retry;
+                    }
+                } else if (!WAITERS.compareAndSet(this, current, next)) {
+                    continue retry;
+                }
+
+                current = next;
+
+            }
+
+            return;
+
+        }
+
+    }
+
+    /**
+     * Release the waiters, unparking the threads and running the callbacks in the order they were added.
+     */
+    private void release() {
+
+        final Node head = WAITERS.getAndSet(this, RELEASED);
+        if (head == null) {
+            return;
+        }
+
+        // the stack is read without relinking it, an abandoned waiter may still be unlinking itself
+        final List<Node> stack = new ArrayList<>(4);
+        for (Node node = head; node != null; node = node.next) {
+            stack.add(node);
+        }
+
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            final Node current = stack.get(i);
+            final Thread thread = current.thread;
+            if (thread != null) {
+                current.thread = null;
+                LockSupport.unpark(thread);
+            }
+            if (current.callback != null) {
+                runCallback(current.callback);
+            }
+        }
+
+    }
+
+    /**
+     * Run callback.
+     * @param callback
+     *            the callback
+     */
+    private static void runCallback(final Runnable callback) {
+
+        try {
+            callback.run();
+        } catch (final RuntimeException e) {
+            StorageCallbackExecutor.INSTANCE.handleException(e);
+        }
+
+    }
+
+    /**
+     * The Class Node. A waiting thread or a completion callback.
+     */
+    private static final class Node {
+
+        /** The thread. Null once released or abandoned. */
+        private volatile Thread thread;
+
+        /** The callback. */
+        private final Runnable callback;
+
+        /** The next. */
+        private volatile Node next;
+
+        /**
+         * Instantiates a new node.
+         * @param thread
+         *            the thread
+         * @param callback
+         *            the callback
+         */
+        Node(final Thread thread, final Runnable callback) {
+            this.thread = thread;
+            this.callback = callback;
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import co.realtime.storage.api.ActiveRecordsBatchState;
+import co.realtime.storage.api.OnErrorCommand;
+import co.realtime.storage.api.OnSuccessRecordCommand;
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.ext.StorageException;
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class ActiveRecordBatch. Runs an operation over many records with at most window operations in flight: a new one starts as each
+ * completes, so the round trips overlap without flooding the storage. The outcome of every record is collected into one promise.
+ * @param <R>
+ *            the generic type
+ */
+public abstract class ActiveRecordBatch<R extends ActiveRecord> {
+
+    /** The Constant DEFAULT_WINDOW. */
+    public static final int DEFAULT_WINDOW = 32;
+
+    /** The records. */
+    private final List<R> records;
+
+    /** The window. */
+    private final int window;
+
+    /** The errors, by record position. */
+    private final Error[] errors;
+
+    /** The promise. */
+    private final StoragePromise<ActiveRecordsBatchState<R>> promise = new StoragePromise<>();
+
+    /** The next record position to start. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** The finished flags, by record position. An operation reporting twice, e.g. a success and then its deadline, finishes once. */
+    private final AtomicIntegerArray finished;
+
+    /** The records not completed yet. */
+    private final AtomicInteger remaining;
+
+    /** The launches requested. Only the thread raising it from 0 starts operations, so inline completions do not recurse. */
+    private final AtomicInteger launches = new AtomicInteger();
+
+    /**
+     * Instantiates a new active record batch.
+     * @param records
+     *            the records
+     * @param window
+     *            the maximum number of operations in flight
+     */
+    public ActiveRecordBatch(final Collection<? extends R> records, final int window) {
+
+        if (window < 1) {
+            throw new IllegalArgumentException("window argument must be positive");
+        }
+
+        this.records = new ArrayList<>(records);
+        this.window = window;
+        this.errors = new Error[this.records.size()];
+        this.finished = new AtomicIntegerArray(this.records.size());
+        this.remaining = new AtomicInteger(this.records.size());
+
+    }
+
+    /**
+     * Execute the operation of a record.
+     * @param record
+     *            the record
+     * @param onSuccess
+     *            the command to run when it succeeds
+     * @param onError
+     *            the command to run when it fails
+     * @throws StorageException
+     *             the storage exception
+     */
+    protected abstract void execute(R record, OnSuccessRecordCommand<R> onSuccess, OnErrorCommand onError) throws StorageException;
+
+    /**
+     * Start the batch.
+     * @return the promise of the outcome of every record. It only fails when cancelled or expired, which stops starting new operations
+     */
+    public StoragePromise<ActiveRecordsBatchState<R>> start() {
+
+        if (this.records.isEmpty()) {
+            complete();
+            return this.promise;
+        }
+
+        for (int i = 0; i < this.window; i++) {
+            launch();
+        }
+
+        return this.promise;
+
+    }
+
+    /**
+     * Launch the next operation. Launches requested while another thread is launching are run by that thread.
+     */
+    private void launch() {
+
+        if (this.launches.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            startNext();
+        } while (this.launches.decrementAndGet() != 0);
+
+    }
+
+    /**
+     * Start the next operation, if any record is left and the batch was not abandoned.
+     */
+    private void startNext() {
+
+        if (this.promise.isSettled()) {
+            return;
+        }
+
+        final int position = this.next.getAndIncrement();
+        if (position >= this.records.size()) {
+            return;
+        }
+
+        final R record = this.records.get(position);
+        try {
+            execute(record, new OnSuccessRecordCommand<R>() {
+
+                @Override
+                public void execute(final ActiveRecord completedRecord) {
+                    finish(position, null);
+                }
+
+            }, new OnErrorCommand() {
+
+                @Override
+                public void execute(final Error error) {
+                    finish(position, error);
+                }
+
+            });
+        } catch (final Throwable e) {
+            // e.g. the IllegalAccessError of a record without primary key, which would leave the batch running forever
+            finish(position, new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.UNKNOWN, e.toString()));
+        }
+
+    }
+
+    /**
+     * Finish the operation of a record, starting the next one. Only the first outcome of a record counts.
+     * @param position
+     *            the position of the record
+     * @param error
+     *            the error, null if it succeeded
+     */
+    private void finish(final int position, final Error error) {
+
+        if (!this.finished.compareAndSet(position, 0, 1)) {
+            return;
+        }
+
+        this.errors[position] = error;
+
+        // the decrement publishes the error to the thread completing the batch
+        if (this.remaining.decrementAndGet() == 0) {
+            complete();
+        } else {
+            launch();
+        }
+
+    }
+
+    /**
+     * Complete the promise with the outcome of every record.
+     */
+    private void complete() {
+        this.promise.complete(new ActiveRecordsBatchState<>(this.records, this.errors));
+    }
+
+}
@@ -1,12 +1,5 @@
 package co.realtime.storage.async;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-
 import co.realtime.storage.api.ActiveRecordState;
 import co.realtime.storage.api.OnErrorCommand;
 import co.realtime.storage.api.OnSuccessRecordCommand;
@@ -18,26 +11,7 @@ import co.realtime.storage.models.ActiveRecord;
  * @param <I>
  *            the generic type
  */
-public class ActiveRecordStateFuture<R extends ActiveRecord> implements Future<ActiveRecordState<R>> {
-
-    /**
-     * The Enum State.
-     */
-    private static enum State {
-
-        /** The running. */
-        RUNNING,
-        /** The done. */
-        DONE,
-        /** The cancelled. */
-        CANCELLED
-    }
-
-    /** The reply. */
-    private final BlockingQueue<ActiveRecordState<R>> reply = new ArrayBlockingQueue<>(1);
-
-    /** The state. */
-    private State state = State.RUNNING;
+public class ActiveRecordStateFuture<R extends ActiveRecord> extends AbstractStorageFuture<ActiveRecordState<R>> {
 
     /** The on success record command. */
     private final OnSuccessRecordCommand<R> onSuccessRecordCommand;
@@ -57,113 +31,122 @@ public class ActiveRecordStateFuture<R extends ActiveRecord> implements Future<A
         this.onErrorCommand = onErrorCommand;
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#cancel(boolean)
-     */
-    @Override
-    public boolean cancel(final boolean mayInterruptIfRunning) {
-
-        if (this.isRunning()) {
-            this.clearUp();
-        }
-
-        return this.isCancelled();
-
-    }
-
     /**
      * Checks if is running.
      * @return true, if is running
      */
     public boolean isRunning() {
-        return this.state == State.RUNNING;
+        return !isDone();
     }
 
     /*
      * (non-Javadoc)
-     * @see java.util.concurrent.Future#isCancelled()
+     * @see co.realtime.storage.async.AbstractStorageFuture#report(java.lang.Object)
      */
     @Override
-    public boolean isCancelled() {
-        return this.state == State.CANCELLED;
+    @SuppressWarnings("unchecked")
+    protected ActiveRecordState<R> report(final Object completionOutcome) {
+        return (ActiveRecordState<R>) completionOutcome;
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#isDone()
+    /**
+     * Put record.
+     * @param record
+     *            the record
+     * @throws InterruptedException
+     *             the interrupted exception
      */
-    @Override
-    public boolean isDone() {
-        return this.state == State.DONE;
-    }
+    public void processRecordAsync(final R record) throws InterruptedException {
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#get()
-     */
-    @Override
-    public ActiveRecordState<R> get() throws InterruptedException, ExecutionException {
-        return this.reply.take();
+        if (!settle()) {
+            return;
+        }
 
-    }
+        final ActiveRecordState<R> completion = new ActiveRecordState<>(record);
+        final OnSuccessRecordCommand<R> command = this.onSuccessRecordCommand;
+        if (command == null) {
+            complete(completion);
+            return;
+        }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
-     */
-    @Override
-    public ActiveRecordState<R> get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
 
-        final ActiveRecordState<R> replyOrNull = this.reply.poll(timeout, unit);
-        if (replyOrNull == null) {
-            throw new TimeoutException();
-        }
+            @Override
+            public void run() {
+                try {
+                    command.execute(record);
+                } finally {
+                    complete(completion);
+                }
+            }
 
-        return replyOrNull;
+        });
 
     }
 
     /**
-     * Put record.
-     * @param record
-     *            the record
+     * Process error.
+     * @param error
+     *            the error
      * @throws InterruptedException
      *             the interrupted exception
      */
-    public synchronized void processRecordAsync(final R record) throws InterruptedException {
-
-        if (this.onSuccessRecordCommand != null) {
-            this.onSuccessRecordCommand.execute(record);
-        }
-
-        this.reply.put(new ActiveRecordState<>(record));
-        this.state = State.DONE;
+    public void processError(final Error error) throws InterruptedException {
+        fail(error);
+    }
 
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.async.AbstractStorageFuture#expire(co.realtime.storage.exceptions.Error)
+     */
+    @Override
+    protected boolean expire(final Error timeoutError) {
+        return fail(timeoutError);
     }
 
     /**
-     * Process error.
+     * Fail, running the error command, unless already settled.
      * @param error
      *            the error
-     * @throws InterruptedException
+     * @return true, if this call settled the future
      */
-    public synchronized void processError(final Error error) throws InterruptedException {
+    private boolean fail(final Error error) {
+
+        if (!settle()) {
+            return false;
+        }
 
-        if (this.onErrorCommand != null) {
-            this.onErrorCommand.execute(error);
+        final ActiveRecordState<R> completion = new ActiveRecordState<R>(error);
+        final OnErrorCommand command = this.onErrorCommand;
+        if (command == null) {
+            complete(completion);
+            return true;
         }
 
-        this.reply.put(new ActiveRecordState<R>(error));
-        this.state = State.DONE;
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    command.execute(error);
+                } finally {
+                    complete(completion);
+                }
+            }
+
+        });
+
+        return true;
 
     }
 
     /**
-     * Clear up.
+     * Complete a settled future, once the callback has run.
+     * @param completion
+     *            the completion
      */
-    private void clearUp() {
-        this.reply.clear();
+    private void complete(final ActiveRecordState<R> completion) {
+        publish(completion);
     }
 
 }
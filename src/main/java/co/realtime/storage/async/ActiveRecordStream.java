@@ -0,0 +1,291 @@
+package co.realtime.storage.async;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.StorageErrorException;
+import co.realtime.storage.models.ActiveRecord;
+
+/**
+ * The Class ActiveRecordStream. Pull iterator over the records of a query, mapped as they are consumed. At most bufferSize snapshots are held;
+ * when the consumer falls behind, the storage callbacks wait for room until the deadline, or the stall timeout without one, and then fail the
+ * stream, so an abandoned stream never holds a storage thread. Closing the stream, or passing its deadline, discards the remaining snapshots
+ * as they arrive.
+ * @param <R>
+ *            the generic type
+ */
+public class ActiveRecordStream<R extends ActiveRecord> implements Iterator<R>, Closeable {
+
+    /** The Constant DEFAULT_BUFFER_SIZE. */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /** The Constant DEFAULT_STALL_TIMEOUT_MILLIS. How long a storage callback waits for room in the buffer of a stream without deadline. */
+    public static final long DEFAULT_STALL_TIMEOUT_MILLIS = 30000L;
+
+    /** The Constant WAIT_SLICE_MILLIS. The storage callbacks recheck if the stream was closed at least this often. */
+    private static final long WAIT_SLICE_MILLIS = 100L;
+
+    /** The Constant END. Marks the end of the results. */
+    private static final Object END = new Object();
+
+    /** The buffer. Snapshots, followed by END or an Error. */
+    private final BlockingQueue<Object> buffer;
+
+    /** The record class. */
+    private final Class<R> recordClass;
+
+    /** The record plan. */
+    private final StorageMappingPlan recordPlan;
+
+    /** The closed. */
+    private volatile boolean closed = false;
+
+    /** The timeout in milliseconds. 0 for no deadline. */
+    private long timeoutMillis = 0L;
+
+    /** The deadline, from System.nanoTime. */
+    private long deadlineNanos;
+
+    /** The stall timeout in milliseconds. */
+    private long stallTimeoutMillis = DEFAULT_STALL_TIMEOUT_MILLIS;
+
+    /** The failure, set when a storage callback gave up waiting for room. */
+    private volatile Error failure = null;
+
+    /** The next element, taken from the buffer by hasNext. */
+    private Object next = null;
+
+    /**
+     * Instantiates a new active record stream.
+     * @param recordClass
+     *            the record class
+     * @param bufferSize
+     *            the maximum number of buffered snapshots
+     */
+    public ActiveRecordStream(final Class<R> recordClass, final int bufferSize) {
+
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize argument must be positive");
+        }
+
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.recordClass = recordClass;
+        this.recordPlan = StorageMappingRegistry.planOf(recordClass);
+
+    }
+
+    /**
+     * With deadline. The stream fails with a timeout error if its results are not all received within the timeout.
+     * @param timeout
+     *            the timeout, 0 for no deadline
+     * @param unit
+     *            the unit
+     * @return this stream
+     */
+    public ActiveRecordStream<R> withDeadline(final long timeout, final TimeUnit unit) {
+        this.timeoutMillis = Math.max(0L, unit.toMillis(timeout));
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+        return this;
+    }
+
+    /**
+     * With stall timeout. How long a storage callback of a stream without deadline waits for room in the buffer before failing the stream.
+     * @param timeout
+     *            the timeout
+     * @param unit
+     *            the unit
+     * @return this stream
+     */
+    public ActiveRecordStream<R> withStallTimeout(final long timeout, final TimeUnit unit) {
+        this.stallTimeoutMillis = Math.max(0L, unit.toMillis(timeout));
+        return this;
+    }
+
+    /**
+     * Adds the snapshot of a record, waiting for room in the buffer.
+     * @param itemSnapshot
+     *            the item snapshot
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    public void addSnapshot(final ItemSnapshot itemSnapshot) throws InterruptedException {
+        offer(itemSnapshot);
+    }
+
+    /**
+     * Process the end of the results.
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    public void processEnd() throws InterruptedException {
+        offer(END);
+    }
+
+    /**
+     * Process error.
+     * @param error
+     *            the error
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    public void processError(final Error error) throws InterruptedException {
+        offer(error);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+
+        if (this.next == null) {
+
+            if (this.closed) {
+                // closed by the consumer, or failed by a storage callback that gave up waiting for room
+                if (this.failure == null) {
+                    return false;
+                }
+                this.next = this.failure;
+            } else {
+                try {
+                    this.next = take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the next record", e);
+                }
+            }
+
+        }
+
+        if (this.next instanceof Error) {
+            final Error error = (Error) this.next;
+            throw new IllegalStateException(error.getMessage(), new StorageErrorException(error));
+        }
+
+        return this.next != END;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public R next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final ItemSnapshot itemSnapshot = (ItemSnapshot) this.next;
+        this.next = null;
+
+        try {
+            final R record = this.recordClass.cast(this.recordPlan.newInstance());
+            record.mapAttributesFromItemSnapshot(itemSnapshot);
+            return record;
+        } catch (final InstantiationException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Close. The remaining results are discarded as they arrive.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.buffer.clear();
+    }
+
+    /**
+     * Checks if is closed.
+     * @return true, if is closed
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Take the next element, waiting until the deadline if any. Once it passes, the stream is closed and reports a timeout error.
+     * @return the element
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    private Object take() throws InterruptedException {
+
+        if (this.timeoutMillis == 0L) {
+            return this.buffer.take();
+        }
+
+        final Object element = this.buffer.poll(this.deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (element != null) {
+            return element;
+        }
+
+        close();
+        return StorageDeadlines.timeoutError(this.timeoutMillis);
+
+    }
+
+    /**
+     * Offer an element to the consumer, unless the stream was closed. Waits for room until the deadline, or the stall timeout without one, and
+     * then fails the stream with a timeout error.
+     * @param element
+     *            the element
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    private void offer(final Object element) throws InterruptedException {
+
+        final long timeoutMillis = this.timeoutMillis == 0L ? this.stallTimeoutMillis : this.timeoutMillis;
+        final long expiryNanos = this.timeoutMillis == 0L ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.stallTimeoutMillis) : this.deadlineNanos;
+
+        while (!this.closed) {
+
+            final long remainingNanos = expiryNanos - System.nanoTime();
+            if (remainingNanos <= 0L) {
+                fail(StorageDeadlines.timeoutError(timeoutMillis));
+                return;
+            }
+
+            if (this.buffer.offer(element, Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MILLIS)), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+
+        }
+
+    }
+
+    /**
+     * Fail the stream from the producer side. The remaining snapshots are discarded and the consumer gets the error.
+     * @param error
+     *            the error
+     */
+    private void fail(final Error error) {
+        this.failure = error;
+        close();
+        // wakes a consumer waiting on an empty buffer
+        this.buffer.offer(error);
+    }
+
+}
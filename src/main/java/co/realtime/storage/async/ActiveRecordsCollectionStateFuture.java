@@ -1,13 +1,8 @@
 package co.realtime.storage.async;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import co.realtime.storage.api.ActiveRecordsCollectionState;
 import co.realtime.storage.api.OnErrorCommand;
@@ -20,30 +15,11 @@ import co.realtime.storage.models.ActiveRecord;
  * @param <R>
  *            the generic type
  */
-public class ActiveRecordsCollectionStateFuture<R extends ActiveRecord> implements Future<ActiveRecordsCollectionState<R>> {
-
-    /**
-     * The Enum State.
-     */
-    private static enum State {
-
-        /** The running. */
-        RUNNING,
-        /** The done. */
-        DONE,
-        /** The cancelled. */
-        CANCELLED
-    }
-
-    /** The reply. */
-    private final BlockingQueue<ActiveRecordsCollectionState<R>> reply = new ArrayBlockingQueue<>(1);
+public class ActiveRecordsCollectionStateFuture<R extends ActiveRecord> extends AbstractStorageFuture<ActiveRecordsCollectionState<R>> {
 
     /** The records temp. */
     private final List<R> recordsTemp = new ArrayList<>();
 
-    /** The state. */
-    private State state = State.RUNNING;
-
     /** The on success collection command. */
     private final OnSuccessCollectionCommand<R> onSuccessCollectionCommand;
 
@@ -62,98 +38,113 @@ public class ActiveRecordsCollectionStateFuture<R extends ActiveRecord> implemen
         this.onErrorCommand = onErrorCommand;
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#cancel(boolean)
-     */
-    @Override
-    public boolean cancel(final boolean mayInterruptIfRunning) {
-
-        if (this.isRunning()) {
-            this.clearUp();
-        }
-
-        return this.isCancelled();
-
-    }
-
     /**
      * Checks if is running.
      * @return true, if is running
      */
     public boolean isRunning() {
-        return this.state == State.RUNNING;
+        return !isDone();
     }
 
     /*
      * (non-Javadoc)
-     * @see java.util.concurrent.Future#isCancelled()
+     * @see co.realtime.storage.async.AbstractStorageFuture#report(java.lang.Object)
      */
     @Override
-    public boolean isCancelled() {
-        return this.state == State.CANCELLED;
+    @SuppressWarnings("unchecked")
+    protected ActiveRecordsCollectionState<R> report(final Object completionOutcome) {
+        return (ActiveRecordsCollectionState<R>) completionOutcome;
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#isDone()
+    /**
+     * Adds the record. Ignored once the future is settled.
+     * @param record
+     *            the record
      */
-    @Override
-    public boolean isDone() {
-        return this.state == State.DONE;
+    public synchronized void addRecord(final R record) {
+
+        if (record != null && !isSettled()) {
+            this.recordsTemp.add(record);
+        }
+
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#get()
+    /**
+     * Reserve a record position, for a record mapped out of order.
+     * @return the position of the record
      */
-    @Override
-    public ActiveRecordsCollectionState<R> get() throws InterruptedException, ExecutionException {
-        return this.reply.take();
+    public synchronized int reserveRecord() {
+        this.recordsTemp.add(null);
+        return this.recordsTemp.size() - 1;
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+    /**
+     * Sets the record of a reserved position.
+     * @param position
+     *            the position
+     * @param record
+     *            the record. Null drops the position
      */
-    @Override
-    public ActiveRecordsCollectionState<R> get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    public synchronized void setRecord(final int position, final R record) {
 
-        final ActiveRecordsCollectionState<R> replyOrNull = this.reply.poll(timeout, unit);
-        if (replyOrNull == null) {
-            throw new TimeoutException();
+        // the positions are cleared when cancelled or expired
+        if (position < this.recordsTemp.size()) {
+            this.recordsTemp.set(position, record);
         }
 
-        return replyOrNull;
-
     }
 
     /**
-     * Adds the record.
-     * @param record
-     *            the record
+     * Put record. Reserved positions left without a record are dropped.
+     * @throws InterruptedException
+     *             the interrupted exception
      */
-    public synchronized void addRecord(final R record) {
+    public void processRecordsAsync() throws InterruptedException {
 
-        if (record != null) {
-            this.recordsTemp.add(record);
+        if (!settle()) {
+            return;
+        }
+
+        final List<R> records = this.recordsTemp;
+        synchronized (this) {
+            records.removeAll(Collections.singleton(null));
+        }
+
+        final ActiveRecordsCollectionState<R> completion = new ActiveRecordsCollectionState<>(records);
+        final OnSuccessCollectionCommand<R> command = this.onSuccessCollectionCommand;
+        if (command == null) {
+            complete(completion);
+            return;
         }
 
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    command.execute(records);
+                } finally {
+                    complete(completion);
+                }
+            }
+
+        });
+
     }
 
-    /**
-     * Put record.
-     * @throws InterruptedException
-     *             the interrupted exception
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.async.AbstractStorageFuture#cancel(boolean)
      */
-    public synchronized void processRecordsAsync() throws InterruptedException {
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
 
-        if (this.onSuccessCollectionCommand != null) {
-            this.onSuccessCollectionCommand.execute(this.recordsTemp);
+        if (!super.cancel(mayInterruptIfRunning)) {
+            return false;
         }
 
-        this.reply.put(new ActiveRecordsCollectionState<>(this.recordsTemp));
-        this.state = State.DONE;
+        clearRecords();
+        return true;
 
     }
 
@@ -164,22 +155,70 @@ public class ActiveRecordsCollectionStateFuture<R extends ActiveRecord> implemen
      * @throws InterruptedException
      *             the interrupted exception
      */
-    public synchronized void processError(final Error error) throws InterruptedException {
+    public void processError(final Error error) throws InterruptedException {
+        fail(error);
+    }
 
-        if (this.onErrorCommand != null) {
-            this.onErrorCommand.execute(error);
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.async.AbstractStorageFuture#expire(co.realtime.storage.exceptions.Error)
+     */
+    @Override
+    protected boolean expire(final Error timeoutError) {
+        return fail(timeoutError);
+    }
+
+    /**
+     * Fail, running the error command, unless already settled.
+     * @param error
+     *            the error
+     * @return true, if this call settled the future
+     */
+    private boolean fail(final Error error) {
+
+        if (!settle()) {
+            return false;
         }
 
-        this.reply.put(new ActiveRecordsCollectionState<R>(error));
-        this.state = State.DONE;
+        clearRecords();
+        final ActiveRecordsCollectionState<R> completion = new ActiveRecordsCollectionState<R>(error);
+        final OnErrorCommand command = this.onErrorCommand;
+        if (command == null) {
+            complete(completion);
+            return true;
+        }
+
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    command.execute(error);
+                } finally {
+                    complete(completion);
+                }
+            }
+
+        });
+
+        return true;
 
     }
 
     /**
-     * Clear up.
+     * Clear the records mapped so far, which are not reported.
+     */
+    private synchronized void clearRecords() {
+        this.recordsTemp.clear();
+    }
+
+    /**
+     * Complete a settled future, once the callback has run.
+     * @param completion
+     *            the completion
      */
-    private void clearUp() {
-        this.reply.clear();
+    private void complete(final ActiveRecordsCollectionState<R> completion) {
+        publish(completion);
     }
 
 }
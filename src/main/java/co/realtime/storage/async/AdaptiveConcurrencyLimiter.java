@@ -0,0 +1,200 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Class AdaptiveConcurrencyLimiter. Limits the requests in flight to a table, adapting the limit by additive increase and multiplicative
+ * decrease: each request completed without throttling raises the limit by 1/limit, about one per round of requests, and a throttled request
+ * halves it, at most once per round. Requests over the limit wait in order, without blocking a thread.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** The Constant DECREASE_FACTOR. */
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /** The min limit. */
+    private final int minLimit;
+
+    /** The max limit. */
+    private final int maxLimit;
+
+    /** The limit. */
+    private double limit;
+
+    /** The requests in flight. */
+    private int inFlight = 0;
+
+    /** The epoch, raised on each decrease. Only requests started since the last decrease can decrease the limit again. */
+    private long epoch = 0L;
+
+    /** The waiting tasks. */
+    private final Queue<Task> waiting = new ArrayDeque<>();
+
+    /**
+     * Instantiates a new adaptive concurrency limiter.
+     * @param initialLimit
+     *            the initial limit
+     * @param minLimit
+     *            the min limit
+     * @param maxLimit
+     *            the max limit
+     */
+    public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("limits must be positive, with minLimit not above maxLimit");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+    }
+
+    /**
+     * Acquire a permit for the task, starting it now if under the limit, or once a request completes otherwise.
+     * @param task
+     *            the task
+     */
+    public void acquire(final Task task) {
+
+        final Permit permit;
+        synchronized (this) {
+            if (this.inFlight >= (int) this.limit) {
+                this.waiting.add(task);
+                return;
+            }
+            permit = newPermit();
+        }
+
+        task.start(permit);
+
+    }
+
+    /**
+     * Gets the limit.
+     * @return the current limit of requests in flight
+     */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Gets the in flight.
+     * @return the requests in flight
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * Gets the waiting.
+     * @return the requests waiting for a permit
+     */
+    public synchronized int getWaiting() {
+        return this.waiting.size();
+    }
+
+    /**
+     * New permit, under the lock.
+     * @return the permit
+     */
+    private Permit newPermit() {
+        this.inFlight++;
+        return new Permit(this.epoch);
+    }
+
+    /**
+     * Release a permit, adapting the limit and starting the waiting tasks now under it.
+     * @param permitEpoch
+     *            the epoch of the permit
+     * @param throttled
+     *            true if the request was throttled
+     */
+    private void release(final long permitEpoch, final boolean throttled) {
+
+        final List<Task> started = new ArrayList<>();
+        final List<Permit> permits = new ArrayList<>();
+
+        synchronized (this) {
+
+            this.inFlight--;
+
+            if (!throttled) {
+                this.limit = Math.min(this.maxLimit, this.limit + 1.0 / this.limit);
+            } else if (permitEpoch == this.epoch) {
+                this.limit = Math.max(this.minLimit, this.limit * DECREASE_FACTOR);
+                this.epoch++;
+            }
+
+            while (!this.waiting.isEmpty() && this.inFlight < (int) this.limit) {
+                started.add(this.waiting.poll());
+                permits.add(newPermit());
+            }
+
+        }
+
+        // each task on its own, a failing one must neither stop the others nor keep its permit
+        for (int i = 0; i < started.size(); i++) {
+            try {
+                started.get(i).start(permits.get(i));
+            } catch (final RuntimeException e) {
+                permits.get(i).release(false);
+                StorageCallbackExecutor.INSTANCE.handleException(e);
+            }
+        }
+
+    }
+
+    /**
+     * The Class Task. A request waiting for a permit.
+     */
+    public abstract static class Task {
+
+        /**
+         * Start the request. The permit must be released once it completes.
+         * @param permit
+         *            the permit
+         */
+        public abstract void start(Permit permit);
+
+    }
+
+    /**
+     * The Class Permit. The room of a request in flight, released once.
+     */
+    public final class Permit {
+
+        /** The epoch of the limiter when the request started. */
+        private final long permitEpoch;
+
+        /** The released. */
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        /**
+         * Instantiates a new permit.
+         * @param permitEpoch
+         *            the permit epoch
+         */
+        Permit(final long permitEpoch) {
+            this.permitEpoch = permitEpoch;
+        }
+
+        /**
+         * Release the permit. Further calls are ignored.
+         * @param throttled
+         *            true if the request was throttled
+         */
+        public void release(final boolean throttled) {
+            if (this.released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(this.permitEpoch, throttled);
+            }
+        }
+
+    }
+
+}
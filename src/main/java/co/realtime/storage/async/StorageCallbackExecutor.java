@@ -0,0 +1,377 @@
+package co.realtime.storage.async;
+
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.utils.PropertiesUtils;
+
+/**
+ * The Enum StorageCallbackExecutor. Runs the application callbacks of the storage operations away from the threads delivering the storage
+ * responses. Configured by the storage.callbacks.* properties of storage.properties, or with a caller supplied executor.
+ */
+public enum StorageCallbackExecutor {
+
+    /** The instance. */
+    INSTANCE;
+
+    /** The Constant EXECUTOR_PROPERTY. One of pool, virtual or inline. */
+    public static final String EXECUTOR_PROPERTY = "storage.callbacks.executor";
+
+    /** The Constant POOL_SIZE_PROPERTY. */
+    public static final String POOL_SIZE_PROPERTY = "storage.callbacks.pool_size";
+
+    /** The Constant QUEUE_SIZE_PROPERTY. */
+    public static final String QUEUE_SIZE_PROPERTY = "storage.callbacks.queue_size";
+
+    /** The Constant POOL_EXECUTOR. */
+    private static final String POOL_EXECUTOR = "pool";
+
+    /** The Constant VIRTUAL_EXECUTOR. */
+    private static final String VIRTUAL_EXECUTOR = "virtual";
+
+    /** The Constant INLINE_EXECUTOR. */
+    private static final String INLINE_EXECUTOR = "inline";
+
+    /** The Constant DEFAULT_QUEUE_SIZE. */
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    /** The Constant FULL_QUEUE_WAIT_MILLIS. How long the delivering thread waits for room in a full queue before running the callback itself. */
+    private static final long FULL_QUEUE_WAIT_MILLIS = 50L;
+
+    /** The executor. Null runs the callbacks inline. */
+    private volatile Executor executor;
+
+    /** The owned executor, shut down when replaced. */
+    private ExecutorService ownedExecutor;
+
+    /** The exception handler. Null hands the exceptions to the uncaught exception handler of the running thread. */
+    private volatile Thread.UncaughtExceptionHandler exceptionHandler;
+
+    /** The queued callbacks. */
+    private final AtomicInteger queuedCallbacks = new AtomicInteger();
+
+    /** The max queued callbacks. */
+    private final AtomicInteger maxQueuedCallbacks = new AtomicInteger();
+
+    /** The running callbacks. */
+    private final AtomicInteger runningCallbacks = new AtomicInteger();
+
+    /** The completed callbacks. */
+    private final AtomicLong completedCallbacks = new AtomicLong();
+
+    /**
+     * Instantiates a new storage callback executor, with the default bounded pool. Runs before the static fields are initialized, so it only
+     * relies on constants.
+     */
+    private StorageCallbackExecutor() {
+        configure(new Properties());
+    }
+
+    /**
+     * Configure from the storage properties.
+     * @param properties
+     *            the properties
+     * @throws IllegalArgumentException
+     *             if the pool or queue size is not a positive whole number
+     */
+    public synchronized void configure(final Properties properties) {
+
+        final String type = properties.getProperty(EXECUTOR_PROPERTY, POOL_EXECUTOR).trim();
+        final int poolSize = PropertiesUtils.intProperty(properties, POOL_SIZE_PROPERTY, Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        final int queueSize = PropertiesUtils.intProperty(properties, QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE, 1);
+
+        ExecutorService configured = null;
+        if (VIRTUAL_EXECUTOR.equalsIgnoreCase(type)) {
+            configured = newVirtualThreadExecutor();
+        }
+        if (configured == null && !INLINE_EXECUTOR.equalsIgnoreCase(type)) {
+            configured = newBoundedPool(poolSize, queueSize);
+        }
+
+        replace(configured, configured);
+
+    }
+
+    /**
+     * Sets a caller supplied executor, which is not shut down by the storage.
+     * @param callbackExecutor
+     *            the executor. Null runs the callbacks inline, on the thread delivering the storage response
+     */
+    public synchronized void setExecutor(final Executor callbackExecutor) {
+        replace(callbackExecutor, null);
+    }
+
+    /**
+     * Sets the exception handler of the callbacks.
+     * @param handler
+     *            the handler of the exceptions thrown by the callbacks. Null hands them to the uncaught exception handler of the running thread
+     */
+    public void setExceptionHandler(final Thread.UncaughtExceptionHandler handler) {
+        this.exceptionHandler = handler;
+    }
+
+    /**
+     * Execute a callback.
+     * @param callback
+     *            the callback
+     */
+    public void execute(final Runnable callback) {
+
+        Executor current = this.executor;
+        if (current == null) {
+            run(callback);
+            return;
+        }
+
+        final int queued = this.queuedCallbacks.incrementAndGet();
+        updateMaxQueued(queued);
+
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                StorageCallbackExecutor.this.queuedCallbacks.decrementAndGet();
+                StorageCallbackExecutor.this.run(callback);
+            }
+
+        };
+
+        while (current != null) {
+
+            try {
+                current.execute(task);
+                return;
+            } catch (final RejectedExecutionException e) {
+                // shut down while replaced, handed to the new executor; still full after waiting, run here
+                final Executor replacement = this.executor;
+                current = replacement == current ? null : replacement;
+            }
+
+        }
+
+        task.run();
+
+    }
+
+    /**
+     * Gets the queue depth.
+     * @return the number of callbacks waiting to run
+     */
+    public int getQueueDepth() {
+        return this.queuedCallbacks.get();
+    }
+
+    /**
+     * Gets the max queue depth.
+     * @return the highest number of callbacks waiting to run at once
+     */
+    public int getMaxQueueDepth() {
+        return this.maxQueuedCallbacks.get();
+    }
+
+    /**
+     * Gets the running callbacks.
+     * @return the number of callbacks running
+     */
+    public int getRunningCallbacks() {
+        return this.runningCallbacks.get();
+    }
+
+    /**
+     * Gets the completed callbacks.
+     * @return the number of callbacks run
+     */
+    public long getCompletedCallbacks() {
+        return this.completedCallbacks.get();
+    }
+
+    /**
+     * Shutdown the executor owned by the storage. The callbacks run inline afterwards.
+     */
+    public synchronized void shutdown() {
+        replace(null, null);
+    }
+
+    /**
+     * Run a callback, counting it.
+     * @param callback
+     *            the callback
+     */
+    private void run(final Runnable callback) {
+
+        this.runningCallbacks.incrementAndGet();
+        try {
+            callback.run();
+        } catch (final RuntimeException e) {
+            handleException(e);
+        } finally {
+            this.runningCallbacks.decrementAndGet();
+            this.completedCallbacks.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Handle an exception thrown by a callback, with the configured handler or else the uncaught exception handler of the running thread.
+     * @param exception
+     *            the exception
+     */
+    void handleException(final Throwable exception) {
+
+        final Thread current = Thread.currentThread();
+        final Thread.UncaughtExceptionHandler handler = this.exceptionHandler;
+
+        if (handler != null) {
+            handler.uncaughtException(current, exception);
+        } else {
+            current.getUncaughtExceptionHandler().uncaughtException(current, exception);
+        }
+
+    }
+
+    /**
+     * Replace the executor.
+     * @param newExecutor
+     *            the new executor
+     * @param newOwnedExecutor
+     *            the new executor if owned by the storage, null otherwise
+     */
+    private void replace(final Executor newExecutor, final ExecutorService newOwnedExecutor) {
+
+        final ExecutorService previousOwnedExecutor = this.ownedExecutor;
+        this.executor = newExecutor;
+        this.ownedExecutor = newOwnedExecutor;
+
+        if (previousOwnedExecutor != null) {
+            previousOwnedExecutor.shutdown();
+        }
+
+    }
+
+    /**
+     * Update max queued.
+     * @param queued
+     *            the queued
+     */
+    private void updateMaxQueued(final int queued) {
+
+        int max = this.maxQueuedCallbacks.get();
+        while (queued > max && !this.maxQueuedCallbacks.compareAndSet(max, queued)) {
+            max = this.maxQueuedCallbacks.get();
+        }
+
+    }
+
+    /**
+     * New bounded pool. When the queue is full the delivering thread waits a little for room, and only then runs the callback itself, so it is
+     * never parked by a stalled pool. A callback of the pool submitting another one runs it itself at once, since waiting for room freed by its
+     * own pool could wait forever.
+     * @param poolSize
+     *            the pool size
+     * @param queueSize
+     *            the queue size
+     * @return the executor service
+     */
+    private static ExecutorService newBoundedPool(final int poolSize, final int queueSize) {
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadFactory threadFactory = new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new CallbackThread(this, runnable, "storage-callback-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        };
+
+        final RejectedExecutionHandler waitForRoom = new RejectedExecutionHandler() {
+
+            @Override
+            public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor pool) {
+
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException("Storage callback executor is shut down");
+                }
+
+                final Thread caller = Thread.currentThread();
+                if (caller instanceof CallbackThread && ((CallbackThread) caller).threadFactory == pool.getThreadFactory()) {
+                    runnable.run();
+                    return;
+                }
+
+                final boolean queued;
+                try {
+                    queued = pool.getQueue().offer(runnable, FULL_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException(e);
+                }
+
+                if (!queued) {
+                    throw new RejectedExecutionException("Storage callback queue is full");
+                }
+
+                // shut down while waiting, its workers may be gone: take the callback back unless one of them already did
+                if (pool.isShutdown() && pool.getQueue().remove(runnable)) {
+                    throw new RejectedExecutionException("Storage callback executor is shut down");
+                }
+
+            }
+
+        };
+
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueSize), threadFactory, waitForRoom);
+
+    }
+
+    /**
+     * The Class CallbackThread. A thread of a bounded pool, known by the factory that made it.
+     */
+    private static final class CallbackThread extends Thread {
+
+        /** The thread factory. */
+        private final ThreadFactory threadFactory;
+
+        /**
+         * Instantiates a new callback thread.
+         * @param threadFactory
+         *            the thread factory
+         * @param runnable
+         *            the runnable
+         * @param name
+         *            the name
+         */
+        CallbackThread(final ThreadFactory threadFactory, final Runnable runnable, final String name) {
+            super(runnable, name);
+            this.threadFactory = threadFactory;
+        }
+
+    }
+
+    /**
+     * New virtual thread executor, available from Java 21.
+     * @return the executor service. Null if virtual threads are not available
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+
+    }
+
+}
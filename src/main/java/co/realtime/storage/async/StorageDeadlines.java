@@ -0,0 +1,156 @@
+package co.realtime.storage.async;
+
+import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.utils.PropertiesUtils;
+
+/**
+ * The Enum StorageDeadlines. Expires the storage futures whose deadline passes before they are settled, failing them with a timeout error. The
+ * default deadline of every operation is configured by the storage.operations.timeout_ms property of storage.properties.
+ */
+public enum StorageDeadlines {
+
+    /** The instance. */
+    INSTANCE;
+
+    /** The Constant TIMEOUT_PROPERTY. In milliseconds, 0 or absent for no deadline. */
+    public static final String TIMEOUT_PROPERTY = "storage.operations.timeout_ms";
+
+    /** The default timeout in milliseconds. 0 for no deadline. */
+    private volatile long defaultTimeoutMillis = 0L;
+
+    /** The timer, created with the first deadline. */
+    private ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Configure from the storage properties.
+     * @param properties
+     *            the properties
+     * @throws IllegalArgumentException
+     *             if the timeout is not a whole number of milliseconds, 0 or more
+     */
+    public void configure(final Properties properties) {
+        setDefaultTimeout(PropertiesUtils.longProperty(properties, TIMEOUT_PROPERTY, this.defaultTimeoutMillis, 0L), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the default timeout of the storage operations.
+     * @param timeout
+     *            the timeout, 0 for no deadline
+     * @param unit
+     *            the unit
+     */
+    public void setDefaultTimeout(final long timeout, final TimeUnit unit) {
+        this.defaultTimeoutMillis = Math.max(0L, unit.toMillis(timeout));
+    }
+
+    /**
+     * Gets the default timeout.
+     * @return the default timeout in milliseconds, 0 for no deadline
+     */
+    public long getDefaultTimeoutMillis() {
+        return this.defaultTimeoutMillis;
+    }
+
+    /**
+     * Apply the default deadline to a future, if configured.
+     * @param <F>
+     *            the future type
+     * @param future
+     *            the future
+     * @return the future
+     */
+    public <F extends AbstractStorageFuture<?>> F applyDefault(final F future) {
+
+        final long timeoutMillis = this.defaultTimeoutMillis;
+        if (timeoutMillis > 0L) {
+            schedule(future, timeoutMillis);
+        }
+
+        return future;
+
+    }
+
+    /**
+     * Timeout error.
+     * @param timeoutMillis
+     *            the timeout in milliseconds
+     * @return the error reported by an expired operation
+     */
+    public static Error timeoutError(final long timeoutMillis) {
+        return new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.TIMEOUT, String.format("Operation timed out after %d ms", Long.valueOf(timeoutMillis)));
+    }
+
+    /**
+     * Schedule the expiration of a future. The scheduled expiration is removed as soon as the future completes.
+     * @param future
+     *            the future
+     * @param timeoutMillis
+     *            the timeout in milliseconds
+     */
+    void schedule(final AbstractStorageFuture<?> future, final long timeoutMillis) {
+
+        if (future.isSettled()) {
+            return;
+        }
+
+        if (timeoutMillis <= 0L) {
+            future.expire(timeoutError(0L));
+            return;
+        }
+
+        final ScheduledFuture<?> expiration = timer().schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                future.expire(timeoutError(timeoutMillis));
+            }
+
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        future.whenComplete(new Runnable() {
+
+            @Override
+            public void run() {
+                expiration.cancel(false);
+            }
+
+        });
+
+    }
+
+    /**
+     * Timer.
+     * @return the timer, a single daemon thread
+     */
+    private synchronized ScheduledThreadPoolExecutor timer() {
+
+        if (this.timer == null) {
+
+            this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "storage-deadlines");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+            // cancelled expirations are dropped at once, instead of held until their delay passes
+            this.timer.setRemoveOnCancelPolicy(true);
+
+        }
+
+        return this.timer;
+
+    }
+
+}
@@ -0,0 +1,237 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.TableRef;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+import co.realtime.storage.utils.PropertiesUtils;
+
+/**
+ * The Enum StorageFetchCoalescer. Single flight of the item gets: while a get of a key is in flight, the gets of the same key join it instead of
+ * making another round trip, and every one receives the response. Disabled by default, enabled by the storage.fetch.coalesce property of
+ * storage.properties.
+ */
+public enum StorageFetchCoalescer {
+
+    /** The instance. */
+    INSTANCE;
+
+    /** The Constant COALESCE_PROPERTY. */
+    public static final String COALESCE_PROPERTY = "storage.fetch.coalesce";
+
+    /** The enabled. */
+    private volatile boolean enabled = false;
+
+    /** The flights, by table and key. */
+    private final ConcurrentMap<List<Object>, Flight> flights = new ConcurrentHashMap<>();
+
+    /** The requests made. */
+    private final AtomicLong requests = new AtomicLong();
+
+    /** The coalesced gets, which joined a request in flight. */
+    private final AtomicLong coalescedGets = new AtomicLong();
+
+    /**
+     * Configure from the storage properties.
+     * @param properties
+     *            the properties
+     */
+    public void configure(final Properties properties) {
+        setEnabled(PropertiesUtils.booleanProperty(properties, COALESCE_PROPERTY));
+    }
+
+    /**
+     * Sets the enabled.
+     * @param enabled
+     *            the new enabled
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks if is enabled.
+     * @return true, if is enabled
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Gets the requests.
+     * @return the number of gets sent to the storage
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the coalesced gets.
+     * @return the number of gets served by a request already in flight
+     */
+    public long getCoalescedGets() {
+        return this.coalescedGets.get();
+    }
+
+    /**
+     * Get an item, joining the get of the same key in flight if any.
+     * @param table
+     *            the table ref
+     * @param tableName
+     *            the table name
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key, null if none
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error
+     */
+    public void get(final TableRef table, final String tableName, final ItemAttribute primaryKey, final ItemAttribute secondaryKey, final OnItemSnapshot onItemSnapshot, final OnError onError) {
+
+        final List<Object> key = Arrays.<Object> asList(tableName, primaryKey.get(), secondaryKey == null ? null : secondaryKey.get());
+
+        for (;;) {
+
+            final Flight flight = new Flight();
+            flight.join(onItemSnapshot, onError);
+
+            final Flight inFlight = this.flights.putIfAbsent(key, flight);
+            if (inFlight == null) {
+                this.requests.incrementAndGet();
+                request(table, key, flight, primaryKey, secondaryKey);
+                return;
+            }
+
+            if (inFlight.join(onItemSnapshot, onError)) {
+                this.coalescedGets.incrementAndGet();
+                return;
+            }
+
+            // landed while being removed, start a new flight
+            this.flights.remove(key, inFlight);
+
+        }
+
+    }
+
+    /**
+     * Request an item for a flight.
+     * @param table
+     *            the table
+     * @param key
+     *            the key
+     * @param flight
+     *            the flight
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key
+     */
+    private void request(final TableRef table, final List<Object> key, final Flight flight, final ItemAttribute primaryKey, final ItemAttribute secondaryKey) {
+
+        final OnItemSnapshot landed = new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+                StorageFetchCoalescer.this.flights.remove(key, flight);
+                // each get on its own, one failing to map the item must not strand the others
+                for (final OnItemSnapshot joined : flight.land().onItemSnapshots) {
+                    try {
+                        joined.run(itemSnapshot);
+                    } catch (final RuntimeException e) {
+                        StorageCallbackExecutor.INSTANCE.handleException(e);
+                    }
+                }
+            }
+
+        };
+
+        final OnError failed = new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                StorageFetchCoalescer.this.flights.remove(key, flight);
+                for (final OnError joined : flight.land().onErrors) {
+                    try {
+                        joined.run(errorCode, errorMessage);
+                    } catch (final RuntimeException e) {
+                        StorageCallbackExecutor.INSTANCE.handleException(e);
+                    }
+                }
+            }
+
+        };
+
+        try {
+            StorageThrottling.INSTANCE.execute((String) key.get(0), StorageRequestKindEnum.READ, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                    table.item(primaryKey, secondaryKey).get(onItemSnapshot, onError);
+                }
+
+            }, landed, failed);
+        } catch (final RuntimeException e) {
+            // the gets joined meanwhile fail with it, instead of waiting on a flight that never lands
+            failed.run(null, e.toString());
+        }
+
+    }
+
+    /**
+     * The Class Flight. The callbacks of the gets sharing a request.
+     */
+    private static final class Flight {
+
+        /** The on item snapshots. */
+        private final List<OnItemSnapshot> onItemSnapshots = new ArrayList<>(1);
+
+        /** The on errors. */
+        private final List<OnError> onErrors = new ArrayList<>(1);
+
+        /** The landed. True once the response arrived, no more gets can join. */
+        private boolean landed = false;
+
+        /**
+         * Join the flight.
+         * @param onItemSnapshot
+         *            the on item snapshot
+         * @param onError
+         *            the on error
+         * @return true, if joined. False if the response already arrived
+         */
+        synchronized boolean join(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+
+            if (this.landed) {
+                return false;
+            }
+
+            this.onItemSnapshots.add(onItemSnapshot);
+            this.onErrors.add(onError);
+            return true;
+
+        }
+
+        /**
+         * Land the flight.
+         * @return the flight, with no more gets joining
+         */
+        synchronized Flight land() {
+            this.landed = true;
+            return this;
+        }
+
+    }
+
+}
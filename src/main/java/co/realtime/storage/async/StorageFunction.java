@@ -0,0 +1,22 @@
+package co.realtime.storage.async;
+
+/**
+ * The Class StorageFunction. A step of a storage promise chain.
+ * @param <T>
+ *            the type of the input
+ * @param <R>
+ *            the type of the result
+ */
+public abstract class StorageFunction<T, R> {
+
+    /**
+     * Apply.
+     * @param value
+     *            the value
+     * @return the result
+     * @throws Exception
+     *             fails the resulting promise
+     */
+    public abstract R apply(T value) throws Exception;
+
+}
@@ -0,0 +1,314 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.exceptions.StorageErrorException;
+
+/**
+ * The Class StoragePromise. A future completed from the storage callbacks, whose result can be observed with callbacks and chained into
+ * dependent operations without blocking a thread.
+ * @param <T>
+ *            the generic type
+ */
+public class StoragePromise<T> extends AbstractStorageFuture<T> {
+
+    /** The Constant NULL_VALUE. Outcome of a promise completed with null. */
+    private static final Object NULL_VALUE = new Object();
+
+    /** The Constant CANCELLED_ERROR. Reported to the callbacks of a cancelled promise. */
+    private static final Error CANCELLED_ERROR = new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.OPERATION_UNAVAILABLE, "Operation cancelled");
+
+    /**
+     * Completed.
+     * @param <T>
+     *            the generic type
+     * @param value
+     *            the value
+     * @return the promise completed with the value
+     */
+    public static <T> StoragePromise<T> completed(final T value) {
+        final StoragePromise<T> promise = new StoragePromise<>();
+        promise.complete(value);
+        return promise;
+    }
+
+    /**
+     * Failed.
+     * @param <T>
+     *            the generic type
+     * @param error
+     *            the error
+     * @return the promise failed with the error
+     */
+    public static <T> StoragePromise<T> failed(final Error error) {
+        final StoragePromise<T> promise = new StoragePromise<>();
+        promise.fail(error);
+        return promise;
+    }
+
+    /**
+     * All.
+     * @param <T>
+     *            the generic type
+     * @param promises
+     *            the promises
+     * @return the promise of the values of all promises, in their order. Fails with the first error
+     */
+    public static <T> StoragePromise<List<T>> all(final List<? extends StoragePromise<? extends T>> promises) {
+
+        final StoragePromise<List<T>> all = new StoragePromise<>();
+        if (promises.isEmpty()) {
+            all.complete(new ArrayList<T>(0));
+            return all;
+        }
+
+        final Object[] values = new Object[promises.size()];
+        final AtomicInteger remaining = new AtomicInteger(values.length);
+
+        for (int i = 0; i < values.length; i++) {
+
+            final int index = i;
+            promises.get(i).onComplete(new StoragePromiseCallback<T>() {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onSuccess(final T value) {
+                    values[index] = value;
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete((List<T>) Arrays.asList(values));
+                    }
+                }
+
+                @Override
+                public void onError(final Error error) {
+                    all.fail(error);
+                }
+
+            });
+
+        }
+
+        return all;
+
+    }
+
+    /**
+     * Complete.
+     * @param completionValue
+     *            the value
+     * @return true, if this call completed the promise
+     */
+    public boolean complete(final T completionValue) {
+        return completeWith(completionValue == null ? NULL_VALUE : completionValue);
+    }
+
+    /**
+     * Fail.
+     * @param failure
+     *            the error
+     * @return true, if this call completed the promise
+     */
+    public boolean fail(final Error failure) {
+        return completeWith(new Failure(failure));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.async.AbstractStorageFuture#expire(co.realtime.storage.exceptions.Error)
+     */
+    @Override
+    protected boolean expire(final Error timeoutError) {
+        return fail(timeoutError);
+    }
+
+    /**
+     * Checks if is failed.
+     * @return true, if the promise failed or was cancelled
+     */
+    public boolean isFailed() {
+        return outcome() instanceof Failure || isCancelled();
+    }
+
+    /**
+     * On complete. The callback runs on the thread completing the promise, or immediately if it is already completed.
+     * @param callback
+     *            the callback
+     * @return this promise
+     */
+    public StoragePromise<T> onComplete(final StoragePromiseCallback<? super T> callback) {
+
+        whenComplete(new Runnable() {
+
+            @Override
+            public void run() {
+                dispatch(callback);
+            }
+
+        });
+
+        return this;
+
+    }
+
+    /**
+     * Map.
+     * @param <U>
+     *            the generic type
+     * @param function
+     *            the function applied to the value
+     * @return the promise of the result of the function
+     */
+    public <U> StoragePromise<U> map(final StorageFunction<? super T, ? extends U> function) {
+
+        final StoragePromise<U> next = new StoragePromise<>();
+        onComplete(new StoragePromiseCallback<T>() {
+
+            @Override
+            public void onSuccess(final T result) {
+                try {
+                    next.complete(function.apply(result));
+                } catch (final Exception e) {
+                    next.fail(toError(e));
+                }
+            }
+
+            @Override
+            public void onError(final Error failure) {
+                next.fail(failure);
+            }
+
+        });
+
+        return next;
+
+    }
+
+    /**
+     * Then, chains a dependent asynchronous operation.
+     * @param <U>
+     *            the generic type
+     * @param function
+     *            the function starting the operation with the value
+     * @return the promise of the result of the operation
+     */
+    public <U> StoragePromise<U> then(final StorageFunction<? super T, ? extends StoragePromise<U>> function) {
+
+        final StoragePromise<U> next = new StoragePromise<>();
+        onComplete(new StoragePromiseCallback<T>() {
+
+            @Override
+            public void onSuccess(final T result) {
+
+                final StoragePromise<U> operation;
+                try {
+                    operation = function.apply(result);
+                } catch (final Exception e) {
+                    next.fail(toError(e));
+                    return;
+                }
+
+                operation.onComplete(new StoragePromiseCallback<U>() {
+
+                    @Override
+                    public void onSuccess(final U operationResult) {
+                        next.complete(operationResult);
+                    }
+
+                    @Override
+                    public void onError(final Error failure) {
+                        next.fail(failure);
+                    }
+
+                });
+
+            }
+
+            @Override
+            public void onError(final Error failure) {
+                next.fail(failure);
+            }
+
+        });
+
+        return next;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.async.AbstractStorageFuture#report(java.lang.Object)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T report(final Object completionOutcome) throws ExecutionException {
+
+        if (completionOutcome instanceof Failure) {
+            throw new ExecutionException(new StorageErrorException(((Failure) completionOutcome).error));
+        }
+
+        return completionOutcome == NULL_VALUE ? null : (T) completionOutcome;
+
+    }
+
+    /**
+     * Dispatch.
+     * @param callback
+     *            the callback
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatch(final StoragePromiseCallback<? super T> callback) {
+
+        final Object completionOutcome = outcome();
+        if (completionOutcome instanceof Failure) {
+            callback.onError(((Failure) completionOutcome).error);
+        } else if (isCancelled()) {
+            callback.onError(CANCELLED_ERROR);
+        } else {
+            callback.onSuccess(completionOutcome == NULL_VALUE ? null : (T) completionOutcome);
+        }
+
+    }
+
+    /**
+     * To error.
+     * @param e
+     *            the exception
+     * @return the error
+     */
+    private static Error toError(final Exception e) {
+
+        if (e instanceof StorageErrorException && ((StorageErrorException) e).getError() != null) {
+            return ((StorageErrorException) e).getError();
+        }
+
+        return new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.UNKNOWN, e.toString());
+
+    }
+
+    /**
+     * The Class Failure. Outcome of a failed promise.
+     */
+    private static final class Failure {
+
+        /** The error. */
+        private final Error error;
+
+        /**
+         * Instantiates a new failure.
+         * @param error
+         *            the error
+         */
+        Failure(final Error error) {
+            this.error = error;
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package co.realtime.storage.async;
+
+import co.realtime.storage.exceptions.Error;
+
+/**
+ * The Class StoragePromiseCallback. Notified once when a storage promise completes.
+ * @param <T>
+ *            the generic type
+ */
+public abstract class StoragePromiseCallback<T> {
+
+    /**
+     * On success.
+     * @param value
+     *            the value
+     */
+    public abstract void onSuccess(T value);
+
+    /**
+     * On error.
+     * @param error
+     *            the error
+     */
+    public abstract void onError(Error error);
+
+}
@@ -0,0 +1,51 @@
+package co.realtime.storage.async;
+
+/**
+ * The Enum StorageRequestKindEnum. The kinds of storage requests, by how they complete and whether they can be retried when throttled.
+ */
+public enum StorageRequestKindEnum {
+
+    /** The read of an item, retried. */
+    READ(true, false),
+    /** The delete of an item, retried. */
+    DELETE(true, false),
+    /** The query, retried until its first result arrives; it completes with a null snapshot. */
+    QUERY(true, true),
+    /** The write of an item, not retried. */
+    WRITE(false, false);
+
+    /** The retryable. */
+    private final boolean retryable;
+
+    /** The multiple snapshots. */
+    private final boolean multipleSnapshots;
+
+    /**
+     * Instantiates a new storage request kind enum.
+     * @param retryable
+     *            the retryable
+     * @param multipleSnapshots
+     *            the multiple snapshots
+     */
+    private StorageRequestKindEnum(final boolean retryable, final boolean multipleSnapshots) {
+        this.retryable = retryable;
+        this.multipleSnapshots = multipleSnapshots;
+    }
+
+    /**
+     * Checks if is retryable.
+     * @return true, if a throttled request is retried
+     */
+    public boolean isRetryable() {
+        return this.retryable;
+    }
+
+    /**
+     * Checks for multiple snapshots.
+     * @return true, if the request delivers snapshots until a null one
+     */
+    public boolean hasMultipleSnapshots() {
+        return this.multipleSnapshots;
+    }
+
+}
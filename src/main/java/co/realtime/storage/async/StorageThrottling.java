@@ -0,0 +1,328 @@
+package co.realtime.storage.async;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.utils.PropertiesUtils;
+
+/**
+ * The Enum StorageThrottling. Client side flow control of the requests to each table: an adaptive limit of requests in flight, which shrinks
+ * when the storage throttles and grows back when it stops, and retries of the throttled idempotent requests with jittered exponential backoff.
+ * Disabled by default, configured by the storage.throttling.* properties of storage.properties.
+ */
+public enum StorageThrottling {
+
+    /** The instance. */
+    INSTANCE;
+
+    /** The Constant ENABLED_PROPERTY. */
+    public static final String ENABLED_PROPERTY = "storage.throttling.enabled";
+
+    /** The Constant INITIAL_LIMIT_PROPERTY. */
+    public static final String INITIAL_LIMIT_PROPERTY = "storage.throttling.initial_limit";
+
+    /** The Constant MAX_LIMIT_PROPERTY. */
+    public static final String MAX_LIMIT_PROPERTY = "storage.throttling.max_limit";
+
+    /** The Constant MAX_RETRIES_PROPERTY. */
+    public static final String MAX_RETRIES_PROPERTY = "storage.throttling.max_retries";
+
+    /** The Constant BASE_BACKOFF_PROPERTY. In milliseconds. */
+    public static final String BASE_BACKOFF_PROPERTY = "storage.throttling.base_backoff_ms";
+
+    /** The Constant MAX_BACKOFF_PROPERTY. In milliseconds. */
+    public static final String MAX_BACKOFF_PROPERTY = "storage.throttling.max_backoff_ms";
+
+    /** The Constant CODE_SIZE. */
+    private static final int CODE_SIZE = 3;
+
+    /** The enabled. */
+    private volatile boolean enabled = false;
+
+    /** The initial limit. */
+    private volatile int initialLimit = 32;
+
+    /** The max limit. */
+    private volatile int maxLimit = 256;
+
+    /** The max retries. */
+    private volatile int maxRetries = 5;
+
+    /** The base backoff in milliseconds. */
+    private volatile long baseBackoffMillis = 50L;
+
+    /** The max backoff in milliseconds. */
+    private volatile long maxBackoffMillis = 5000L;
+
+    /** The limiters, by table name. */
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    /** The throttled requests. */
+    private final AtomicLong throttledRequests = new AtomicLong();
+
+    /** The retries. */
+    private final AtomicLong retries = new AtomicLong();
+
+    /** The retry timer, created with the first retry. */
+    private ScheduledThreadPoolExecutor retryTimer;
+
+    /**
+     * Configure from the storage properties. The limiters are created again with the new limits.
+     * @param properties
+     *            the properties
+     * @throws IllegalArgumentException
+     *             if a limit, retry count or backoff is not a whole number in range
+     */
+    public void configure(final Properties properties) {
+
+        this.initialLimit = PropertiesUtils.intProperty(properties, INITIAL_LIMIT_PROPERTY, this.initialLimit, 1);
+        this.maxLimit = Math.max(this.initialLimit, PropertiesUtils.intProperty(properties, MAX_LIMIT_PROPERTY, this.maxLimit, 1));
+        this.maxRetries = PropertiesUtils.intProperty(properties, MAX_RETRIES_PROPERTY, this.maxRetries, 0);
+        this.baseBackoffMillis = PropertiesUtils.longProperty(properties, BASE_BACKOFF_PROPERTY, this.baseBackoffMillis, 1L);
+        this.maxBackoffMillis = Math.max(this.baseBackoffMillis, PropertiesUtils.longProperty(properties, MAX_BACKOFF_PROPERTY, this.maxBackoffMillis, 1L));
+        this.enabled = PropertiesUtils.booleanProperty(properties, ENABLED_PROPERTY);
+        this.limiters.clear();
+
+    }
+
+    /**
+     * Checks if is enabled.
+     * @return true, if is enabled
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Limiter of a table.
+     * @param tableName
+     *            the table name
+     * @return the limiter of the requests to the table
+     */
+    public AdaptiveConcurrencyLimiter limiterOf(final String tableName) {
+
+        AdaptiveConcurrencyLimiter limiter = this.limiters.get(tableName);
+        if (limiter == null) {
+            final AdaptiveConcurrencyLimiter created = new AdaptiveConcurrencyLimiter(this.initialLimit, 1, this.maxLimit);
+            limiter = this.limiters.putIfAbsent(tableName, created);
+            if (limiter == null) {
+                limiter = created;
+            }
+        }
+
+        return limiter;
+
+    }
+
+    /**
+     * Gets the throttled requests.
+     * @return the number of requests throttled by the storage
+     */
+    public long getThrottledRequests() {
+        return this.throttledRequests.get();
+    }
+
+    /**
+     * Gets the retries.
+     * @return the number of retried requests
+     */
+    public long getRetries() {
+        return this.retries.get();
+    }
+
+    /**
+     * Execute a request to a table, under its limit and retried when throttled if the kind of request allows it. Sent at once when disabled.
+     * @param tableName
+     *            the table name
+     * @param kind
+     *            the kind of request
+     * @param request
+     *            the request
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error, with the last error once the retries are exhausted
+     */
+    public void execute(final String tableName, final StorageRequestKindEnum kind, final ThrottledRequest request, final OnItemSnapshot onItemSnapshot, final OnError onError) {
+
+        if (!this.enabled) {
+            request.send(onItemSnapshot, onError);
+            return;
+        }
+
+        attempt(limiterOf(tableName), kind, request, onItemSnapshot, onError, 0);
+
+    }
+
+    /**
+     * Checks if is throttling.
+     * @param errorCode
+     *            the error code of the storage
+     * @return true, if the error is a throttling of the storage
+     */
+    public static boolean isThrottling(final Integer errorCode) {
+
+        if (errorCode == null) {
+            return false;
+        }
+
+        final String code = errorCode.toString();
+        return code.length() == CODE_SIZE && ErrorTypeEnum.fromCodeType(code.substring(1)).isThrottling();
+
+    }
+
+    /**
+     * Backoff before a retry, with full jitter.
+     * @param attempt
+     *            the attempt that failed, from 0
+     * @return the backoff in milliseconds
+     */
+    long backoffMillis(final int attempt) {
+        final long ceiling = Math.min(this.maxBackoffMillis, this.baseBackoffMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Attempt a request.
+     * @param limiter
+     *            the limiter
+     * @param kind
+     *            the kind
+     * @param request
+     *            the request
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error
+     * @param attempt
+     *            the attempt, from 0
+     */
+    private void attempt(final AdaptiveConcurrencyLimiter limiter, final StorageRequestKindEnum kind, final ThrottledRequest request, final OnItemSnapshot onItemSnapshot, final OnError onError,
+            final int attempt) {
+
+        limiter.acquire(new AdaptiveConcurrencyLimiter.Task() {
+
+            @Override
+            public void start(final AdaptiveConcurrencyLimiter.Permit permit) {
+
+                // a query already delivering results can not be retried without repeating them
+                final AtomicBoolean delivered = new AtomicBoolean(false);
+
+                try {
+                    request.send(new OnItemSnapshot() {
+
+                        @Override
+                        public void run(final ItemSnapshot itemSnapshot) {
+
+                            if (!kind.hasMultipleSnapshots() || itemSnapshot == null) {
+                                permit.release(false);
+                            } else {
+                                delivered.set(true);
+                            }
+
+                            onItemSnapshot.run(itemSnapshot);
+
+                        }
+
+                    }, new OnError() {
+
+                        @Override
+                        public void run(final Integer errorCode, final String errorMessage) {
+
+                            final boolean throttled = isThrottling(errorCode);
+                            permit.release(throttled);
+
+                            if (throttled) {
+                                StorageThrottling.this.throttledRequests.incrementAndGet();
+                                if (kind.isRetryable() && !delivered.get() && attempt < StorageThrottling.this.maxRetries) {
+                                    retry(limiter, kind, request, onItemSnapshot, onError, attempt + 1);
+                                    return;
+                                }
+                            }
+
+                            onError.run(errorCode, errorMessage);
+
+                        }
+
+                    });
+                } catch (final RuntimeException e) {
+                    // the request may run later, from the waiting queue or the retry timer, with no caller left to catch it
+                    permit.release(false);
+                    onError.run(null, e.toString());
+                }
+
+            }
+
+        });
+
+    }
+
+    /**
+     * Retry a request after its backoff.
+     * @param limiter
+     *            the limiter
+     * @param kind
+     *            the kind
+     * @param request
+     *            the request
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error
+     * @param attempt
+     *            the attempt, from 1
+     */
+    private void retry(final AdaptiveConcurrencyLimiter limiter, final StorageRequestKindEnum kind, final ThrottledRequest request, final OnItemSnapshot onItemSnapshot, final OnError onError,
+            final int attempt) {
+
+        this.retries.incrementAndGet();
+        retryTimer().schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    attempt(limiter, kind, request, onItemSnapshot, onError, attempt);
+                } catch (final RuntimeException e) {
+                    onError.run(null, e.toString());
+                }
+            }
+
+        }, backoffMillis(attempt - 1), TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * Retry timer.
+     * @return the retry timer, a single daemon thread
+     */
+    private synchronized ScheduledThreadPoolExecutor retryTimer() {
+
+        if (this.retryTimer == null) {
+            this.retryTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "storage-retries");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+        }
+
+        return this.retryTimer;
+
+    }
+
+}
@@ -0,0 +1,662 @@
+package co.realtime.storage.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.TableRef;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+import co.realtime.storage.utils.PropertiesUtils;
+
+/**
+ * The Enum StorageWriteBehind. Write behind buffer of the saves: the saves of an item are merged while buffered, and a background flusher writes
+ * each item once per flush, on a time or size threshold. A save completes when its merged write is acknowledged. At most one write of an item
+ * is in flight, so the writes of an item are applied in order, and the other operations on an item wait for its pending writes to land. Disabled
+ * by default, configured by the storage.write_behind.* properties of storage.properties.
+ */
+public enum StorageWriteBehind {
+
+    /** The instance. */
+    INSTANCE;
+
+    /** The Constant ENABLED_PROPERTY. */
+    public static final String ENABLED_PROPERTY = "storage.write_behind.enabled";
+
+    /** The Constant FLUSH_INTERVAL_PROPERTY. In milliseconds. */
+    public static final String FLUSH_INTERVAL_PROPERTY = "storage.write_behind.flush_interval_ms";
+
+    /** The Constant FLUSH_SIZE_PROPERTY. Number of buffered items flushed at once, without waiting for the interval. */
+    public static final String FLUSH_SIZE_PROPERTY = "storage.write_behind.flush_size";
+
+    /** The Constant MAX_PENDING_PROPERTY. Number of saves buffered or in flight, further saves wait for room. */
+    public static final String MAX_PENDING_PROPERTY = "storage.write_behind.max_pending";
+
+    /** The Constant MAX_WAIT_PROPERTY. In milliseconds, how long a save waits for room before failing. 0 fails at once. */
+    public static final String MAX_WAIT_PROPERTY = "storage.write_behind.max_wait_ms";
+
+    /** The Constant DEFAULT_FLUSH_INTERVAL_MILLIS. */
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100L;
+
+    /** The Constant DEFAULT_FLUSH_SIZE. */
+    private static final int DEFAULT_FLUSH_SIZE = 256;
+
+    /** The Constant DEFAULT_MAX_PENDING. */
+    private static final int DEFAULT_MAX_PENDING = 10000;
+
+    /** The Constant DEFAULT_MAX_WAIT_MILLIS. */
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 1000L;
+
+    /** The Constant SHUTDOWN_TIMEOUT_MILLIS. Time given to the pending writes when the JVM shuts down. */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    /** The enabled. */
+    private volatile boolean enabled = false;
+
+    /** The flush size. */
+    private volatile int flushSize = DEFAULT_FLUSH_SIZE;
+
+    /** The pending saves, buffered or in flight. */
+    private volatile Semaphore pending = new Semaphore(DEFAULT_MAX_PENDING);
+
+    /** The max wait for room in milliseconds. */
+    private volatile long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+
+    /** The buffered writes, by table and key. */
+    private final ConcurrentMap<List<Object>, Write> buffer = new ConcurrentHashMap<>();
+
+    /** The keys with a write in flight. */
+    private final Set<List<Object>> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<List<Object>, Boolean>());
+
+    /** The operations waiting for the pending writes of their key to land. Guarded by itself. */
+    private final Map<List<Object>, List<Runnable>> afterWrites = new HashMap<>();
+
+    /** The flush requested. */
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    /** The requests sent. */
+    private final AtomicLong requests = new AtomicLong();
+
+    /** The merged saves, written by the request of an earlier save. */
+    private final AtomicLong mergedSaves = new AtomicLong();
+
+    /** The flusher. Null while disabled. */
+    private ScheduledThreadPoolExecutor flusher;
+
+    /** The shutdown hook registered. */
+    private boolean shutdownHookRegistered = false;
+
+    /**
+     * Configure from the storage properties.
+     * @param properties
+     *            the properties
+     * @throws IllegalArgumentException
+     *             if the flush interval, flush size or max pending is not a positive whole number, or the max wait is negative
+     */
+    public synchronized void configure(final Properties properties) {
+
+        final long flushIntervalMillis = PropertiesUtils.longProperty(properties, FLUSH_INTERVAL_PROPERTY, DEFAULT_FLUSH_INTERVAL_MILLIS, 1L);
+        this.flushSize = PropertiesUtils.intProperty(properties, FLUSH_SIZE_PROPERTY, DEFAULT_FLUSH_SIZE, 1);
+
+        final int maxPending = PropertiesUtils.intProperty(properties, MAX_PENDING_PROPERTY, DEFAULT_MAX_PENDING, 1);
+        this.maxWaitMillis = PropertiesUtils.longProperty(properties, MAX_WAIT_PROPERTY, DEFAULT_MAX_WAIT_MILLIS, 0L);
+        if (this.buffer.isEmpty() && this.inFlight.isEmpty()) {
+            this.pending = new Semaphore(maxPending);
+        }
+
+        stopFlusher();
+        this.enabled = PropertiesUtils.booleanProperty(properties, ENABLED_PROPERTY);
+        if (this.enabled) {
+            startFlusher(flushIntervalMillis);
+        }
+
+    }
+
+    /**
+     * Checks if is enabled.
+     * @return true, if the saves are buffered
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Write an item, merged with its buffered write if any. Waits for room while the buffer is full, up to the max wait, and then fails the save
+     * with onError instead of holding the calling thread, which may be a storage callback.
+     * @param table
+     *            the table ref
+     * @param tableName
+     *            the table name
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key, null if none
+     * @param attributes
+     *            the attributes to write
+     * @param whole
+     *            true if the attributes are the whole item, false if only the changed ones and the keys
+     * @param onWritten
+     *            the callback once the write is acknowledged
+     * @param onError
+     *            the callback if the write fails
+     * @throws InterruptedException
+     *             if interrupted while waiting for room
+     */
+    public void write(final TableRef table, final String tableName, final ItemAttribute primaryKey, final ItemAttribute secondaryKey, final Map<String, ItemAttribute> attributes, final boolean whole,
+            final OnItemSnapshot onWritten, final OnError onError) throws InterruptedException {
+
+        if (!this.pending.tryAcquire(this.maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            onError.run(null, String.format("Write behind buffer full, no room within %d ms", Long.valueOf(this.maxWaitMillis)));
+            return;
+        }
+
+        final List<Object> key = keyOf(tableName, primaryKey, secondaryKey);
+
+        for (;;) {
+
+            final Write write = new Write(table, primaryKey, secondaryKey);
+            final Write buffered = this.buffer.putIfAbsent(key, write);
+            final Write target = buffered == null ? write : buffered;
+
+            if (target.merge(attributes, whole, onWritten, onError)) {
+                if (buffered != null) {
+                    this.mergedSaves.incrementAndGet();
+                }
+                break;
+            }
+
+            // taken by the flusher meanwhile, buffer a new write
+            this.buffer.remove(key, target);
+
+        }
+
+        if (this.buffer.size() >= this.flushSize) {
+            requestFlush();
+        }
+
+    }
+
+    /**
+     * Run an operation on an item once its pending writes landed, so that a delete or a counter update is not overwritten by a save made before
+     * it. Runs at once when nothing of the item is buffered or in flight; otherwise its buffered write is flushed and the operation runs on the
+     * thread landing the last of them, whether acknowledged or failed.
+     * @param tableName
+     *            the table name
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key, null if none
+     * @param operation
+     *            the operation
+     */
+    public void afterPendingWrites(final String tableName, final ItemAttribute primaryKey, final ItemAttribute secondaryKey, final Runnable operation) {
+
+        final List<Object> key = keyOf(tableName, primaryKey, secondaryKey);
+        final boolean pendingWrites;
+
+        synchronized (this.afterWrites) {
+            pendingWrites = this.buffer.containsKey(key) || this.inFlight.contains(key);
+            if (pendingWrites) {
+                List<Runnable> operations = this.afterWrites.get(key);
+                if (operations == null) {
+                    operations = new ArrayList<>(1);
+                    this.afterWrites.put(key, operations);
+                }
+                operations.add(operation);
+            }
+        }
+
+        if (pendingWrites) {
+            flush(key);
+        } else {
+            operation.run();
+        }
+
+    }
+
+    /**
+     * Flush the buffered writes of the items without a write in flight.
+     */
+    public void flush() {
+        for (final List<Object> key : this.buffer.keySet()) {
+            flush(key);
+        }
+    }
+
+    /**
+     * Flush the buffered write of an item, unless one is in flight.
+     * @param key
+     *            the key
+     */
+    private void flush(final List<Object> key) {
+
+        if (!this.inFlight.add(key)) {
+            return;
+        }
+
+        final Write write = this.buffer.remove(key);
+        if (write == null) {
+            this.inFlight.remove(key);
+            // a write landed meanwhile may have left its waiting operations to this flush
+            runAfterWrites(landed(key));
+            return;
+        }
+
+        send(key, write.seal());
+
+    }
+
+    /**
+     * Shutdown. New saves are written directly, and the buffered ones are flushed.
+     * @param timeout
+     *            the time to wait for the buffered writes to be acknowledged
+     * @param unit
+     *            the unit
+     * @return true, if every buffered write was acknowledged
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    public boolean shutdown(final long timeout, final TimeUnit unit) throws InterruptedException {
+
+        synchronized (this) {
+            this.enabled = false;
+            stopFlusher();
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!this.buffer.isEmpty() || !this.inFlight.isEmpty()) {
+            if (System.nanoTime() - deadline >= 0L) {
+                return false;
+            }
+            flush();
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Gets the buffered items.
+     * @return the number of items with a write waiting for the flusher
+     */
+    public int getBufferedItems() {
+        return this.buffer.size();
+    }
+
+    /**
+     * Gets the requests.
+     * @return the number of writes sent to the storage
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the merged saves.
+     * @return the number of saves written by the request of an earlier save of the same item
+     */
+    public long getMergedSaves() {
+        return this.mergedSaves.get();
+    }
+
+    /**
+     * Send a write.
+     * @param key
+     *            the key
+     * @param write
+     *            the write, sealed
+     */
+    private void send(final List<Object> key, final Write write) {
+
+        final OnItemSnapshot acknowledged = new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+                land(key, write);
+                for (final OnItemSnapshot onWritten : write.onWritten) {
+                    onWritten.run(itemSnapshot);
+                }
+                afterLanding(key);
+            }
+
+        };
+
+        final OnError failed = new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                land(key, write);
+                for (final OnError onError : write.onErrors) {
+                    onError.run(errorCode, errorMessage);
+                }
+                afterLanding(key);
+            }
+
+        };
+
+        this.requests.incrementAndGet();
+        try {
+            StorageThrottling.INSTANCE.execute((String) key.get(0), StorageRequestKindEnum.WRITE, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                    if (write.whole) {
+                        write.table.push(write.attributes, onItemSnapshot, onError);
+                    } else {
+                        write.table.item(write.primaryKey, write.secondaryKey).set(write.attributes, onItemSnapshot, onError);
+                    }
+                }
+
+            }, acknowledged, failed);
+        } catch (final RuntimeException e) {
+            // the saves merged into the write fail with it, instead of waiting forever
+            failed.run(null, e.toString());
+        }
+
+    }
+
+    /**
+     * Land a write, releasing its key and its room in the buffer.
+     * @param key
+     *            the key
+     * @param write
+     *            the write
+     */
+    private void land(final List<Object> key, final Write write) {
+        this.inFlight.remove(key);
+        this.pending.release(write.onWritten.size());
+    }
+
+    /**
+     * After a write of an item landed, run the operations waiting for its pending writes, or flush the write buffered meanwhile they wait for.
+     * @param key
+     *            the key
+     */
+    private void afterLanding(final List<Object> key) {
+
+        final List<Runnable> operations = landed(key);
+        if (operations != null) {
+            runAfterWrites(operations);
+        } else if (isWaited(key)) {
+            flush(key);
+        }
+
+    }
+
+    /**
+     * Take the operations waiting for the writes of an item, once none is buffered or in flight.
+     * @param key
+     *            the key
+     * @return the operations, null if none or if a write is still pending
+     */
+    private List<Runnable> landed(final List<Object> key) {
+
+        synchronized (this.afterWrites) {
+            if (this.afterWrites.isEmpty() || this.buffer.containsKey(key) || this.inFlight.contains(key)) {
+                return null;
+            }
+            return this.afterWrites.remove(key);
+        }
+
+    }
+
+    /**
+     * Checks if operations wait for the writes of an item.
+     * @param key
+     *            the key
+     * @return true, if is waited
+     */
+    private boolean isWaited(final List<Object> key) {
+
+        synchronized (this.afterWrites) {
+            return this.afterWrites.containsKey(key);
+        }
+
+    }
+
+    /**
+     * Run the operations that waited for the writes of an item, each on its own.
+     * @param operations
+     *            the operations, may be null
+     */
+    private static void runAfterWrites(final List<Runnable> operations) {
+
+        if (operations == null) {
+            return;
+        }
+
+        for (final Runnable operation : operations) {
+            try {
+                operation.run();
+            } catch (final RuntimeException e) {
+                StorageCallbackExecutor.INSTANCE.handleException(e);
+            }
+        }
+
+    }
+
+    /**
+     * Key of an item.
+     * @param tableName
+     *            the table name
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key, null if none
+     * @return the key
+     */
+    private static List<Object> keyOf(final String tableName, final ItemAttribute primaryKey, final ItemAttribute secondaryKey) {
+        return Arrays.<Object> asList(tableName, primaryKey.get(), secondaryKey == null ? null : secondaryKey.get());
+    }
+
+    /**
+     * Request a flush from the flusher, without waiting for the interval.
+     */
+    private synchronized void requestFlush() {
+
+        if (this.flusher == null || !this.flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.flusher.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                StorageWriteBehind.this.flushRequested.set(false);
+                flush();
+            }
+
+        });
+
+    }
+
+    /**
+     * Start flusher.
+     * @param flushIntervalMillis
+     *            the flush interval in milliseconds
+     */
+    private void startFlusher(final long flushIntervalMillis) {
+
+        this.flusher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "storage-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        });
+
+        this.flusher.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (final RuntimeException e) {
+                    // keeps the flusher scheduled
+                    StorageCallbackExecutor.INSTANCE.handleException(e);
+                }
+            }
+
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+
+        if (!this.shutdownHookRegistered) {
+            this.shutdownHookRegistered = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        shutdown(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            }, "storage-write-behind-shutdown"));
+        }
+
+    }
+
+    /**
+     * Stop flusher.
+     */
+    private void stopFlusher() {
+
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            this.flusher = null;
+        }
+
+    }
+
+    /**
+     * The Class Write. The merged saves of an item, written by one request.
+     */
+    static final class Write {
+
+        /** The table. */
+        private final TableRef table;
+
+        /** The primary key. */
+        private final ItemAttribute primaryKey;
+
+        /** The secondary key. */
+        private final ItemAttribute secondaryKey;
+
+        /** The attributes. */
+        private LinkedHashMap<String, ItemAttribute> attributes = new LinkedHashMap<>();
+
+        /** The whole. True once a save of the whole item was merged, which is then pushed instead of updated. */
+        private boolean whole = false;
+
+        /** The on written callbacks. */
+        private final List<OnItemSnapshot> onWritten = new ArrayList<>(1);
+
+        /** The on error callbacks. */
+        private final List<OnError> onErrors = new ArrayList<>(1);
+
+        /** The sealed. True once taken by the flusher. */
+        private boolean sealed = false;
+
+        /**
+         * Instantiates a new write.
+         * @param table
+         *            the table
+         * @param primaryKey
+         *            the primary key
+         * @param secondaryKey
+         *            the secondary key
+         */
+        Write(final TableRef table, final ItemAttribute primaryKey, final ItemAttribute secondaryKey) {
+            this.table = table;
+            this.primaryKey = primaryKey;
+            this.secondaryKey = secondaryKey;
+        }
+
+        /**
+         * Merge a save. A whole item replaces the attributes merged so far, the changed attributes are applied over them.
+         * @param savedAttributes
+         *            the saved attributes
+         * @param savedWhole
+         *            the saved whole
+         * @param onItemSnapshot
+         *            the on item snapshot
+         * @param onError
+         *            the on error
+         * @return true, if merged. False if the write was already taken by the flusher
+         */
+        synchronized boolean merge(final Map<String, ItemAttribute> savedAttributes, final boolean savedWhole, final OnItemSnapshot onItemSnapshot, final OnError onError) {
+
+            if (this.sealed) {
+                return false;
+            }
+
+            if (savedWhole) {
+                this.attributes = new LinkedHashMap<>(savedAttributes);
+                this.whole = true;
+            } else {
+                this.attributes.putAll(savedAttributes);
+            }
+
+            this.onWritten.add(onItemSnapshot);
+            this.onErrors.add(onError);
+            return true;
+
+        }
+
+        /**
+         * Attributes.
+         * @return the merged attributes
+         */
+        synchronized Map<String, ItemAttribute> attributes() {
+            return this.attributes;
+        }
+
+        /**
+         * Checks if is whole.
+         * @return true, if the item is pushed whole
+         */
+        synchronized boolean isWhole() {
+            return this.whole;
+        }
+
+        /**
+         * Saves.
+         * @return the number of merged saves
+         */
+        synchronized int saves() {
+            return this.onWritten.size();
+        }
+
+        /**
+         * Seal the write, no more saves are merged.
+         * @return the write
+         */
+        synchronized Write seal() {
+            this.sealed = true;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package co.realtime.storage.async;
+
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+
+/**
+ * The Class ThrottledRequest. A storage request sent by StorageThrottling, once per attempt.
+ */
+public abstract class ThrottledRequest {
+
+    /**
+     * Send the request.
+     * @param onItemSnapshot
+     *            the on item snapshot
+     * @param onError
+     *            the on error
+     */
+    public abstract void send(OnItemSnapshot onItemSnapshot, OnError onError);
+
+}
@@ -5,6 +5,11 @@ import java.io.InputStream;
 import java.util.Properties;
 
 import co.realtime.storage.StorageRef;
+import co.realtime.storage.async.StorageCallbackExecutor;
+import co.realtime.storage.async.StorageDeadlines;
+import co.realtime.storage.async.StorageFetchCoalescer;
+import co.realtime.storage.async.StorageThrottling;
+import co.realtime.storage.async.StorageWriteBehind;
 import co.realtime.storage.ext.StorageException;
 
 /**
@@ -121,6 +126,27 @@ public enum StorageRefFactorySingleton {
                     this.endpoint = properties.getProperty(ENDPOINT_PROPERTY);
                 }
 
+                if (properties.containsKey(StorageCallbackExecutor.EXECUTOR_PROPERTY) || properties.containsKey(StorageCallbackExecutor.POOL_SIZE_PROPERTY)
+                        || properties.containsKey(StorageCallbackExecutor.QUEUE_SIZE_PROPERTY)) {
+                    StorageCallbackExecutor.INSTANCE.configure(properties);
+                }
+
+                if (properties.containsKey(StorageDeadlines.TIMEOUT_PROPERTY)) {
+                    StorageDeadlines.INSTANCE.configure(properties);
+                }
+
+                if (properties.containsKey(StorageFetchCoalescer.COALESCE_PROPERTY)) {
+                    StorageFetchCoalescer.INSTANCE.configure(properties);
+                }
+
+                if (properties.containsKey(StorageWriteBehind.ENABLED_PROPERTY)) {
+                    StorageWriteBehind.INSTANCE.configure(properties);
+                }
+
+                if (properties.containsKey(StorageThrottling.ENABLED_PROPERTY)) {
+                    StorageThrottling.INSTANCE.configure(properties);
+                }
+
             }
 
         } catch (final IOException e) {
@@ -39,7 +39,7 @@ public class Error {
         }
 
         this.errorSource = ErrorSourceEnum.fromSourceCode(Integer.valueOf(code.substring(0, 1)).intValue());
-        this.errorType = ErrorTypeEnum.valueOf(code.substring(1, CODE_SIZE));
+        this.errorType = ErrorTypeEnum.fromCodeType(code.substring(1, CODE_SIZE));
 
     }
 
@@ -103,7 +103,7 @@ public class Error {
      */
     @Override
     public String toString() {
-        return String.format("Code: %d; Message: %s ", this.code, this.message);
+        return String.format("Code: %s; Message: %s ", this.code, this.message);
     }
 
 }
@@ -44,7 +44,9 @@ public enum ErrorTypeEnum {
     /** The role not found. */
     ROLE_NOT_FOUND("20"),
     /** The account blocked. */
-    ACCOUNT_BLOCKED("21");
+    ACCOUNT_BLOCKED("21"),
+    /** The timeout. Raised by the client when the deadline of an operation passes. */
+    TIMEOUT("90");
 
     /** The Constant DEFAULT. */
     private final static ErrorTypeEnum DEFAULT = UNKNOWN;
@@ -69,6 +71,14 @@ public enum ErrorTypeEnum {
         return this.code;
     }
 
+    /**
+     * Checks if is throttling.
+     * @return true, if the storage is shedding load and the request can be retried later
+     */
+    public boolean isThrottling() {
+        return this == THROTTLING || this == PROVISIONED_THROUGHPUT_EXCEEDED || this == RESOURCE_UNAVAILABLE;
+    }
+
     /**
      * From code type.
      * @param codeType
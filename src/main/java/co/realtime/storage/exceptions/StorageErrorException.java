@@ -0,0 +1,32 @@
+package co.realtime.storage.exceptions;
+
+/**
+ * The Class StorageErrorException. Carries the storage error of a failed asynchronous operation.
+ */
+public class StorageErrorException extends Exception {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The error. */
+    private final transient Error error;
+
+    /**
+     * Instantiates a new storage error exception.
+     * @param error
+     *            the error
+     */
+    public StorageErrorException(final Error error) {
+        super(error == null ? null : error.toString());
+        this.error = error;
+    }
+
+    /**
+     * Gets the error.
+     * @return the error
+     */
+    public Error getError() {
+        return this.error;
+    }
+
+}
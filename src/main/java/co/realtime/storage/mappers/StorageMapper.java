@@ -0,0 +1,47 @@
+package co.realtime.storage.mappers;
+
+import java.util.Map;
+
+import co.realtime.storage.ItemAttribute;
+
+/**
+ * The Interface StorageMapper. Implemented by the mappers generated at compile time for the classes annotated with StorageTable.
+ * @param <R>
+ *            the generic type
+ */
+public interface StorageMapper<R> {
+
+    /**
+     * Map the storage attributes to the instance, replacing its storage info.
+     * @param instance
+     *            the instance
+     * @param attributes
+     *            the attributes
+     */
+    void mapAttributes(R instance, Map<String, ItemAttribute> attributes);
+
+    /**
+     * Instance to attributes.
+     * @param instance
+     *            the instance
+     * @return the map
+     */
+    Map<String, ItemAttribute> toAttributes(R instance);
+
+    /**
+     * Primary key.
+     * @param instance
+     *            the instance
+     * @return the primary key value
+     */
+    Object primaryKey(R instance);
+
+    /**
+     * Secondary key.
+     * @param instance
+     *            the instance
+     * @return the secondary key value
+     */
+    Object secondaryKey(R instance);
+
+}
@@ -0,0 +1,433 @@
+package co.realtime.storage.mappers;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.annotations.LazyJsonPropertiesHolder;
+import co.realtime.storage.annotations.StorageAnnotationsManager;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.annotations.StorageValueConverters;
+import co.realtime.storage.utils.TypeValidatorUtils;
+
+/**
+ * The Class StorageMapperSupport. Typed conversions used by the generated mappers.
+ */
+public final class StorageMapperSupport {
+
+    /**
+     * Instantiates a new storage mapper support.
+     */
+    private StorageMapperSupport() {
+        // static access only
+    }
+
+    /**
+     * Value.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @return the raw value of the attribute. Null if not present
+     */
+    public static Object value(final Map<String, ItemAttribute> attributes, final String name) {
+        final ItemAttribute attribute = attributes.get(name);
+        return attribute == null ? null : attribute.get();
+    }
+
+    /**
+     * To string value.
+     * @param value
+     *            the value
+     * @return the string
+     */
+    public static String toStringValue(final Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Convert through the converter registered for the type.
+     * @param <T>
+     *            the generic type
+     * @param value
+     *            the value
+     * @param type
+     *            the property type
+     * @return the converted value
+     */
+    public static <T> T convert(final Object value, final Class<T> type) {
+        return StorageValueConverters.fromStorage(type, value);
+    }
+
+    /**
+     * To long value.
+     * @param value
+     *            the value, not null
+     * @return the long
+     */
+    public static long toLongValue(final Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    /**
+     * To int value.
+     * @param value
+     *            the value, not null
+     * @return the int
+     */
+    public static int toIntValue(final Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * To short value.
+     * @param value
+     *            the value, not null
+     * @return the short
+     */
+    public static short toShortValue(final Object value) {
+        return value instanceof Number ? ((Number) value).shortValue() : Short.parseShort(value.toString());
+    }
+
+    /**
+     * To byte value.
+     * @param value
+     *            the value, not null
+     * @return the byte
+     */
+    public static byte toByteValue(final Object value) {
+        return value instanceof Number ? ((Number) value).byteValue() : Byte.parseByte(value.toString());
+    }
+
+    /**
+     * To double value.
+     * @param value
+     *            the value, not null
+     * @return the double
+     */
+    public static double toDoubleValue(final Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * To float value.
+     * @param value
+     *            the value, not null
+     * @return the float
+     */
+    public static float toFloatValue(final Object value) {
+        return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+    }
+
+    /**
+     * To boolean value.
+     * @param value
+     *            the value, not null
+     * @return the boolean
+     */
+    public static boolean toBooleanValue(final Object value) {
+        return value instanceof Boolean ? ((Boolean) value).booleanValue() : Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * To long.
+     * @param value
+     *            the value
+     * @return the long
+     */
+    public static Long toLong(final Object value) {
+        return value == null ? null : StorageValueConverters.LONG.fromStorage(value);
+    }
+
+    /**
+     * To integer.
+     * @param value
+     *            the value
+     * @return the integer
+     */
+    public static Integer toInteger(final Object value) {
+        return value == null ? null : StorageValueConverters.INTEGER.fromStorage(value);
+    }
+
+    /**
+     * To short.
+     * @param value
+     *            the value
+     * @return the short
+     */
+    public static Short toShort(final Object value) {
+        return value == null ? null : StorageValueConverters.SHORT.fromStorage(value);
+    }
+
+    /**
+     * To byte.
+     * @param value
+     *            the value
+     * @return the byte
+     */
+    public static Byte toByte(final Object value) {
+        return value == null ? null : StorageValueConverters.BYTE.fromStorage(value);
+    }
+
+    /**
+     * To double.
+     * @param value
+     *            the value
+     * @return the double
+     */
+    public static Double toDouble(final Object value) {
+        return value == null ? null : StorageValueConverters.DOUBLE.fromStorage(value);
+    }
+
+    /**
+     * To float.
+     * @param value
+     *            the value
+     * @return the float
+     */
+    public static Float toFloat(final Object value) {
+        return value == null ? null : StorageValueConverters.FLOAT.fromStorage(value);
+    }
+
+    /**
+     * To big decimal.
+     * @param value
+     *            the value
+     * @return the big decimal
+     */
+    public static BigDecimal toBigDecimal(final Object value) {
+        return value == null ? null : StorageValueConverters.BIG_DECIMAL.fromStorage(value);
+    }
+
+    /**
+     * To atomic integer.
+     * @param value
+     *            the value
+     * @return the atomic integer
+     */
+    public static AtomicInteger toAtomicInteger(final Object value) {
+        return value == null ? null : StorageValueConverters.ATOMIC_INTEGER.fromStorage(value);
+    }
+
+    /**
+     * To atomic long.
+     * @param value
+     *            the value
+     * @return the atomic long
+     */
+    public static AtomicLong toAtomicLong(final Object value) {
+        return value == null ? null : StorageValueConverters.ATOMIC_LONG.fromStorage(value);
+    }
+
+    /**
+     * To boolean.
+     * @param value
+     *            the value
+     * @return the boolean
+     */
+    public static Boolean toBoolean(final Object value) {
+        return value == null ? null : StorageValueConverters.BOOLEAN.fromStorage(value);
+    }
+
+    /**
+     * From json.
+     * @param <T>
+     *            the generic type
+     * @param value
+     *            the json value
+     * @param klass
+     *            the klass
+     * @return the instance of klass
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fromJson(final Object value, final Class<T> klass) {
+        return (T) StorageAnnotationsManager.jsonToInstance(value.toString(), klass);
+    }
+
+    /**
+     * From json collection.
+     * @param value
+     *            the json value
+     * @param itemsClass
+     *            the items class
+     * @return the list
+     */
+    public static List<Object> fromJsonCollection(final Object value, final Class<?> itemsClass) {
+        return StorageAnnotationsManager.jsonToCollection(value.toString(), itemsClass);
+    }
+
+    /**
+     * To embedded.
+     * @param <T>
+     *            the generic type
+     * @param klass
+     *            the klass
+     * @param attributes
+     *            the attributes
+     * @return the instance of klass mapped from the attributes
+     * @throws IllegalStateException
+     *             if klass can not be instantiated
+     */
+    public static <T> T toEmbedded(final Class<T> klass, final Map<String, ItemAttribute> attributes) {
+
+        try {
+            final T instance = klass.cast(StorageMappingRegistry.planOf(klass).newInstance());
+            StorageAnnotationsManager.mapItemAttributesToInstance(instance, attributes);
+            return instance;
+        } catch (final InstantiationException e) {
+            throw new IllegalStateException(String.format("Cannot instantiate embedded %s", klass.getName()), e);
+        }
+
+    }
+
+    /**
+     * Put string.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param value
+     *            the value
+     */
+    public static void putString(final Map<String, ItemAttribute> attributes, final String name, final String value) {
+        if (value != null) {
+            attributes.put(name, new ItemAttribute(value));
+        }
+    }
+
+    /**
+     * Put number.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param value
+     *            the value
+     */
+    public static void putNumber(final Map<String, ItemAttribute> attributes, final String name, final Number value) {
+        if (value != null) {
+            attributes.put(name, new ItemAttribute(value));
+        }
+    }
+
+    /**
+     * Put value.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param rawValue
+     *            the value, converted by the converter registered for its class
+     */
+    public static void putValue(final Map<String, ItemAttribute> attributes, final String name, final Object rawValue) {
+
+        final Object value = StorageValueConverters.toStorage(rawValue);
+
+        if (value instanceof Number) {
+            attributes.put(name, new ItemAttribute((Number) value));
+        } else if (value instanceof String || value != null && TypeValidatorUtils.isWrapperType(value.getClass())) {
+            attributes.put(name, new ItemAttribute(value.toString()));
+        } else if (value != null) {
+            attributes.putAll(StorageAnnotationsManager.instanceToAttributes(value));
+        }
+
+    }
+
+    /**
+     * Put enum.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param value
+     *            the value
+     */
+    public static void putEnum(final Map<String, ItemAttribute> attributes, final String name, final Enum<?> value) {
+        if (value != null) {
+            attributes.put(name, new ItemAttribute(value.toString()));
+        }
+    }
+
+    /**
+     * Put json.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param value
+     *            the value
+     */
+    public static void putJson(final Map<String, ItemAttribute> attributes, final String name, final Object value) {
+        if (value != null) {
+            attributes.put(name, new ItemAttribute(StorageAnnotationsManager.instanceToJson(value)));
+        }
+    }
+
+    /**
+     * Put json collection.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param value
+     *            the value
+     */
+    public static void putJsonCollection(final Map<String, ItemAttribute> attributes, final String name, final Object value) {
+        if (value instanceof Collection<?>) {
+            attributes.put(name, new ItemAttribute(StorageAnnotationsManager.collectionToJson((Collection<?>) value)));
+        }
+    }
+
+    /**
+     * Defer json.
+     * @param holder
+     *            the holder
+     * @param name
+     *            the name
+     * @param value
+     *            the raw json value
+     */
+    public static void deferJson(final LazyJsonPropertiesHolder holder, final String name, final Object value) {
+        holder.deferJsonProperty(name, value.toString());
+    }
+
+    /**
+     * Put deferred json.
+     * @param attributes
+     *            the attributes
+     * @param name
+     *            the name
+     * @param holder
+     *            the holder
+     * @return true, if the raw json was still deferred and has been put unchanged
+     */
+    public static boolean putDeferredJson(final Map<String, ItemAttribute> attributes, final String name, final LazyJsonPropertiesHolder holder) {
+
+        final String json = holder.deferredJsonProperty(name);
+        if (json != null) {
+            attributes.put(name, new ItemAttribute(json));
+            return true;
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Put embedded.
+     * @param attributes
+     *            the attributes
+     * @param value
+     *            the value
+     */
+    public static void putEmbedded(final Map<String, ItemAttribute> attributes, final Object value) {
+        if (value != null) {
+            attributes.putAll(StorageAnnotationsManager.instanceToAttributes(value));
+        }
+    }
+
+}
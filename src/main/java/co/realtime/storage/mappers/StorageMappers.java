@@ -0,0 +1,79 @@
+package co.realtime.storage.mappers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class StorageMappers. Resolves, once per class, the mapper generated by the StorageMapperProcessor.
+ */
+public final class StorageMappers {
+
+    /** The Constant MAPPER_CLASS_SUFFIX. */
+    public static final String MAPPER_CLASS_SUFFIX = "StorageMapper";
+
+    /** The Constant NO_MAPPER. Marks the classes without a generated mapper. */
+    private static final Object NO_MAPPER = new Object();
+
+    /** The mappers. */
+    private static final ConcurrentMap<Class<?>, Object> MAPPERS = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new storage mappers.
+     */
+    private StorageMappers() {
+        // static access only
+    }
+
+    /**
+     * Mapper for.
+     * @param <R>
+     *            the generic type
+     * @param klass
+     *            the klass
+     * @return the generated storage mapper. Null if there is no generated mapper for klass
+     * @throws IllegalStateException
+     *             if the generated mapper of klass can not be instantiated
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> StorageMapper<R> mapperFor(final Class<? extends R> klass) {
+
+        Object mapper = MAPPERS.get(klass);
+        if (mapper == null) {
+            mapper = loadMapper(klass);
+            final Object previousMapper = MAPPERS.putIfAbsent(klass, mapper);
+            if (previousMapper != null) {
+                mapper = previousMapper;
+            }
+        }
+
+        return mapper == NO_MAPPER ? null : (StorageMapper<R>) mapper;
+
+    }
+
+    /**
+     * Load mapper.
+     * @param klass
+     *            the klass
+     * @return the generated mapper instance or NO_MAPPER
+     * @throws IllegalStateException
+     *             if the generated mapper can not be instantiated
+     */
+    private static Object loadMapper(final Class<?> klass) {
+
+        try {
+            final Class<?> mapperClass = Class.forName(klass.getName() + MAPPER_CLASS_SUFFIX, true, klass.getClassLoader());
+            if (StorageMapper.class.isAssignableFrom(mapperClass)) {
+                return mapperClass.newInstance();
+            }
+        } catch (final ClassNotFoundException e) {
+            // no generated mapper, reflection will be used
+        } catch (InstantiationException | IllegalAccessException e) {
+            // a generated mapper is expected to be used, falling back to reflection would hide a broken build
+            throw new IllegalStateException(String.format("Cannot instantiate the generated mapper of %s", klass.getName()), e);
+        }
+
+        return NO_MAPPER;
+
+    }
+
+}
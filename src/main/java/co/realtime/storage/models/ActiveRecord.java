@@ -1,8 +1,16 @@
 package co.realtime.storage.models;
 
-import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import co.realtime.storage.ItemAttribute;
 import co.realtime.storage.ItemRef;
@@ -10,28 +18,51 @@ import co.realtime.storage.ItemSnapshot;
 import co.realtime.storage.StorageRef;
 import co.realtime.storage.StorageRef.StorageDataType;
 import co.realtime.storage.TableRef;
+import co.realtime.storage.annotations.LazyJsonPropertiesHolder;
+import co.realtime.storage.annotations.ShardedCounterMapping;
 import co.realtime.storage.annotations.StorageAnnotationsManager;
-import co.realtime.storage.annotations.StorageProperty;
+import co.realtime.storage.annotations.StorageKeyDescriptor;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.annotations.StoragePropertyMapping;
+import co.realtime.storage.annotations.StoragePropertyKindEnum;
 import co.realtime.storage.annotations.StorageTable;
+import co.realtime.storage.api.ActiveRecordsBatchState;
+import co.realtime.storage.api.ActiveRecordsKeyedState;
 import co.realtime.storage.api.OnErrorCommand;
 import co.realtime.storage.api.OnSuccessCollectionCommand;
 import co.realtime.storage.api.OnSuccessRecordCommand;
+import co.realtime.storage.api.QueryCursor;
+import co.realtime.storage.api.QueryPage;
 import co.realtime.storage.api.QueryRef;
+import co.realtime.storage.api.StorageKey;
+import co.realtime.storage.async.ActiveRecordBatch;
 import co.realtime.storage.async.ActiveRecordStateFuture;
 import co.realtime.storage.async.ActiveRecordsCollectionStateFuture;
+import co.realtime.storage.async.StorageDeadlines;
+import co.realtime.storage.async.StorageFetchCoalescer;
+import co.realtime.storage.async.StorageFunction;
+import co.realtime.storage.async.StoragePromise;
+import co.realtime.storage.async.StorageRequestKindEnum;
+import co.realtime.storage.async.StorageThrottling;
+import co.realtime.storage.async.StorageWriteBehind;
+import co.realtime.storage.async.ThrottledRequest;
 import co.realtime.storage.connection.StorageRefFactorySingleton;
 import co.realtime.storage.exceptions.Error;
 import co.realtime.storage.exceptions.ErrorSourceEnum;
 import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.mappers.StorageMapper;
+import co.realtime.storage.mappers.StorageMappers;
 import co.realtime.storage.ext.OnError;
 import co.realtime.storage.ext.OnItemSnapshot;
 import co.realtime.storage.ext.StorageException;
+import co.realtime.storage.utils.TypeValidatorUtils;
 
 /**
  * The Class ActiveRecord.
  */
 /* cannot be instantiated */
-public abstract class ActiveRecord {
+public abstract class ActiveRecord implements LazyJsonPropertiesHolder {
 
     /** The table name. */
     protected String tableName;
@@ -48,12 +79,29 @@ public abstract class ActiveRecord {
     /** The item ref. */
     private ItemRef itemRef = null;
 
+    /** The raw json of the lazy properties not loaded yet. */
+    private Map<String, String> deferredJsonProperties = null;
+
+    /** The stored attributes. The attributes seen on the last load or save, to send only the changed ones. */
+    private Map<String, ItemAttribute> storedAttributes = null;
+
+    /** The stored attributes shared. True while the stored attributes are the map of the loaded snapshot, copied before they change. */
+    private boolean storedAttributesShared = false;
+
+    /** The mapping plan. */
+    private final StorageMappingPlan mappingPlan;
+
+    /** The generated storage mapper. Null if this class is mapped by reflection. */
+    private final StorageMapper<ActiveRecord> storageMapper;
+
     /**
      * Instantiates a new active record.
      */
     public ActiveRecord() {
 
-        final Class<?> klass = this.getClass();
+        final Class<? extends ActiveRecord> klass = this.getClass();
+        this.mappingPlan = StorageMappingRegistry.planOf(klass);
+        this.storageMapper = StorageMappers.<ActiveRecord> mapperFor(klass);
 
         // is an Entity
         this.tableName = klass.getSimpleName().replace("Record", "");
@@ -81,27 +129,7 @@ public abstract class ActiveRecord {
      * @return the primary key type
      */
     public StorageDataType getPrimaryKeyType() {
-
-        final Field[] fields = this.getClass().getDeclaredFields();
-        for (final Field f : fields) {
-            if (f.isAnnotationPresent(StorageProperty.class)) {
-                final StorageProperty storagePropertyAnnotation = f.getAnnotation(StorageProperty.class);
-                if (storagePropertyAnnotation.isPrimaryKey()) {
-                    try {
-                        f.setAccessible(true);
-                        final Object primaryKeyFieldInstance = f.getType().newInstance();
-                        if (primaryKeyFieldInstance instanceof Number) {
-                            return StorageDataType.NUMBER;
-                        }
-                    } catch (IllegalArgumentException | IllegalAccessException | InstantiationException e) {
-                        // TODO
-                    }
-                }
-            }
-        }
-
-        return StorageDataType.STRING;
-
+        return this.mappingPlan.getPrimaryKey().getDataType();
     }
 
     /**
@@ -109,27 +137,7 @@ public abstract class ActiveRecord {
      * @return the secondary key type
      */
     public StorageDataType getSecondaryKeyType() {
-
-        final Field[] fields = this.getClass().getDeclaredFields();
-        for (final Field f : fields) {
-            if (f.isAnnotationPresent(StorageProperty.class)) {
-                final StorageProperty storagePropertyAnnotation = f.getAnnotation(StorageProperty.class);
-                if (storagePropertyAnnotation.isSecondaryKey()) {
-                    try {
-                        f.setAccessible(true);
-                        final Object secondaryKeyFieldInstance = f.getType().newInstance();
-                        if (secondaryKeyFieldInstance instanceof Number) {
-                            return StorageDataType.NUMBER;
-                        }
-                    } catch (IllegalArgumentException | IllegalAccessException | InstantiationException e) {
-                        // TODO
-                    }
-                }
-            }
-        }
-
-        return StorageDataType.STRING;
-
+        return this.mappingPlan.getSecondaryKey().getDataType();
     }
 
     /**
@@ -138,37 +146,11 @@ public abstract class ActiveRecord {
      */
     public Object getPrimaryKey() {
 
-        final Field[] fields = this.getClass().getDeclaredFields();
-        Field fieldByPrimaryKeyName = null;
-        for (final Field f : fields) {
-            if (f.isAnnotationPresent(StorageProperty.class)) {
-                final StorageProperty storagePropertyAnnotation = f.getAnnotation(StorageProperty.class);
-                if (storagePropertyAnnotation.isPrimaryKey()) {
-                    try {
-                        f.setAccessible(true);
-                        return f.get(this);
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
-                } else if (f.getName().equals(this.primaryKeyName)) {
-                    fieldByPrimaryKeyName = f;
-                }
-            }
-        }
-
-        // default if no StorageProperty with isPrimaryKey attribute
-        if (fieldByPrimaryKeyName != null) {
-            try {
-                fieldByPrimaryKeyName.setAccessible(true);
-                return fieldByPrimaryKeyName.get(this);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+        if (this.storageMapper != null) {
+            return this.storageMapper.primaryKey(this);
         }
 
-        return null;
+        return this.mappingPlan.getPrimaryKey().get(this);
 
     }
 
@@ -178,37 +160,11 @@ public abstract class ActiveRecord {
      */
     public Object getSecondaryKey() {
 
-        final Field[] fields = this.getClass().getDeclaredFields();
-        Field fieldBySecondaryKeyName = null;
-        for (final Field f : fields) {
-            if (f.isAnnotationPresent(StorageProperty.class)) {
-                final StorageProperty storagePropertyAnnotation = f.getAnnotation(StorageProperty.class);
-                if (storagePropertyAnnotation.isSecondaryKey()) {
-                    try {
-                        f.setAccessible(true);
-                        return f.get(this);
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
-                    }
-                } else if (f.getName().equals(this.secondaryKeyName)) {
-                    fieldBySecondaryKeyName = f;
-                }
-            }
-        }
-
-        // default if no StorageProperty with isPrimaryKey attribute
-        if (fieldBySecondaryKeyName != null) {
-            try {
-                fieldBySecondaryKeyName.setAccessible(true);
-                return fieldBySecondaryKeyName.get(this);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+        if (this.storageMapper != null) {
+            return this.storageMapper.secondaryKey(this);
         }
 
-        return null;
+        return this.mappingPlan.getSecondaryKey().get(this);
 
     }
 
@@ -220,19 +176,61 @@ public abstract class ActiveRecord {
     public void mapAttributesFromItemSnapshot(final ItemSnapshot itemSnapshot) {
 
         if (itemSnapshot != null) {
+            mapAttributes(itemSnapshot.val(), itemSnapshot.ref());
+        }
 
-            final Map<String, ItemAttribute> values = itemSnapshot.val();
+    }
 
-            try {
-                clearStorageInfo();
-                this.itemRef = itemSnapshot.ref();
-                mapAttributesToInstance(ActiveRecord.convertToKeyValueAttributes(values));
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // TODO
-            }
+    /**
+     * Map the attributes of a loaded item. They are kept as the stored attributes without copying them, until a save changes them.
+     * @param values
+     *            the attributes of the item
+     * @param loadedItemRef
+     *            the item ref
+     */
+    void mapAttributes(final Map<String, ItemAttribute> values, final ItemRef loadedItemRef) {
 
+        this.deferredJsonProperties = null;
+        this.storedAttributes = values;
+        this.storedAttributesShared = true;
+
+        this.itemRef = loadedItemRef;
+        if (this.storageMapper != null) {
+            this.storageMapper.mapAttributes(this, values);
+        } else {
+            StorageAnnotationsManager.mapItemAttributesToInstance(this, values);
+        }
+
+    }
+
+    /**
+     * Store the attributes saved by a partial save, copying the attributes of the loaded snapshot on the first one.
+     * @param savedAttributes
+     *            the saved attributes
+     */
+    void storeAttributes(final Map<String, ItemAttribute> savedAttributes) {
+
+        if (this.storedAttributes == null) {
+            return;
+        }
+
+        if (this.storedAttributesShared) {
+            this.storedAttributes = new HashMap<>(this.storedAttributes);
+            this.storedAttributesShared = false;
         }
 
+        this.storedAttributes.putAll(savedAttributes);
+
+    }
+
+    /**
+     * Replace the stored attributes with the attributes of a whole save.
+     * @param savedAttributes
+     *            the saved attributes, null to forget them when a save failed, so the next save is whole
+     */
+    void replaceStoredAttributes(final Map<String, ItemAttribute> savedAttributes) {
+        this.storedAttributes = savedAttributes == null ? null : new HashMap<>(savedAttributes);
+        this.storedAttributesShared = false;
     }
 
     /**
@@ -244,11 +242,11 @@ public abstract class ActiveRecord {
      */
     public void clearStorageInfo() throws IllegalArgumentException, IllegalAccessException {
         this.itemRef = null;
-        final Field[] fields = this.getClass().getDeclaredFields();
-        for (final Field f : fields) {
-            if (f.isAnnotationPresent(StorageProperty.class)) {
-                f.setAccessible(true);
-                f.set(this, null);
+        this.deferredJsonProperties = null;
+        this.storedAttributes = null;
+        for (final StoragePropertyMapping mapping : this.mappingPlan.mappings()) {
+            if (mapping.getKind() == StoragePropertyKindEnum.SIMPLE && !mapping.getType().isPrimitive()) {
+                mapping.set(this, null);
             }
         }
     }
@@ -267,36 +265,168 @@ public abstract class ActiveRecord {
      * @return the hash map
      */
     public Map<String, ItemAttribute> attributes() {
+
+        if (this.storageMapper != null) {
+            return this.storageMapper.toAttributes(this);
+        }
+
         return StorageAnnotationsManager.instanceToAttributes(this);
+
     }
 
-    // callbacks
-    public void beforeSave() {
-        // TODO be implemented at Concrete Classes
+    /**
+     * Changed attributes.
+     * @return the attributes changed since the record was loaded or saved, along with the keys. Empty if nothing changed, null if the record
+     *         must be saved whole: it is not from storage, a key changed or an attribute was removed
+     */
+    public Map<String, ItemAttribute> changedAttributes() {
+
+        if (this.storedAttributes == null) {
+            return null;
+        }
+
+        final Map<String, ItemAttribute> current = attributes();
+
+        // only a whole save removes an attribute
+        for (final String name : this.storedAttributes.keySet()) {
+            if (!current.containsKey(name)) {
+                return null;
+            }
+        }
+
+        final LinkedHashMap<String, ItemAttribute> changed = new LinkedHashMap<>();
+        for (final Map.Entry<String, ItemAttribute> entry : current.entrySet()) {
+            if (!sameAttributeValue(this.storedAttributes.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return changed;
+        }
+
+        final String primaryKey = this.mappingPlan.getPrimaryKey().getName();
+        final String secondaryKey = this.mappingPlan.getSecondaryKey().getName();
+        if (changed.containsKey(primaryKey) || secondaryKey != null && changed.containsKey(secondaryKey)) {
+            return null;
+        }
+
+        if (primaryKey != null) {
+            changed.put(primaryKey, current.get(primaryKey));
+        }
+        if (secondaryKey != null && current.containsKey(secondaryKey)) {
+            changed.put(secondaryKey, current.get(secondaryKey));
+        }
+
+        return changed;
+
     }
 
-    public void beforeCreate() {
-        // TODO be implemented at Concrete Classes
+    /**
+     * Checks for changes.
+     * @return true, if the record is not from storage or any attribute changed since it was loaded or saved
+     */
+    public boolean hasChanges() {
+        final Map<String, ItemAttribute> changed = changedAttributes();
+        return changed == null || !changed.isEmpty();
     }
 
     /**
-     * Convert to key value attributes.
-     * @param attributes
-     *            the attributes
-     * @return the hash map
+     * Same attribute value.
+     * @param stored
+     *            the stored attribute
+     * @param current
+     *            the current attribute
+     * @return true, if both attributes hold the same value. Numbers are compared by value, regardless of their class
      */
-    static Map<String, Object> convertToKeyValueAttributes(final Map<String, ItemAttribute> attributes) {
+    private static boolean sameAttributeValue(final ItemAttribute stored, final ItemAttribute current) {
+
+        final Object storedValue = stored == null ? null : stored.get();
+        final Object currentValue = current == null ? null : current.get();
+
+        if (storedValue == null || currentValue == null) {
+            return storedValue == currentValue;
+        }
+
+        if (storedValue.equals(currentValue)) {
+            return true;
+        }
 
-        final Map<String, Object> keyValueAttributes = new LinkedHashMap<>(0);
-        if (attributes != null && !attributes.isEmpty()) {
-            for (final String key : attributes.keySet()) {
-                final ItemAttribute attribute = attributes.get(key);
-                keyValueAttributes.put(key, attribute.get());
+        if (storedValue instanceof Number && currentValue instanceof Number) {
+            try {
+                return new BigDecimal(storedValue.toString()).compareTo(new BigDecimal(currentValue.toString())) == 0;
+            } catch (final NumberFormatException e) {
+                return false;
             }
         }
 
-        return keyValueAttributes;
+        return storedValue.toString().equals(currentValue.toString());
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.annotations.LazyJsonPropertiesHolder#deferJsonProperty(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void deferJsonProperty(final String propertyName, final String json) {
+
+        if (this.deferredJsonProperties == null) {
+            this.deferredJsonProperties = new HashMap<>(4);
+        }
+
+        this.deferredJsonProperties.put(propertyName, json);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see co.realtime.storage.annotations.LazyJsonPropertiesHolder#deferredJsonProperty(java.lang.String)
+     */
+    @Override
+    public String deferredJsonProperty(final String propertyName) {
+        return this.deferredJsonProperties == null ? null : this.deferredJsonProperties.get(propertyName);
+    }
+
+    /**
+     * Load lazy property. Decodes the raw json of a lazy property into its field, to be called by the getter before returning the field.
+     * @param propertyName
+     *            the property name
+     */
+    protected void loadLazyProperty(final String propertyName) {
+
+        if (this.deferredJsonProperties == null) {
+            return;
+        }
+
+        final String json = this.deferredJsonProperties.remove(propertyName);
+        final StoragePropertyMapping mapping = this.mappingPlan.mapping(propertyName);
+        if (json != null && mapping != null) {
+            mapping.set(this, StorageAnnotationsManager.jsonPropertyToValue(mapping, json));
+        }
+
+    }
+
+    /**
+     * Discard lazy property. Drops the raw json of a lazy property so the field value is saved, to be called by the setter.
+     * @param propertyName
+     *            the property name
+     */
+    protected void discardLazyProperty(final String propertyName) {
+
+        if (this.deferredJsonProperties != null) {
+            this.deferredJsonProperties.remove(propertyName);
+        }
+
+    }
+
+    // callbacks
+    public void beforeSave() {
+        // TODO be implemented at Concrete Classes
+    }
 
+    public void beforeCreate() {
+        // TODO be implemented at Concrete Classes
     }
 
     /**
@@ -362,7 +492,7 @@ public abstract class ActiveRecord {
     }
 
     /**
-     * Fetch.
+     * Fetch. With StorageFetchCoalescer enabled, concurrent fetches of the same key share one request, each mapping its own record.
      * @param successCallback
      *            the success callback
      * @param errorCallback
@@ -372,8 +502,22 @@ public abstract class ActiveRecord {
      *             the storage exception
      */
     public ActiveRecordStateFuture<? extends ActiveRecord> fetch(final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback) throws StorageException {
+        return fetchFrom(flushTableRef(), successCallback, errorCallback);
+    }
+
+    /**
+     * Fetch from a table ref, shared by the fetches of many records.
+     * @param table
+     *            the table ref
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     */
+    private ActiveRecordStateFuture<? extends ActiveRecord> fetchFrom(final TableRef table, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback) {
 
-        final ActiveRecordStateFuture<ActiveRecord> future = new ActiveRecordStateFuture(successCallback, errorCallback);
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
 
         final Object primaryKey = getPrimaryKey();
         final Object secondaryKey = getSecondaryKey();
@@ -382,38 +526,29 @@ public abstract class ActiveRecord {
             throw new IllegalAccessError("Cannot access record because doesnt have primary key defined!");
         }
 
-        flushTableRef();
-        ItemAttribute primaryKeyAttribute = null;
-        ItemAttribute secondaryKeyAttribute = null;
-
-        // primary key attribute
-        if (primaryKey instanceof String) {
-            primaryKeyAttribute = new ItemAttribute((String) primaryKey);
-        } else if (primaryKey instanceof Number) {
-            primaryKeyAttribute = new ItemAttribute((Number) primaryKey);
-        }
-
-        // secondary key attribute
-        if (secondaryKey != null) {
-            if (secondaryKey instanceof String) {
-                secondaryKeyAttribute = new ItemAttribute((String) secondaryKey);
-            } else if (secondaryKey instanceof Number) {
-                secondaryKeyAttribute = new ItemAttribute((Number) secondaryKey);
-            }
-        }
+        this.tableRef = table;
+        final ItemAttribute primaryKeyAttribute = StorageKeyDescriptor.toItemAttribute(primaryKey);
+        final ItemAttribute secondaryKeyAttribute = StorageKeyDescriptor.toItemAttribute(secondaryKey);
 
-        final ItemRef itemRefTemp = this.tableRef.item(primaryKeyAttribute, secondaryKeyAttribute);
         final ActiveRecord weakReference = this;
 
-        itemRefTemp.get(new OnItemSnapshot() {
+        final OnItemSnapshot onItemSnapshot = new OnItemSnapshot() {
 
             @Override
             public void run(final ItemSnapshot itemSnapshot) {
 
+                // cancelled or expired, the record is left untouched
+                if (future.isSettled()) {
+                    return;
+                }
+
                 if (itemSnapshot != null && !itemSnapshot.val().isEmpty()) {
                     try {
                         weakReference.mapAttributesFromItemSnapshot(itemSnapshot);
                         future.processRecordAsync(weakReference);
+                    } catch (final RuntimeException e) {
+                        // an attribute the record can not map, e.g. a malformed number or an unknown enum constant
+                        forwardErrorCommand(future).execute(new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.INVALID_TYPE, e.toString()));
                     } catch (final InterruptedException e) {
                         // TODO
                     }
@@ -428,7 +563,9 @@ public abstract class ActiveRecord {
 
             }
 
-        }, new OnError() {
+        };
+
+        final OnError onError = new OnError() {
 
             @Override
             public void run(final Integer errorCode, final String errorMessage) {
@@ -442,14 +579,28 @@ public abstract class ActiveRecord {
 
             }
 
-        });
+        };
+
+        if (StorageFetchCoalescer.INSTANCE.isEnabled()) {
+            StorageFetchCoalescer.INSTANCE.get(this.tableRef, this.tableName, primaryKeyAttribute, secondaryKeyAttribute, onItemSnapshot, onError);
+        } else {
+            final TableRef itemTable = this.tableRef;
+            StorageThrottling.INSTANCE.execute(this.tableName, StorageRequestKindEnum.READ, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onSnapshot, final OnError onFailure) {
+                    itemTable.item(primaryKeyAttribute, secondaryKeyAttribute).get(onSnapshot, onFailure);
+                }
+
+            }, onItemSnapshot, onError);
+        }
 
         return future;
 
     }
 
     /**
-     * Save.
+     * Save. Records from storage send only the changed attributes and the keys, or nothing at all when no attribute changed.
      * @param successCallback
      *            the success callback
      * @param errorCallback
@@ -460,7 +611,7 @@ public abstract class ActiveRecord {
      */
     public ActiveRecordStateFuture<? extends ActiveRecord> save(final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback) throws StorageException {
 
-        final ActiveRecordStateFuture<ActiveRecord> future = new ActiveRecordStateFuture(successCallback, errorCallback);
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
 
         flushTableRef();
         beforeSave();
@@ -470,12 +621,83 @@ public abstract class ActiveRecord {
         }
 
         final ActiveRecord weakReference = this;
+        final Map<String, ItemAttribute> changedAttributes = changedAttributes();
+
+        if (changedAttributes != null && changedAttributes.isEmpty()) {
+            try {
+                future.processRecordAsync(this);
+            } catch (final InterruptedException e) {
+                // TODO
+            }
+            return future;
+        }
+
+        if (StorageWriteBehind.INSTANCE.isEnabled()) {
+            writeBehind(future, changedAttributes);
+            return future;
+        }
+
+        // a record buffered whole by the write behind has no item ref until written, it is pushed whole
+        if (changedAttributes != null && this.itemRef != null) {
+            StorageThrottling.INSTANCE.execute(this.tableName, StorageRequestKindEnum.WRITE, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                    ActiveRecord.this.itemRef.set((LinkedHashMap<String, ItemAttribute>) changedAttributes, onItemSnapshot, onError);
+                }
+
+            }, new OnItemSnapshot() {
+
+                @Override
+                public void run(final ItemSnapshot itemSnapshot) {
+
+                    if (future.isSettled()) {
+                        return;
+                    }
+
+                    try {
+                        weakReference.storeAttributes(changedAttributes);
+                        future.processRecordAsync(weakReference);
+                    } catch (final InterruptedException e) {
+                        // TODO
+                    }
+
+                }
+
+            }, new OnError() {
+
+                @Override
+                public void run(final Integer errorCode, final String errorMessage) {
+
+                    try {
+                        final String code = errorCode == null ? null : errorCode.toString();
+                        future.processError(new Error(code, errorMessage));
+                    } catch (final InterruptedException e) {
+                        // TODO
+                    }
+                }
+
+            });
+            return future;
+        }
+
+        final LinkedHashMap<String, ItemAttribute> pushedAttributes = (LinkedHashMap<String, ItemAttribute>) attributes();
+        StorageThrottling.INSTANCE.execute(this.tableName, StorageRequestKindEnum.WRITE, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                ActiveRecord.this.tableRef.push(pushedAttributes, onItemSnapshot, onError);
+            }
 
-        this.tableRef.push((LinkedHashMap<String, ItemAttribute>) attributes(), new OnItemSnapshot() {
+        }, new OnItemSnapshot() {
 
             @Override
             public void run(final ItemSnapshot itemSnapshot) {
 
+                if (future.isSettled()) {
+                    return;
+                }
+
                 try {
                     weakReference.mapAttributesFromItemSnapshot(itemSnapshot);
                     future.processRecordAsync(weakReference);
@@ -504,6 +726,106 @@ public abstract class ActiveRecord {
 
     }
 
+    /**
+     * Write behind, merged with the buffered saves of the same item. The future completes when the merged write is acknowledged. The stored
+     * attributes are those handed to the buffer, so that a later save sends what differs from the buffered write; a failed write forgets them,
+     * and the next save is whole.
+     * @param future
+     *            the future
+     * @param changedAttributes
+     *            the changed attributes, null to write the whole record
+     */
+    private void writeBehind(final ActiveRecordStateFuture<ActiveRecord> future, final Map<String, ItemAttribute> changedAttributes) {
+
+        final ActiveRecord weakReference = this;
+        final boolean whole = changedAttributes == null;
+        final Map<String, ItemAttribute> savedAttributes = whole ? attributes() : changedAttributes;
+
+        if (whole) {
+            replaceStoredAttributes(savedAttributes);
+        } else {
+            storeAttributes(savedAttributes);
+        }
+
+        try {
+            StorageWriteBehind.INSTANCE.write(this.tableRef, this.tableName, StorageKeyDescriptor.toItemAttribute(getPrimaryKey()), StorageKeyDescriptor.toItemAttribute(getSecondaryKey()),
+                    savedAttributes, whole, new OnItemSnapshot() {
+
+                        @Override
+                        public void run(final ItemSnapshot itemSnapshot) {
+
+                            if (future.isSettled()) {
+                                return;
+                            }
+
+                            if (weakReference.itemRef == null && itemSnapshot != null) {
+                                weakReference.itemRef = itemSnapshot.ref();
+                            }
+
+                            try {
+                                future.processRecordAsync(weakReference);
+                            } catch (final InterruptedException e) {
+                                // TODO
+                            }
+
+                        }
+
+                    }, new OnError() {
+
+                        @Override
+                        public void run(final Integer errorCode, final String errorMessage) {
+
+                            weakReference.replaceStoredAttributes(null);
+
+                            try {
+                                final String code = errorCode == null ? null : errorCode.toString();
+                                future.processError(new Error(code, errorMessage));
+                            } catch (final InterruptedException e) {
+                                // TODO
+                            }
+
+                        }
+
+                    });
+        } catch (final InterruptedException e) {
+            replaceStoredAttributes(null);
+            try {
+                future.processError(new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.UNKNOWN, "Interrupted while waiting for room in the write behind buffer"));
+            } catch (final InterruptedException interrupted) {
+                // TODO
+            }
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * After the pending writes of this record, run an operation that must not be overwritten by them: with the write behind, a delete or a
+     * counter update waits for the saves of the same item still buffered or in flight. An operation failing to start fails the future.
+     * @param future
+     *            the future
+     * @param operation
+     *            the operation
+     */
+    private void afterPendingWrites(final ActiveRecordStateFuture<ActiveRecord> future, final Runnable operation) {
+
+        final OnErrorCommand forwardError = forwardErrorCommand(future);
+
+        StorageWriteBehind.INSTANCE.afterPendingWrites(this.tableName, StorageKeyDescriptor.toItemAttribute(getPrimaryKey()), StorageKeyDescriptor.toItemAttribute(getSecondaryKey()), new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    operation.run();
+                } catch (final RuntimeException e) {
+                    forwardError.execute(new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.UNKNOWN, e.toString()));
+                }
+            }
+
+        });
+
+    }
+
     /**
      * Delete.
      * @param successCallback
@@ -516,51 +838,449 @@ public abstract class ActiveRecord {
      */
     public ActiveRecordStateFuture<? extends ActiveRecord> delete(final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback) throws StorageException {
 
-        final ActiveRecordStateFuture<ActiveRecord> future = new ActiveRecordStateFuture(successCallback, errorCallback);
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
 
         if (isFromStorage()) {
 
             final ActiveRecord weakReference = this;
-            this.itemRef.del(new OnItemSnapshot() {
+            final ItemRef deletedItemRef = this.itemRef;
+            afterPendingWrites(future, new Runnable() {
 
                 @Override
-                public void run(final ItemSnapshot itemSnapshot) {
-                    weakReference.mapAttributesFromItemSnapshot(itemSnapshot);
-                    try {
-                        future.processRecordAsync(weakReference);
+                public void run() {
+
+                    StorageThrottling.INSTANCE.execute(weakReference.tableName, StorageRequestKindEnum.DELETE, new ThrottledRequest() {
+
+                        @Override
+                        public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                            deletedItemRef.del(onItemSnapshot, onError);
+                        }
+
+                    }, new OnItemSnapshot() {
+
+                        @Override
+                        public void run(final ItemSnapshot itemSnapshot) {
+
+                            if (future.isSettled()) {
+                                return;
+                            }
+
+                            weakReference.mapAttributesFromItemSnapshot(itemSnapshot);
+                            try {
+                                future.processRecordAsync(weakReference);
+                            } catch (final InterruptedException e) {
+                                // TODO
+                            }
+                        }
+
+                    }, new OnError() {
+
+                        @Override
+                        public void run(final Integer errorCode, final String errorMessage) {
+                            try {
+                                final String code = errorCode == null ? null : errorCode.toString();
+                                future.processError(new Error(code, errorMessage));
+                            } catch (final InterruptedException e) {
+                                // TODO
+                            }
+                        }
+
+                    });
+
+                }
+
+            });
+
+        } else {
+
+            // the outer future completes from the nested fetch and delete, whose commands only forward their outcome
+            final OnErrorCommand forwardError = forwardErrorCommand(future);
+            fetch(new OnSuccessRecordCommand<ActiveRecord>() {
+
+                @Override
+                public void execute(final ActiveRecord record) {
+
+                    if (future.isSettled()) {
+                        return;
+                    }
+
+                    try {
+                        record.delete(new OnSuccessRecordCommand<ActiveRecord>() {
+
+                            @Override
+                            public void execute(final ActiveRecord deleted) {
+                                try {
+                                    future.processRecordAsync(deleted);
+                                } catch (final InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+
+                        }, forwardError);
+                    } catch (final StorageException storageException) {
+                        forwardError.execute(new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.UNKNOWN, storageException.toString()));
+                    }
+
+                }
+
+            }, forwardError);
+
+        }
+
+        return future;
+
+    }
+
+    /**
+     * Forward error command, failing the future with the error of a nested operation.
+     * @param future
+     *            the future
+     * @return the on error command
+     */
+    private static OnErrorCommand forwardErrorCommand(final ActiveRecordStateFuture<ActiveRecord> future) {
+
+        return new OnErrorCommand() {
+
+            @Override
+            public void execute(final Error error) {
+                try {
+                    future.processError(error);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        };
+
+    }
+
+    /**
+     * Increment a numeric storage property with the counter of the storage item, in one round trip and without losing concurrent updates.
+     * Only that property is mapped back from the result; the other properties are left untouched.
+     * @param propertyName
+     *            the storage property, or field, name
+     * @param delta
+     *            the delta
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    public ActiveRecordStateFuture<? extends ActiveRecord> increment(final String propertyName, final Number delta, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback)
+            throws StorageException {
+        return count(propertyName, delta, true, successCallback, errorCallback);
+    }
+
+    /**
+     * Decrement a numeric storage property with the counter of the storage item, in one round trip and without losing concurrent updates.
+     * Only that property is mapped back from the result; the other properties are left untouched.
+     * @param propertyName
+     *            the storage property, or field, name
+     * @param delta
+     *            the delta
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    public ActiveRecordStateFuture<? extends ActiveRecord> decrement(final String propertyName, final Number delta, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback)
+            throws StorageException {
+        return count(propertyName, delta, false, successCallback, errorCallback);
+    }
+
+    /**
+     * Count, incrementing or decrementing a numeric storage property.
+     * @param propertyName
+     *            the property name
+     * @param delta
+     *            the delta
+     * @param increment
+     *            true to increment, false to decrement
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    private ActiveRecordStateFuture<? extends ActiveRecord> count(final String propertyName, final Number delta, final boolean increment, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback,
+            final OnErrorCommand errorCallback) throws StorageException {
+
+        final StoragePropertyMapping mapping = counterMapping(propertyName);
+        if (delta == null) {
+            throw new IllegalArgumentException("delta argument is required");
+        }
+
+        final Object primaryKey = getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalAccessError("Cannot access record because doesnt have primary key defined!");
+        }
+
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
+        final ItemRef counterItemRef = isFromStorage() ? this.itemRef : flushTableRef().item(StorageKeyDescriptor.toItemAttribute(primaryKey), StorageKeyDescriptor.toItemAttribute(getSecondaryKey()));
+        final String storageName = mapping.getName();
+        final ActiveRecord weakReference = this;
+
+        afterPendingWrites(future, new Runnable() {
+
+            @Override
+            public void run() {
+
+            StorageThrottling.INSTANCE.execute(weakReference.tableName, StorageRequestKindEnum.WRITE, new ThrottledRequest() {
+
+                @Override
+                public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                    if (increment) {
+                        counterItemRef.incr(storageName, delta, onItemSnapshot, onError);
+                    } else {
+                        counterItemRef.decr(storageName, delta, onItemSnapshot, onError);
+                    }
+                }
+
+            }, new OnItemSnapshot() {
+
+                @Override
+                public void run(final ItemSnapshot itemSnapshot) {
+
+                    if (future.isSettled()) {
+                        return;
+                    }
+
+                    final ItemAttribute counter = itemSnapshot == null || itemSnapshot.val() == null ? null : itemSnapshot.val().get(storageName);
+                    if (counter != null) {
+                        mapping.assign(weakReference, counter.get());
+                        weakReference.storeAttributes(Collections.singletonMap(storageName, counter));
+                    }
+
+                    try {
+                        future.processRecordAsync(weakReference);
                     } catch (final InterruptedException e) {
-                        // TODO
+                        Thread.currentThread().interrupt();
                     }
+
                 }
 
             }, new OnError() {
 
                 @Override
                 public void run(final Integer errorCode, final String errorMessage) {
+
                     try {
                         final String code = errorCode == null ? null : errorCode.toString();
                         future.processError(new Error(code, errorMessage));
                     } catch (final InterruptedException e) {
-                        // TODO
+                        Thread.currentThread().interrupt();
                     }
+
                 }
 
             });
 
-        } else {
+            }
 
-            fetch(new OnSuccessRecordCommand<ActiveRecord>() {
+        });
+
+        return future;
+
+    }
+
+    /**
+     * Counter mapping.
+     * @param propertyName
+     *            the storage property, or field, name
+     * @return the mapping of the numeric storage property
+     */
+    private StoragePropertyMapping counterMapping(final String propertyName) {
+
+        StoragePropertyMapping mapping = this.mappingPlan.mapping(propertyName);
+        if (mapping == null) {
+            mapping = this.mappingPlan.mappingOfField(propertyName);
+        }
+
+        if (mapping == null || mapping.getKind() != StoragePropertyKindEnum.SIMPLE || mapping.isPrimaryKey() || mapping.isSecondaryKey() || !TypeValidatorUtils.isNumberType(mapping.getType())) {
+            throw new IllegalArgumentException(String.format("%s is not a numeric storage property of %s", propertyName, getClass().getSimpleName()));
+        }
+
+        return mapping;
+
+    }
+
+    /**
+     * Increment a sharded counter, adding the delta to one of its shards picked at random. The field is left untouched, fetchShardedCounter
+     * reads the sum of the shards.
+     * @param counterName
+     *            the counter, or field, name
+     * @param delta
+     *            the delta
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    public ActiveRecordStateFuture<? extends ActiveRecord> incrementShardedCounter(final String counterName, final Number delta, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback,
+            final OnErrorCommand errorCallback) throws StorageException {
+        return countShard(counterName, delta, true, successCallback, errorCallback);
+    }
+
+    /**
+     * Decrement a sharded counter, subtracting the delta from one of its shards picked at random. The field is left untouched,
+     * fetchShardedCounter reads the sum of the shards.
+     * @param counterName
+     *            the counter, or field, name
+     * @param delta
+     *            the delta
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    public ActiveRecordStateFuture<? extends ActiveRecord> decrementShardedCounter(final String counterName, final Number delta, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback,
+            final OnErrorCommand errorCallback) throws StorageException {
+        return countShard(counterName, delta, false, successCallback, errorCallback);
+    }
+
+    /**
+     * Count shard, incrementing or decrementing a random shard of a sharded counter.
+     * @param counterName
+     *            the counter name
+     * @param delta
+     *            the delta
+     * @param increment
+     *            true to increment, false to decrement
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    private ActiveRecordStateFuture<? extends ActiveRecord> countShard(final String counterName, final Number delta, final boolean increment, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback,
+            final OnErrorCommand errorCallback) throws StorageException {
+
+        final ShardedCounterMapping counter = shardedCounterMapping(counterName);
+        if (delta == null) {
+            throw new IllegalArgumentException("delta argument is required");
+        }
+
+        final ItemAttribute counterKey = counterKeyAttribute(counter);
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
+        final ItemRef shardItemRef = StorageRefFactorySingleton.INSTANCE.getStorageRef().table(counter.getTable()).item(counterKey, new ItemAttribute(Integer.valueOf(counter.randomShard())));
+        final String storageName = counter.getProperty();
+        final ActiveRecord weakReference = this;
+
+        StorageThrottling.INSTANCE.execute(counter.getTable(), StorageRequestKindEnum.WRITE, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                if (increment) {
+                    shardItemRef.incr(storageName, delta, onItemSnapshot, onError);
+                } else {
+                    shardItemRef.decr(storageName, delta, onItemSnapshot, onError);
+                }
+            }
+
+        }, new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+
+                if (future.isSettled()) {
+                    return;
+                }
+
+                try {
+                    future.processRecordAsync(weakReference);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+            }
+
+        }, errorCommand(future));
+
+        return future;
+
+    }
+
+    /**
+     * Fetch a sharded counter, reading all its shards at once and assigning their sum to the field. Missing shards count as zero.
+     * @param counterName
+     *            the counter, or field, name
+     * @param successCallback
+     *            the success callback
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     * @throws StorageException
+     *             the storage exception
+     */
+    public ActiveRecordStateFuture<? extends ActiveRecord> fetchShardedCounter(final String counterName, final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback)
+            throws StorageException {
+
+        final ShardedCounterMapping counter = shardedCounterMapping(counterName);
+        final ItemAttribute counterKey = counterKeyAttribute(counter);
+        final ActiveRecordStateFuture<ActiveRecord> future = newFuture(successCallback, errorCallback);
+        final TableRef counterTable = StorageRefFactorySingleton.INSTANCE.getStorageRef().table(counter.getTable());
+        final String storageName = counter.getProperty();
+        final ActiveRecord weakReference = this;
+
+        // each shard writes its own slot, the last one to answer sums them
+        final Object[] counts = new Object[counter.getShards()];
+        final AtomicInteger remaining = new AtomicInteger(counts.length);
+        final OnError onError = errorCommand(future);
+
+        for (int shard = 0; shard < counts.length; shard++) {
+
+            final int index = shard;
+            final ItemRef shardItemRef = counterTable.item(counterKey, new ItemAttribute(Integer.valueOf(shard)));
+
+            StorageThrottling.INSTANCE.execute(counter.getTable(), StorageRequestKindEnum.READ, new ThrottledRequest() {
 
                 @Override
-                public void execute(final ActiveRecord record) {
-                    try {
-                        record.delete(successCallback, errorCallback);
-                    } catch (final StorageException storageException) {
-                        // TODO
+                public void send(final OnItemSnapshot onItemSnapshot, final OnError onFailure) {
+                    shardItemRef.get(onItemSnapshot, onFailure);
+                }
+
+            }, new OnItemSnapshot() {
+
+                @Override
+                public void run(final ItemSnapshot itemSnapshot) {
+
+                    if (future.isSettled()) {
+                        return;
                     }
+
+                    final ItemAttribute count = itemSnapshot == null || itemSnapshot.val() == null ? null : itemSnapshot.val().get(storageName);
+                    counts[index] = count == null ? null : count.get();
+
+                    if (remaining.decrementAndGet() == 0) {
+                        try {
+                            counter.assign(weakReference, ShardedCounterMapping.sum(Arrays.asList(counts)));
+                            future.processRecordAsync(weakReference);
+                        } catch (final ArithmeticException e) {
+                            onError.run(null, String.format("sharded counter %s: %s", counterName, e.getMessage()));
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
                 }
 
-            }, null);
+            }, onError);
 
         }
 
@@ -568,6 +1288,406 @@ public abstract class ActiveRecord {
 
     }
 
+    /**
+     * Sharded counter mapping.
+     * @param counterName
+     *            the counter, or field, name
+     * @return the sharded counter mapping
+     */
+    private ShardedCounterMapping shardedCounterMapping(final String counterName) {
+
+        final ShardedCounterMapping counter = this.mappingPlan.shardedCounter(counterName);
+        if (counter == null) {
+            throw new IllegalArgumentException(String.format("%s is not a sharded counter of %s", counterName, getClass().getSimpleName()));
+        }
+
+        return counter;
+
+    }
+
+    /**
+     * Counter key attribute.
+     * @param counter
+     *            the counter
+     * @return the primary key of the shards of the counter of this record
+     */
+    private ItemAttribute counterKeyAttribute(final ShardedCounterMapping counter) {
+
+        final Object primaryKey = getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalAccessError("Cannot access record because doesnt have primary key defined!");
+        }
+
+        return new ItemAttribute(counter.counterKey(this.tableName, primaryKey, getSecondaryKey()));
+
+    }
+
+    /**
+     * New future of an operation on this record, with the default deadline.
+     * @param successCallback
+     *            the success callback, taking the concrete class of the record
+     * @param errorCallback
+     *            the error callback
+     * @return the active record state future
+     */
+    @SuppressWarnings("unchecked")
+    private static ActiveRecordStateFuture<ActiveRecord> newFuture(final OnSuccessRecordCommand<? extends ActiveRecord> successCallback, final OnErrorCommand errorCallback) {
+        // the future completes with this record, which is of the concrete class the callback takes
+        return StorageDeadlines.INSTANCE.applyDefault(new ActiveRecordStateFuture<>((OnSuccessRecordCommand<ActiveRecord>) successCallback, errorCallback));
+    }
+
+    /**
+     * Error command, failing the future with the storage error.
+     * @param future
+     *            the future
+     * @return the on error
+     */
+    private static OnError errorCommand(final ActiveRecordStateFuture<ActiveRecord> future) {
+
+        return new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+
+                try {
+                    final String code = errorCode == null ? null : errorCode.toString();
+                    future.processError(new Error(code, errorMessage));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+            }
+
+        };
+
+    }
+
+    /**
+     * Fetch, completing the returned promise directly from the storage callbacks.
+     * @return the promise of this record
+     * @throws StorageException
+     *             the storage exception
+     */
+    public StoragePromise<ActiveRecord> fetchAsync() throws StorageException {
+        final StoragePromise<ActiveRecord> promise = new StoragePromise<>();
+        abandonWhenFailed(promise, fetch(completeCommand(promise), failCommand(promise)));
+        return promise;
+    }
+
+    /**
+     * Save, completing the returned promise directly from the storage callbacks.
+     * @return the promise of this record
+     * @throws StorageException
+     *             the storage exception
+     */
+    public StoragePromise<ActiveRecord> saveAsync() throws StorageException {
+        final StoragePromise<ActiveRecord> promise = new StoragePromise<>();
+        abandonWhenFailed(promise, save(completeCommand(promise), failCommand(promise)));
+        return promise;
+    }
+
+    /**
+     * Delete, completing the returned promise directly from the storage callbacks.
+     * @return the promise of this record
+     * @throws StorageException
+     *             the storage exception
+     */
+    public StoragePromise<ActiveRecord> deleteAsync() throws StorageException {
+        final StoragePromise<ActiveRecord> promise = new StoragePromise<>();
+        abandonWhenFailed(promise, delete(completeCommand(promise), failCommand(promise)));
+        return promise;
+    }
+
+    /**
+     * Fetch all, completing the returned promise directly from the storage callbacks.
+     * @param <R>
+     *            the generic type
+     * @param concreteActiveRecordClass
+     *            the concrete active record class
+     * @return the promise of the records
+     * @throws InstantiationException
+     *             the instantiation exception
+     * @throws IllegalAccessException
+     *             the illegal access exception
+     * @throws StorageException
+     *             the storage exception
+     */
+    public static <R extends ActiveRecord> StoragePromise<List<R>> fetchAllAsync(final Class<R> concreteActiveRecordClass) throws InstantiationException, IllegalAccessException, StorageException {
+        return executeQueryAsync(new QueryRef<>(concreteActiveRecordClass));
+    }
+
+    /**
+     * Fetch a page of the records of a primary key, ordered by secondary key, instead of materializing them all.
+     * @param <R>
+     *            the generic type
+     * @param concreteActiveRecordClass
+     *            the concrete active record class
+     * @param primaryKey
+     *            the primary key
+     * @param pageSize
+     *            the page size
+     * @param cursor
+     *            the cursor of the previous page, null for the first page
+     * @return the promise of the page
+     * @throws InstantiationException
+     *             the instantiation exception
+     * @throws IllegalAccessException
+     *             the illegal access exception
+     * @throws StorageException
+     *             the storage exception
+     */
+    public static <R extends ActiveRecord> StoragePromise<QueryPage<R>> fetchPage(final Class<R> concreteActiveRecordClass, final Object primaryKey, final int pageSize, final QueryCursor cursor)
+            throws InstantiationException, IllegalAccessException, StorageException {
+
+        final StorageKeyDescriptor primaryKeyDescriptor = StorageMappingRegistry.planOf(concreteActiveRecordClass).getPrimaryKey();
+        if (!primaryKeyDescriptor.isDefined()) {
+            throw new IllegalArgumentException(String.format("%s has no primary key", concreteActiveRecordClass.getSimpleName()));
+        }
+
+        return new QueryRef<>(concreteActiveRecordClass).where(primaryKeyDescriptor.getName()).eq(primaryKey).startAfter(cursor).getPage(pageSize);
+
+    }
+
+    /**
+     * Execute query, completing the returned promise directly from the storage callbacks.
+     * @param <R>
+     *            the generic type
+     * @param query
+     *            the query
+     * @return the promise of the records
+     * @throws InstantiationException
+     *             the instantiation exception
+     * @throws IllegalAccessException
+     *             the illegal access exception
+     * @throws StorageException
+     *             the storage exception
+     */
+    public static <R extends ActiveRecord> StoragePromise<List<R>> executeQueryAsync(final QueryRef<R> query) throws InstantiationException, IllegalAccessException, StorageException {
+
+        final StoragePromise<List<R>> promise = new StoragePromise<>();
+        abandonWhenFailed(promise, executeQuery(query, new OnSuccessCollectionCommand<R>() {
+
+            @Override
+            public void execute(final List<R> records) {
+                promise.complete(new ArrayList<>(records));
+            }
+
+        }, failCommand(promise)));
+
+        return promise;
+
+    }
+
+    /**
+     * Save all, with the default window of operations in flight.
+     * @param <R>
+     *            the generic type
+     * @param records
+     *            the records
+     * @return the promise of the outcome of every record
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsBatchState<R>> saveAll(final Collection<? extends R> records) {
+        return saveAll(records, ActiveRecordBatch.DEFAULT_WINDOW);
+    }
+
+    /**
+     * Save all. Up to window saves are in flight at once, and a new one starts as each completes.
+     * @param <R>
+     *            the generic type
+     * @param records
+     *            the records
+     * @param window
+     *            the maximum number of saves in flight
+     * @return the promise of the outcome of every record
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsBatchState<R>> saveAll(final Collection<? extends R> records, final int window) {
+
+        return new ActiveRecordBatch<R>(records, window) {
+
+            @Override
+            protected void execute(final R record, final OnSuccessRecordCommand<R> onSuccess, final OnErrorCommand onError) throws StorageException {
+                record.save(onSuccess, onError);
+            }
+
+        }.start();
+
+    }
+
+    /**
+     * Delete all, with the default window of operations in flight.
+     * @param <R>
+     *            the generic type
+     * @param records
+     *            the records
+     * @return the promise of the outcome of every record
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsBatchState<R>> deleteAll(final Collection<? extends R> records) {
+        return deleteAll(records, ActiveRecordBatch.DEFAULT_WINDOW);
+    }
+
+    /**
+     * Delete all. Up to window deletes are in flight at once, and a new one starts as each completes.
+     * @param <R>
+     *            the generic type
+     * @param records
+     *            the records
+     * @param window
+     *            the maximum number of deletes in flight
+     * @return the promise of the outcome of every record
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsBatchState<R>> deleteAll(final Collection<? extends R> records, final int window) {
+
+        return new ActiveRecordBatch<R>(records, window) {
+
+            @Override
+            protected void execute(final R record, final OnSuccessRecordCommand<R> onSuccess, final OnErrorCommand onError) throws StorageException {
+                record.delete(onSuccess, onError);
+            }
+
+        }.start();
+
+    }
+
+    /**
+     * Fetch many, with the default window of fetches in flight.
+     * @param <R>
+     *            the generic type
+     * @param concreteActiveRecordClass
+     *            the concrete active record class
+     * @param keys
+     *            the keys, primary key values or StorageKey for primary and secondary keys
+     * @return the promise of the record of every key
+     * @throws InstantiationException
+     *             the instantiation exception
+     * @throws StorageException
+     *             the storage exception
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsKeyedState<R>> fetchMany(final Class<R> concreteActiveRecordClass, final Collection<?> keys) throws InstantiationException, StorageException {
+        return fetchMany(concreteActiveRecordClass, keys, ActiveRecordBatch.DEFAULT_WINDOW);
+    }
+
+    /**
+     * Fetch many. Repeated keys are fetched once, up to window fetches are in flight at once, and all of them share one table ref. Keys without
+     * a record are marked as not found instead of failing the promise.
+     * @param <R>
+     *            the generic type
+     * @param concreteActiveRecordClass
+     *            the concrete active record class
+     * @param keys
+     *            the keys, primary key values or StorageKey for primary and secondary keys
+     * @param window
+     *            the maximum number of fetches in flight
+     * @return the promise of the record of every key
+     * @throws InstantiationException
+     *             the instantiation exception
+     * @throws StorageException
+     *             the storage exception
+     */
+    public static <R extends ActiveRecord> StoragePromise<ActiveRecordsKeyedState<R>> fetchMany(final Class<R> concreteActiveRecordClass, final Collection<?> keys, final int window) throws InstantiationException, StorageException {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(concreteActiveRecordClass);
+        final Map<StorageKey, R> recordsByKey = new LinkedHashMap<>();
+
+        for (final Object key : keys) {
+
+            final StorageKey storageKey = StorageKey.from(key);
+            if (!recordsByKey.containsKey(storageKey)) {
+                final R record = concreteActiveRecordClass.cast(plan.newInstance());
+                plan.getPrimaryKey().set(record, storageKey.getPrimaryKey());
+                if (storageKey.getSecondaryKey() != null) {
+                    plan.getSecondaryKey().set(record, storageKey.getSecondaryKey());
+                }
+                recordsByKey.put(storageKey, record);
+            }
+
+        }
+
+        final List<StorageKey> distinctKeys = new ArrayList<>(recordsByKey.keySet());
+        final TableRef table = recordsByKey.isEmpty() ? null : recordsByKey.values().iterator().next().flushTableRef();
+
+        final StoragePromise<ActiveRecordsBatchState<R>> fetches = new ActiveRecordBatch<R>(recordsByKey.values(), window) {
+
+            @Override
+            protected void execute(final R record, final OnSuccessRecordCommand<R> onSuccess, final OnErrorCommand onError) {
+                ((ActiveRecord) record).fetchFrom(table, onSuccess, onError);
+            }
+
+        }.start();
+
+        final StoragePromise<ActiveRecordsKeyedState<R>> promise = fetches.map(new StorageFunction<ActiveRecordsBatchState<R>, ActiveRecordsKeyedState<R>>() {
+
+            @Override
+            public ActiveRecordsKeyedState<R> apply(final ActiveRecordsBatchState<R> state) {
+                return new ActiveRecordsKeyedState<>(distinctKeys, state);
+            }
+
+        });
+
+        abandonWhenFailed(promise, fetches);
+        return promise;
+
+    }
+
+    /**
+     * Abandon the operation when the promise fails first, cancelled or expired, so its late storage callbacks are ignored.
+     * @param promise
+     *            the promise
+     * @param operation
+     *            the operation
+     */
+    private static void abandonWhenFailed(final StoragePromise<?> promise, final Future<?> operation) {
+
+        promise.whenComplete(new Runnable() {
+
+            @Override
+            public void run() {
+                if (promise.isFailed()) {
+                    operation.cancel(false);
+                }
+            }
+
+        });
+
+    }
+
+    /**
+     * Complete command.
+     * @param promise
+     *            the promise
+     * @return the command completing the promise with the record
+     */
+    private static OnSuccessRecordCommand<ActiveRecord> completeCommand(final StoragePromise<ActiveRecord> promise) {
+
+        return new OnSuccessRecordCommand<ActiveRecord>() {
+
+            @Override
+            public void execute(final ActiveRecord record) {
+                promise.complete(record);
+            }
+
+        };
+
+    }
+
+    /**
+     * Fail command.
+     * @param promise
+     *            the promise
+     * @return the command failing the promise with the error
+     */
+    private static OnErrorCommand failCommand(final StoragePromise<?> promise) {
+
+        return new OnErrorCommand() {
+
+            @Override
+            public void execute(final Error error) {
+                promise.fail(error);
+            }
+
+        };
+
+    }
+
     /**
      * Flush table ref.
      * @return the table ref
@@ -20,7 +20,8 @@ public class PatientRecordSample extends ActiveRecord {
     @StorageProperty(name = "name")
     private String name;
 
-    @JsonCollectionStorageProperty(name = "connections", klass = ConnectionInfoSample.class)
+    /** The connections, decoded on first access. */
+    @JsonCollectionStorageProperty(name = "connections", klass = ConnectionInfoSample.class, lazy = true)
     private Collection<ConnectionInfoSample> connections;
 
     /**
@@ -47,10 +48,12 @@ public class PatientRecordSample extends ActiveRecord {
     }
 
     public Collection<ConnectionInfoSample> getConnections() {
+        loadLazyProperty("connections");
         return this.connections;
     }
 
     public void setConnections(final Collection<ConnectionInfoSample> connections) {
+        discardLazyProperty("connections");
         this.connections = connections;
     }
 
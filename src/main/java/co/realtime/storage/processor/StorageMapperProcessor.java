@@ -0,0 +1,567 @@
+package co.realtime.storage.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import co.realtime.storage.annotations.EmbeddedStorageProperties;
+import co.realtime.storage.annotations.JsonCollectionStorageProperty;
+import co.realtime.storage.annotations.JsonStorageProperty;
+import co.realtime.storage.annotations.LazyJsonPropertiesHolder;
+import co.realtime.storage.annotations.StorageProperty;
+import co.realtime.storage.annotations.StoragePropertyEnum;
+import co.realtime.storage.annotations.StoragePropertyKindEnum;
+import co.realtime.storage.annotations.StorageTable;
+import co.realtime.storage.mappers.StorageMappers;
+
+/**
+ * The Class StorageMapperProcessor. Generates, for each class annotated with StorageTable, a StorageMapper with straight-line mapping code. Classes
+ * whose storage properties cannot be reached from the same package (private fields without accessors) are skipped and keep being mapped by reflection.
+ */
+@SupportedAnnotationTypes("co.realtime.storage.annotations.StorageTable")
+public class StorageMapperProcessor extends AbstractProcessor {
+
+    /** The Constant SUPPORT. */
+    private static final String SUPPORT = "co.realtime.storage.mappers.StorageMapperSupport";
+
+    /** The Constant SIMPLE_CONVERSIONS. Field type to the StorageMapperSupport conversion. */
+    private static final Map<String, String> SIMPLE_CONVERSIONS = getSimpleConversions();
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+
+        for (final Element element : roundEnv.getElementsAnnotatedWith(StorageTable.class)) {
+
+            if (element.getKind() == ElementKind.CLASS) {
+                processType((TypeElement) element);
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Process type.
+     * @param type
+     *            the type
+     */
+    private void processType(final TypeElement type) {
+
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+
+        final StorageTable storageTableAnnotation = type.getAnnotation(StorageTable.class);
+        final TypeElement holderType = this.processingEnv.getElementUtils().getTypeElement(LazyJsonPropertiesHolder.class.getCanonicalName());
+        final boolean lazyJsonPropertiesHolder = holderType != null && this.processingEnv.getTypeUtils().isAssignable(type.asType(), holderType.asType());
+        final List<Property> properties = new ArrayList<>();
+        Property primaryKey = null;
+        Property secondaryKey = null;
+        Property primaryKeyByName = null;
+        Property secondaryKeyByName = null;
+
+        for (final Element enclosed : type.getEnclosedElements()) {
+
+            if (enclosed.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+
+            final VariableElement field = (VariableElement) enclosed;
+            final StoragePropertyKindEnum kind = kindOf(field);
+            if (kind == null) {
+                continue;
+            }
+
+            final Property property = new Property(field, kind, lazyJsonPropertiesHolder);
+            if (!property.resolveAccessors(type)) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format("No accessible getter and setter for %s, %s will be mapped by reflection", field.getSimpleName(), type.getQualifiedName()), field);
+                return;
+            }
+
+            properties.add(property);
+
+            if (kind == StoragePropertyKindEnum.SIMPLE) {
+                final StorageProperty storagePropertyAnnotation = field.getAnnotation(StorageProperty.class);
+                if (storagePropertyAnnotation.isPrimaryKey() && primaryKey == null) {
+                    primaryKey = property;
+                } else if (field.getSimpleName().contentEquals(storageTableAnnotation.primaryKey())) {
+                    primaryKeyByName = property;
+                }
+                if (storagePropertyAnnotation.isSecondaryKey() && secondaryKey == null) {
+                    secondaryKey = property;
+                } else if (field.getSimpleName().contentEquals(storageTableAnnotation.secondaryKey())) {
+                    secondaryKeyByName = property;
+                }
+            }
+
+        }
+
+        try {
+            writeMapper(type, properties, primaryKey == null ? primaryKeyByName : primaryKey, secondaryKey == null ? secondaryKeyByName : secondaryKey);
+        } catch (final IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not generate storage mapper: " + e.getMessage(), type);
+        }
+
+    }
+
+    /**
+     * Write mapper.
+     * @param type
+     *            the type
+     * @param properties
+     *            the properties
+     * @param primaryKey
+     *            the primary key
+     * @param secondaryKey
+     *            the secondary key
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void writeMapper(final TypeElement type, final List<Property> properties, final Property primaryKey, final Property secondaryKey) throws IOException {
+
+        final PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String mapperSimpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + StorageMappers.MAPPER_CLASS_SUFFIX;
+        final String typeName = type.getQualifiedName().toString();
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("/**\n * Storage mapper for ").append(typeName).append(". Generated by ").append(getClass().getName()).append(", do not edit.\n */\n");
+        source.append("public final class ").append(mapperSimpleName).append(" implements co.realtime.storage.mappers.StorageMapper<").append(typeName).append("> {\n\n");
+
+        // item attributes to instance
+        source.append("    @Override\n    @SuppressWarnings(\"unchecked\")\n");
+        source.append("    public void mapAttributes(final ").append(typeName).append(" instance, final java.util.Map<String, co.realtime.storage.ItemAttribute> attributes) {\n");
+        int index = 0;
+        for (final Property property : properties) {
+            property.appendRead(source, "value" + index++);
+        }
+        source.append("    }\n\n");
+
+        // instance to item attributes
+        source.append("    @Override\n");
+        source.append("    public java.util.Map<String, co.realtime.storage.ItemAttribute> toAttributes(final ").append(typeName).append(" instance) {\n");
+        source.append("        final java.util.LinkedHashMap<String, co.realtime.storage.ItemAttribute> attributes = new java.util.LinkedHashMap<String, co.realtime.storage.ItemAttribute>(").append(properties.size()).append(");\n");
+        for (final Property property : properties) {
+            property.appendWrite(source);
+        }
+        source.append("        return attributes;\n    }\n\n");
+
+        // keys
+        source.append("    @Override\n    public Object primaryKey(final ").append(typeName).append(" instance) {\n");
+        source.append("        return ").append(primaryKey == null ? "null" : primaryKey.readExpression).append(";\n    }\n\n");
+        source.append("    @Override\n    public Object secondaryKey(final ").append(typeName).append(" instance) {\n");
+        source.append("        return ").append(secondaryKey == null ? "null" : secondaryKey.readExpression).append(";\n    }\n\n");
+        source.append("}\n");
+
+        final String mapperName = packageName.isEmpty() ? mapperSimpleName : packageName + "." + mapperSimpleName;
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(mapperName, type);
+        try (final Writer writer = sourceFile.openWriter()) {
+            writer.write(source.toString());
+        }
+
+    }
+
+    /**
+     * Kind of.
+     * @param field
+     *            the field
+     * @return the storage property kind enum. Null if the field is not a storage property
+     */
+    private static StoragePropertyKindEnum kindOf(final VariableElement field) {
+
+        if (field.getAnnotation(StorageProperty.class) != null) {
+            return StoragePropertyKindEnum.SIMPLE;
+        } else if (field.getAnnotation(StoragePropertyEnum.class) != null) {
+            return StoragePropertyKindEnum.ENUM;
+        } else if (field.getAnnotation(JsonStorageProperty.class) != null) {
+            return StoragePropertyKindEnum.JSON;
+        } else if (field.getAnnotation(JsonCollectionStorageProperty.class) != null) {
+            return StoragePropertyKindEnum.JSON_COLLECTION;
+        } else if (field.getAnnotation(EmbeddedStorageProperties.class) != null) {
+            return StoragePropertyKindEnum.EMBEDDED;
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Gets the simple conversions.
+     * @return the simple conversions
+     */
+    private static Map<String, String> getSimpleConversions() {
+        final Map<String, String> conversions = new HashMap<>();
+        conversions.put("java.lang.String", "toStringValue");
+        conversions.put("java.lang.Long", "toLong");
+        conversions.put("long", "toLongValue");
+        conversions.put("java.lang.Integer", "toInteger");
+        conversions.put("int", "toIntValue");
+        conversions.put("java.lang.Short", "toShort");
+        conversions.put("short", "toShortValue");
+        conversions.put("java.lang.Byte", "toByte");
+        conversions.put("byte", "toByteValue");
+        conversions.put("java.lang.Double", "toDouble");
+        conversions.put("double", "toDoubleValue");
+        conversions.put("java.lang.Float", "toFloat");
+        conversions.put("float", "toFloatValue");
+        conversions.put("java.lang.Boolean", "toBoolean");
+        conversions.put("boolean", "toBooleanValue");
+        conversions.put("java.math.BigDecimal", "toBigDecimal");
+        conversions.put("java.util.concurrent.atomic.AtomicInteger", "toAtomicInteger");
+        conversions.put("java.util.concurrent.atomic.AtomicLong", "toAtomicLong");
+        return Collections.unmodifiableMap(conversions);
+    }
+
+    /**
+     * The Class Property. A storage property of the processed type and the source expressions to read and write it.
+     */
+    private class Property {
+
+        /** The field. */
+        private final VariableElement field;
+
+        /** The kind. */
+        private final StoragePropertyKindEnum kind;
+
+        /** The name. */
+        private final String name;
+
+        /** The type. */
+        private final TypeMirror type;
+
+        /** The erased type name. */
+        private final String erasedTypeName;
+
+        /** The lazy. */
+        private final boolean lazy;
+
+        /** The read expression. */
+        private String readExpression;
+
+        /** The write format. */
+        private String writeFormat;
+
+        /**
+         * Instantiates a new property.
+         * @param field
+         *            the field
+         * @param kind
+         *            the kind
+         * @param lazyJsonPropertiesHolder
+         *            true, if the owner keeps the raw json of its lazy properties
+         */
+        Property(final VariableElement field, final StoragePropertyKindEnum kind, final boolean lazyJsonPropertiesHolder) {
+            this.field = field;
+            this.kind = kind;
+            this.type = field.asType();
+            this.erasedTypeName = StorageMapperProcessor.this.processingEnv.getTypeUtils().erasure(this.type).toString();
+            this.name = calculatePropertyName();
+            this.lazy = lazyJsonPropertiesHolder && isLazyAnnotated();
+        }
+
+        /**
+         * Resolve accessors.
+         * @param owner
+         *            the owner
+         * @return true, if the field can be read and written from the generated mapper
+         */
+        boolean resolveAccessors(final TypeElement owner) {
+
+            final String fieldName = this.field.getSimpleName().toString();
+            final boolean reachable = !this.field.getModifiers().contains(Modifier.PRIVATE);
+
+            if (reachable) {
+                this.readExpression = "instance." + fieldName;
+            } else {
+                final String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+                final ExecutableElement getter = findMethod(owner, "get" + capitalized, 0);
+                final ExecutableElement booleanGetter = findMethod(owner, "is" + capitalized, 0);
+                if (getter != null) {
+                    this.readExpression = "instance." + getter.getSimpleName() + "()";
+                } else if (booleanGetter != null) {
+                    this.readExpression = "instance." + booleanGetter.getSimpleName() + "()";
+                }
+            }
+
+            if (reachable && !this.field.getModifiers().contains(Modifier.FINAL)) {
+                this.writeFormat = "instance." + fieldName + " = %s;";
+            } else {
+                final ExecutableElement setter = findMethod(owner, "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1), 1);
+                if (setter != null) {
+                    this.writeFormat = "instance." + setter.getSimpleName() + "(%s);";
+                }
+            }
+
+            return this.readExpression != null && this.writeFormat != null;
+
+        }
+
+        /**
+         * Append read, the code mapping the storage attribute to the field.
+         * @param source
+         *            the source
+         * @param variable
+         *            the variable
+         */
+        void appendRead(final StringBuilder source, final String variable) {
+
+            final String indent = "        ";
+
+            if (this.kind == StoragePropertyKindEnum.EMBEDDED) {
+                source.append(indent).append(String.format(this.writeFormat, SUPPORT + ".toEmbedded(" + this.erasedTypeName + ".class, attributes)")).append('\n');
+                return;
+            }
+
+            source.append(indent).append("final Object ").append(variable).append(" = ").append(SUPPORT).append(".value(attributes, \"").append(this.name).append("\");\n");
+
+            if (this.lazy) {
+                source.append(indent).append("if (").append(variable).append(" != null) {\n");
+                source.append(indent).append("    ").append(String.format(this.writeFormat, "null")).append('\n');
+                source.append(indent).append("    ").append(SUPPORT).append(".deferJson(instance, \"").append(this.name).append("\", ").append(variable).append(");\n");
+                source.append(indent).append("}\n");
+                return;
+            }
+
+            switch (this.kind) {
+            case SIMPLE:
+                final String conversion = SIMPLE_CONVERSIONS.get(this.erasedTypeName);
+                final String converted = conversion == null ? SUPPORT + ".convert(" + variable + ", " + this.erasedTypeName + ".class)" : SUPPORT + "." + conversion + "(" + variable + ")";
+                if (this.type.getKind().isPrimitive()) {
+                    appendIfPresent(source, variable, converted);
+                } else {
+                    source.append(indent).append(String.format(this.writeFormat, converted)).append('\n');
+                }
+                break;
+            case ENUM:
+                appendIfPresent(source, variable, this.erasedTypeName + ".valueOf(" + variable + ".toString())");
+                break;
+            case JSON:
+                appendIfPresent(source, variable, "(" + this.type + ") (Object) " + SUPPORT + ".fromJson(" + variable + ", " + this.erasedTypeName + ".class)");
+                break;
+            case JSON_COLLECTION:
+                appendIfPresent(source, variable, "(" + this.type + ") (Object) " + SUPPORT + ".fromJsonCollection(" + variable + ", " + jsonCollectionItemClass() + ".class)");
+                break;
+            default:
+                break;
+            }
+
+        }
+
+        /**
+         * Append write, the code adding the field to the storage attributes.
+         * @param source
+         *            the source
+         */
+        void appendWrite(final StringBuilder source) {
+
+            String indent = "        ";
+
+            if (this.lazy) {
+                source.append(indent).append("if (!").append(SUPPORT).append(".putDeferredJson(attributes, \"").append(this.name).append("\", instance)) {\n");
+                indent = indent + "    ";
+            }
+
+            switch (this.kind) {
+            case SIMPLE:
+                final String method;
+                if ("java.lang.String".equals(this.erasedTypeName)) {
+                    method = "putString";
+                } else if (isNumber()) {
+                    method = "putNumber";
+                } else {
+                    method = "putValue";
+                }
+                source.append(indent).append(SUPPORT).append('.').append(method).append("(attributes, \"").append(this.name).append("\", ").append(this.readExpression).append(");\n");
+                break;
+            case ENUM:
+                source.append(indent).append(SUPPORT).append(".putEnum(attributes, \"").append(this.name).append("\", ").append(this.readExpression).append(");\n");
+                break;
+            case JSON:
+                source.append(indent).append(SUPPORT).append(".putJson(attributes, \"").append(this.name).append("\", ").append(this.readExpression).append(");\n");
+                break;
+            case JSON_COLLECTION:
+                source.append(indent).append(SUPPORT).append(".putJsonCollection(attributes, \"").append(this.name).append("\", ").append(this.readExpression).append(");\n");
+                break;
+            case EMBEDDED:
+                source.append(indent).append(SUPPORT).append(".putEmbedded(attributes, ").append(this.readExpression).append(");\n");
+                break;
+            default:
+                break;
+            }
+
+            if (this.lazy) {
+                source.append("        }\n");
+            }
+
+        }
+
+        /**
+         * Append if present.
+         * @param source
+         *            the source
+         * @param variable
+         *            the variable
+         * @param converted
+         *            the converted
+         */
+        private void appendIfPresent(final StringBuilder source, final String variable, final String converted) {
+            final String indent = "        ";
+            source.append(indent).append("if (").append(variable).append(" != null) {\n");
+            source.append(indent).append("    ").append(String.format(this.writeFormat, converted)).append('\n');
+            source.append(indent).append("}\n");
+        }
+
+        /**
+         * Checks if is number.
+         * @return true, if is number
+         */
+        private boolean isNumber() {
+
+            final TypeKind typeKind = this.type.getKind();
+            if (typeKind.isPrimitive()) {
+                return typeKind != TypeKind.BOOLEAN && typeKind != TypeKind.CHAR;
+            }
+
+            final TypeMirror numberType = StorageMapperProcessor.this.processingEnv.getElementUtils().getTypeElement("java.lang.Number").asType();
+            return StorageMapperProcessor.this.processingEnv.getTypeUtils().isAssignable(this.type, numberType);
+
+        }
+
+        /**
+         * Checks if is lazy annotated.
+         * @return true, if the json property is annotated as lazy
+         */
+        private boolean isLazyAnnotated() {
+
+            if (this.kind == StoragePropertyKindEnum.JSON) {
+                return this.field.getAnnotation(JsonStorageProperty.class).lazy();
+            } else if (this.kind == StoragePropertyKindEnum.JSON_COLLECTION) {
+                return this.field.getAnnotation(JsonCollectionStorageProperty.class).lazy();
+            }
+
+            return false;
+
+        }
+
+        /**
+         * Json collection item class.
+         * @return the item class name
+         */
+        private String jsonCollectionItemClass() {
+
+            try {
+                return this.field.getAnnotation(JsonCollectionStorageProperty.class).klass().getCanonicalName();
+            } catch (final MirroredTypeException e) {
+                return StorageMapperProcessor.this.processingEnv.getTypeUtils().erasure(e.getTypeMirror()).toString();
+            }
+
+        }
+
+        /**
+         * Calculate property name.
+         * @return the string
+         */
+        private String calculatePropertyName() {
+
+            String annotatedName = null;
+            switch (this.kind) {
+            case SIMPLE:
+                annotatedName = this.field.getAnnotation(StorageProperty.class).name();
+                break;
+            case ENUM:
+                annotatedName = this.field.getAnnotation(StoragePropertyEnum.class).name();
+                break;
+            case JSON:
+                annotatedName = this.field.getAnnotation(JsonStorageProperty.class).name();
+                break;
+            case JSON_COLLECTION:
+                annotatedName = this.field.getAnnotation(JsonCollectionStorageProperty.class).name();
+                break;
+            default:
+                break;
+            }
+
+            if (annotatedName != null && !annotatedName.isEmpty()) {
+                return annotatedName;
+            }
+
+            return this.field.getSimpleName().toString();
+
+        }
+
+        /**
+         * Find method.
+         * @param owner
+         *            the owner
+         * @param methodName
+         *            the method name
+         * @param parameters
+         *            the number of parameters
+         * @return the executable element. Null if there is no reachable method with that name
+         */
+        private ExecutableElement findMethod(final TypeElement owner, final String methodName, final int parameters) {
+
+            for (final Element enclosed : owner.getEnclosedElements()) {
+
+                if (enclosed.getKind() == ElementKind.METHOD && enclosed.getSimpleName().contentEquals(methodName)) {
+
+                    final ExecutableElement method = (ExecutableElement) enclosed;
+                    if (method.getParameters().size() == parameters && !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC)) {
+                        if (parameters == 0 || StorageMapperProcessor.this.processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), this.type)) {
+                            return method;
+                        }
+                    }
+
+                }
+
+            }
+
+            return null;
+
+        }
+
+    }
+
+}
@@ -1,9 +1,12 @@
 package co.realtime.storage.servlets;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 
+import co.realtime.storage.async.StorageWriteBehind;
 import co.realtime.storage.connection.StorageRefFactorySingleton;
 
 /**
@@ -15,6 +18,9 @@ public class StorageInitializerServlet extends HttpServlet {
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 1L;
 
+    /** The Constant SHUTDOWN_TIMEOUT_SECONDS. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
     /*
      * (non-Javadoc)
      * @see javax.servlet.GenericServlet#init()
@@ -26,4 +32,22 @@ public class StorageInitializerServlet extends HttpServlet {
         StorageRefFactorySingleton.INSTANCE.reloadConfigurations(storageConfigurationsPath);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see javax.servlet.GenericServlet#destroy()
+     */
+    @Override
+    public void destroy() {
+
+        // flush the buffered saves before the application stops
+        try {
+            StorageWriteBehind.INSTANCE.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        super.destroy();
+
+    }
+
 }
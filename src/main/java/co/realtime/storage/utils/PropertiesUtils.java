@@ -0,0 +1,92 @@
+package co.realtime.storage.utils;
+
+import java.util.Properties;
+
+/**
+ * The Class PropertiesUtils. Reads the optional settings of storage.properties.
+ */
+public final class PropertiesUtils {
+
+    /**
+     * Instantiates a new properties utils.
+     */
+    private PropertiesUtils() {
+        // static
+    }
+
+    /**
+     * Long property.
+     * @param properties
+     *            the properties
+     * @param name
+     *            the name
+     * @param defaultValue
+     *            the default value
+     * @param minValue
+     *            the least valid value
+     * @return the value of the property, or the default value if it is not set
+     * @throws IllegalArgumentException
+     *             if the property is not a whole number of at least minValue
+     */
+    public static long longProperty(final Properties properties, final String name, final long defaultValue, final long minValue) {
+
+        final String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        final String message = String.format("%s must be a whole number of at least %d, not %s", name, Long.valueOf(minValue), value);
+
+        final long parsed;
+        try {
+            parsed = Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(message, e);
+        }
+
+        if (parsed < minValue) {
+            throw new IllegalArgumentException(message);
+        }
+
+        return parsed;
+
+    }
+
+    /**
+     * Int property.
+     * @param properties
+     *            the properties
+     * @param name
+     *            the name
+     * @param defaultValue
+     *            the default value
+     * @param minValue
+     *            the least valid value
+     * @return the value of the property, or the default value if it is not set
+     * @throws IllegalArgumentException
+     *             if the property is not a whole number of at least minValue that fits an int
+     */
+    public static int intProperty(final Properties properties, final String name, final int defaultValue, final int minValue) {
+
+        final long parsed = longProperty(properties, name, defaultValue, minValue);
+        if (parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("%s must be at most %d, not %d", name, Integer.valueOf(Integer.MAX_VALUE), Long.valueOf(parsed)));
+        }
+
+        return (int) parsed;
+
+    }
+
+    /**
+     * Boolean property.
+     * @param properties
+     *            the properties
+     * @param name
+     *            the name
+     * @return true, if the property is true
+     */
+    public static boolean booleanProperty(final Properties properties, final String name) {
+        return Boolean.valueOf(properties.getProperty(name, "false").trim()).booleanValue();
+    }
+
+}
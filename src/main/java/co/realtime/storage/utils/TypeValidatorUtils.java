@@ -21,6 +21,22 @@ public class TypeValidatorUtils {
         return WRAPPER_TYPES.contains(clazz);
     }
 
+    /**
+     * Checks if is number type.
+     * @param clazz
+     *            the clazz
+     * @return true, if is a numeric primitive or a Number, atomics included
+     */
+    public static boolean isNumberType(final Class<?> clazz) {
+
+        if (clazz.isPrimitive()) {
+            return clazz != boolean.class && clazz != char.class && clazz != void.class;
+        }
+
+        return Number.class.isAssignableFrom(clazz);
+
+    }
+
     /**
      * Gets the wrapper types.
      * @return the wrapper types
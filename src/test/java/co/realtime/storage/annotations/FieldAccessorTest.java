@@ -0,0 +1,49 @@
+package co.realtime.storage.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class FieldAccessorTest {
+
+    public static class Sample {
+
+        private int count;
+
+        private String name;
+
+    }
+
+    @Test
+    public void storedTextIsWrittenToPrimitiveFields() throws NoSuchFieldException {
+
+        final Sample sample = new Sample();
+        new FieldAccessor(Sample.class.getDeclaredField("count")).setPrimitive(sample, "12");
+        assertEquals(12, sample.count);
+
+    }
+
+    @Test
+    public void valuesThatCanNotBeWrittenNameTheField() throws NoSuchFieldException {
+
+        final Sample sample = new Sample();
+
+        try {
+            new FieldAccessor(Sample.class.getDeclaredField("count")).setPrimitive(sample, "twelve");
+            fail("text that is not a number was written");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("count"));
+        }
+
+        try {
+            new FieldAccessor(Sample.class.getDeclaredField("name")).set(sample, Integer.valueOf(12));
+            fail("a number was written to a text field");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("name"));
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package co.realtime.storage.annotations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import co.realtime.storage.models.ConnectionInfoSample;
+
+/**
+ * Compares the JsonStorageCodec with the former org.json tree based path on a collection of ConnectionInfoSample items. Run it with the main method,
+ * e.g. java -cp target/classes:target/test-classes:... co.realtime.storage.annotations.JsonStorageCodecBenchmark [items] [iterations]
+ */
+public class JsonStorageCodecBenchmark {
+
+    public static void main(final String[] args) throws InstantiationException {
+
+        final int items = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        final List<ConnectionInfoSample> connections = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            final ConnectionInfoSample connection = new ConnectionInfoSample();
+            connection.setName("Connection \"" + i + "\" of the patient");
+            connections.add(connection);
+        }
+
+        final String json = JsonStorageCodec.writeCollection(connections);
+        long sink = 0;
+
+        // warm up both paths
+        for (int i = 0; i < iterations; i++) {
+            sink += JsonStorageCodec.writeCollection(connections).length() + JsonStorageCodec.readCollection(json, ConnectionInfoSample.class).size();
+            sink += orgJsonWrite(connections).length() + orgJsonRead(json).size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += orgJsonWrite(connections).length();
+        }
+        final long orgJsonWrite = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += JsonStorageCodec.writeCollection(connections).length();
+        }
+        final long codecWrite = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += orgJsonRead(json).size();
+        }
+        final long orgJsonRead = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += JsonStorageCodec.readCollection(json, ConnectionInfoSample.class).size();
+        }
+        final long codecRead = System.nanoTime() - start;
+
+        System.out.println(String.format("%d items x %d iterations (sink %d)", Integer.valueOf(items), Integer.valueOf(iterations), Long.valueOf(sink)));
+        System.out.println(String.format("write  org.json %8.2f ms/op  codec %8.2f ms/op", Double.valueOf(orgJsonWrite / 1e6 / iterations), Double.valueOf(codecWrite / 1e6 / iterations)));
+        System.out.println(String.format("read   org.json %8.2f ms/op  codec %8.2f ms/op", Double.valueOf(orgJsonRead / 1e6 / iterations), Double.valueOf(codecRead / 1e6 / iterations)));
+
+    }
+
+    /**
+     * The former write path: a JSONObject per item in a JSONArray, then toString.
+     */
+    private static String orgJsonWrite(final List<ConnectionInfoSample> connections) {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(ConnectionInfoSample.class);
+        final JSONArray jsonArray = new JSONArray();
+        for (final ConnectionInfoSample connection : connections) {
+            final JSONObject jsonObject = new JSONObject();
+            for (final StoragePropertyMapping mapping : plan.mappings()) {
+                jsonObject.put(mapping.getName(), mapping.get(connection));
+            }
+            jsonArray.put(jsonObject);
+        }
+
+        return jsonArray.toString();
+
+    }
+
+    /**
+     * The former read path: parse the tree, then a map per field of each item.
+     */
+    private static List<Object> orgJsonRead(final String json) throws InstantiationException {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(ConnectionInfoSample.class);
+        final JSONArray jsonItems = new JSONArray(json);
+        final List<Object> items = new ArrayList<>();
+        for (int i = 0; i < jsonItems.length(); i++) {
+            final JSONObject jsonItem = jsonItems.getJSONObject(i);
+            final Object item = plan.newInstance();
+            for (final StoragePropertyMapping mapping : plan.mappings()) {
+                if (jsonItem.has(mapping.getName())) {
+                    final Map<String, Object> attributes = new HashMap<>();
+                    attributes.put(mapping.getName(), jsonItem.get(mapping.getName()));
+                    mapping.set(item, StorageAnnotationsManager.calculateValueToMapping(mapping, attributes.get(mapping.getName())));
+                }
+            }
+            items.add(item);
+        }
+
+        return items;
+
+    }
+
+}
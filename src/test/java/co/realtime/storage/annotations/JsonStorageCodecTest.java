@@ -0,0 +1,105 @@
+package co.realtime.storage.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import co.realtime.storage.models.ConnectionInfoSample;
+
+public class JsonStorageCodecTest {
+
+    public static enum Kind {
+        HOME, WORK
+    }
+
+    public static class Contact {
+
+        @StorageProperty(name = "n")
+        private String name;
+
+        @StorageProperty(name = "age")
+        private Integer age;
+
+        @StorageProperty(name = "score")
+        private double score;
+
+        @StoragePropertyEnum(name = "kind")
+        private Kind kind;
+
+        @JsonStorageProperty(name = "main")
+        private ConnectionInfoSample main;
+
+        @JsonCollectionStorageProperty(name = "others", klass = ConnectionInfoSample.class)
+        private List<ConnectionInfoSample> others;
+
+    }
+
+    @Test
+    public void roundTrip() {
+
+        final Contact contact = new Contact();
+        contact.name = "Jo\"ao\n\\   \u0001";
+        contact.age = Integer.valueOf(42);
+        contact.score = 1.5;
+        contact.kind = Kind.WORK;
+        contact.main = connection("main");
+        contact.others = Arrays.asList(connection("a"), connection("b"));
+
+        final String json = JsonStorageCodec.write(contact);
+        assertEquals(contact.name, new JSONObject(json).getString("n"));
+
+        final Contact read = (Contact) JsonStorageCodec.read(json, Contact.class);
+        assertEquals(contact.name, read.name);
+        assertEquals(contact.age, read.age);
+        assertEquals(1.5, read.score, 0);
+        assertEquals(Kind.WORK, read.kind);
+        assertEquals("main", read.main.getName());
+        assertEquals(2, read.others.size());
+        assertEquals("b", read.others.get(1).getName());
+
+    }
+
+    @Test
+    public void readsOrgJsonOutput() {
+
+        final JSONArray jsonArray = new JSONArray();
+        for (final String name : new String[] { "Joao Antunes", "Joao é \"Carlos\"" }) {
+            final JSONObject jsonObject = new JSONObject();
+            jsonObject.put("name", name);
+            jsonObject.put("unknown", new JSONObject().put("deep", new JSONArray().put(1).put("x")));
+            jsonArray.put(jsonObject);
+        }
+
+        final List<Object> items = JsonStorageCodec.readCollection(jsonArray.toString(), ConnectionInfoSample.class);
+        assertEquals(2, items.size());
+        assertEquals("Joao é \"Carlos\"", ((ConnectionInfoSample) items.get(1)).getName());
+
+    }
+
+    @Test
+    public void nullsAreSkipped() {
+        final Contact contact = new Contact();
+        contact.others = new ArrayList<>();
+        assertEquals("{\"score\":0.0,\"others\":[]}", JsonStorageCodec.write(contact));
+        assertNull(((Contact) JsonStorageCodec.read("{\"n\":null}", Contact.class)).name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidJsonIsRejected() {
+        JsonStorageCodec.read("{\"n\":\"open", Contact.class);
+    }
+
+    private static ConnectionInfoSample connection(final String name) {
+        final ConnectionInfoSample connection = new ConnectionInfoSample();
+        connection.setName(name);
+        return connection;
+    }
+
+}
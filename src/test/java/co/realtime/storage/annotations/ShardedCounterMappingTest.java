@@ -0,0 +1,105 @@
+package co.realtime.storage.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import co.realtime.storage.models.ActiveRecord;
+
+public class ShardedCounterMappingTest {
+
+    @StorageTable(name = "Page", primaryKey = "url")
+    public static class PageRecord extends ActiveRecord {
+
+        @StorageProperty(name = "url", isPrimaryKey = true)
+        private String url;
+
+        @ShardedCounter(table = "Counters", shards = 16)
+        private long views;
+
+        @ShardedCounter(table = "Counters", name = "page_likes", shards = 4, property = "count")
+        private Integer likes;
+
+    }
+
+    public static class InvalidCounterRecord extends ActiveRecord {
+
+        @ShardedCounter(table = "Counters")
+        private String views;
+
+    }
+
+    @Test
+    public void countersAreResolvedByNameOrField() {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(PageRecord.class);
+        final ShardedCounterMapping likes = plan.shardedCounter("page_likes");
+        assertSame(likes, plan.shardedCounter("likes"));
+        assertEquals(4, likes.getShards());
+        assertEquals("count", likes.getProperty());
+        assertEquals(16, plan.shardedCounter("views").getShards());
+        assertEquals("value", plan.shardedCounter("views").getProperty());
+        assertNull(plan.shardedCounter("url"));
+        assertNull(plan.mapping("views"));
+
+    }
+
+    @Test
+    public void shardsAreKeyedByRecordAndCounter() {
+
+        final ShardedCounterMapping views = StorageMappingRegistry.planOf(PageRecord.class).shardedCounter("views");
+        assertEquals("Page:/home:views", views.counterKey("Page", "/home", null));
+        assertEquals("Page:/home:2:views", views.counterKey("Page", "/home", Integer.valueOf(2)));
+
+        for (int i = 0; i < 1000; i++) {
+            final int shard = views.randomShard();
+            assertTrue(shard >= 0 && shard < 16);
+        }
+
+    }
+
+    @Test
+    public void shardsAreSummedMissingOnesAsZero() {
+
+        assertEquals(Long.valueOf(10L), ShardedCounterMapping.sum(Arrays.asList(Integer.valueOf(3), null, Long.valueOf(5), Double.valueOf(2))));
+        assertEquals(0, new BigDecimal("3.5").compareTo((BigDecimal) ShardedCounterMapping.sum(Arrays.asList(Integer.valueOf(3), Double.valueOf(0.5)))));
+        assertEquals(Long.valueOf(0L), ShardedCounterMapping.sum(Arrays.asList(null, null)));
+
+        final PageRecord page = new PageRecord();
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(PageRecord.class);
+        plan.shardedCounter("views").assign(page, Long.valueOf(42L));
+        plan.shardedCounter("likes").assign(page, Long.valueOf(7L));
+        assertEquals(42L, page.views);
+        assertEquals(Integer.valueOf(7), page.likes);
+
+    }
+
+    @Test
+    public void sumsBeyondALongAreNotTruncated() {
+
+        final Number sum = ShardedCounterMapping.sum(Arrays.asList(Long.valueOf(Long.MAX_VALUE), Integer.valueOf(1)));
+        assertEquals(0, new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE).compareTo((BigDecimal) sum));
+
+        final PageRecord page = new PageRecord();
+        try {
+            StorageMappingRegistry.planOf(PageRecord.class).shardedCounter("views").assign(page, sum);
+            fail();
+        } catch (final ArithmeticException e) {
+            assertEquals(0L, page.views);
+        }
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countersMustBeNumeric() {
+        StorageMappingRegistry.planOf(InvalidCounterRecord.class);
+    }
+
+}
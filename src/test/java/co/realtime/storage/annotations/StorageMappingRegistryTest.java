@@ -0,0 +1,155 @@
+package co.realtime.storage.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.StorageRef.StorageDataType;
+import co.realtime.storage.models.ActiveRecord;
+import co.realtime.storage.models.ConnectionInfoSample;
+import co.realtime.storage.models.EntityRecordSample;
+import co.realtime.storage.models.PatientRecordSample;
+
+public class StorageMappingRegistryTest {
+
+    @StorageTable(name = "Counter", primaryKey = "id", secondaryKey = "day")
+    public static class CounterRecord extends ActiveRecord {
+
+        @StorageProperty(name = "id", isPrimaryKey = true)
+        private Long id;
+
+        @StorageProperty(name = "day")
+        private String day;
+
+    }
+
+    public static class Location {
+
+        @StorageProperty(name = "latitude")
+        private final Double latitude;
+
+        public Location(final Double latitude) {
+            this.latitude = latitude;
+        }
+
+    }
+
+    @StorageTable(name = "Place", primaryKey = "id")
+    public static class PlaceRecord extends ActiveRecord {
+
+        @StorageProperty(name = "id", isPrimaryKey = true)
+        private String id;
+
+        @EmbeddedStorageProperties
+        private Location location;
+
+    }
+
+    @Test
+    public void keysAreResolvedOnce() {
+
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(CounterRecord.class);
+        assertEquals(StorageDataType.NUMBER, plan.getPrimaryKey().getDataType());
+        assertEquals("day", plan.getSecondaryKey().getName());
+        assertEquals(StorageDataType.STRING, plan.getSecondaryKey().getDataType());
+        assertFalse(StorageMappingRegistry.planOf(PatientRecordSample.class).getSecondaryKey().isDefined());
+
+        final EntityRecordSample entity = new EntityRecordSample();
+        entity.setCnes("1");
+        entity.setCap("C1");
+        assertEquals("1", entity.getPrimaryKey());
+        assertEquals("C1", entity.getSecondaryKey());
+        assertEquals(StorageDataType.STRING, entity.getPrimaryKeyType());
+
+    }
+
+    @Test
+    public void planIsBuiltOncePerClass() {
+        final StorageMappingPlan plan = StorageMappingRegistry.planOf(PatientRecordSample.class);
+        assertSame(plan, StorageMappingRegistry.planOf(PatientRecordSample.class));
+        assertEquals(3, plan.mappings().size());
+        assertEquals(StoragePropertyKindEnum.JSON_COLLECTION, plan.mapping("connections").getKind());
+        assertEquals(ConnectionInfoSample.class, plan.mapping("connections").getItemClass());
+        assertTrue(plan.mapping("cpf").isPrimaryKey());
+        assertNull(plan.mapping("unknown"));
+    }
+
+    @Test
+    public void planInstantiatesThroughNoArgConstructor() throws InstantiationException {
+        assertTrue(StorageMappingRegistry.planOf(ConnectionInfoSample.class).newInstance() instanceof ConnectionInfoSample);
+    }
+
+    @Test(expected = InstantiationException.class)
+    public void abstractClassesCannotBeInstantiated() throws InstantiationException {
+        StorageMappingRegistry.planOf(ActiveRecord.class).newInstance();
+    }
+
+    @Test
+    public void instanceToAttributesAndBack() {
+
+        final PatientRecordSample patient = new PatientRecordSample();
+        patient.setCpf("1");
+        patient.setName("joao");
+
+        final List<ConnectionInfoSample> connections = new ArrayList<>(0);
+        final ConnectionInfoSample connection = new ConnectionInfoSample();
+        connection.setName("Joao Antunes");
+        connections.add(connection);
+        patient.setConnections(connections);
+
+        final Map<String, ItemAttribute> attributes = StorageAnnotationsManager.instanceToAttributes(patient);
+        assertEquals(3, attributes.size());
+
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (final Map.Entry<String, ItemAttribute> entry : attributes.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+
+        final PatientRecordSample mapped = new PatientRecordSample();
+        StorageAnnotationsManager.mapAttributesToInstance(mapped, values);
+        assertEquals("1", mapped.getCpf());
+        assertEquals("joao", mapped.getName());
+        assertEquals(1, mapped.getConnections().size());
+        assertEquals("Joao Antunes", mapped.getConnections().iterator().next().getName());
+
+    }
+
+    @Test
+    public void itemAttributesAreMappedInOnePass() {
+
+        final CounterRecord counter = new CounterRecord();
+        counter.id = 7L;
+        counter.day = "monday";
+
+        final Map<String, ItemAttribute> attributes = new LinkedHashMap<>();
+        attributes.put("id", new ItemAttribute(8));
+        StorageAnnotationsManager.mapItemAttributesToInstance(counter, attributes);
+        assertEquals(Long.valueOf(8), counter.id);
+        assertNull(counter.day);
+
+    }
+
+    @Test
+    public void embeddedPropertiesWithoutNoArgConstructorFailThePlan() {
+
+        try {
+            StorageMappingRegistry.planOf(PlaceRecord.class);
+            fail("the plan was built");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("location"));
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package co.realtime.storage.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+
+public class StorageValueConvertersTest {
+
+    public static class Temperature {
+
+        private final long milliKelvin;
+
+        public Temperature(final long milliKelvin) {
+            this.milliKelvin = milliKelvin;
+        }
+
+    }
+
+    @StorageTable(name = "Reading", primaryKey = "id")
+    public static class ReadingRecord {
+
+        @StorageProperty(name = "id", isPrimaryKey = true)
+        private UUID id;
+
+        @StorageProperty(name = "count")
+        private int count;
+
+        @StorageProperty(name = "valid")
+        private boolean valid;
+
+        @StorageProperty(name = "amount")
+        private BigDecimal amount;
+
+        @StorageProperty(name = "temperature")
+        private Temperature temperature;
+
+    }
+
+    static {
+        StorageValueConverters.register(Temperature.class, new StorageValueConverter<Temperature>() {
+
+            @Override
+            public Temperature fromStorage(final Object attribute) {
+                return new Temperature(((Number) attribute).longValue());
+            }
+
+            @Override
+            public Object toStorage(final Temperature value) {
+                return Long.valueOf(value.milliKelvin);
+            }
+
+        });
+    }
+
+    @Test
+    public void bigDecimalIsNotConvertedThroughDouble() {
+        assertEquals(new BigDecimal("0.1"), StorageValueConverters.fromStorage(BigDecimal.class, Double.valueOf(0.1)));
+        assertEquals(new BigDecimal("9007199254740993"), StorageValueConverters.fromStorage(BigDecimal.class, Long.valueOf(9007199254740993L)));
+    }
+
+    @Test
+    public void primitivesResolveToTheirWrapperConverter() {
+        assertSame(StorageValueConverters.LONG, StorageValueConverters.converterFor(long.class));
+        assertEquals(Integer.valueOf(3), StorageValueConverters.fromStorage(int.class, "3"));
+    }
+
+    @Test
+    public void recordRoundtripThroughConverters() {
+
+        final ReadingRecord reading = new ReadingRecord();
+        reading.id = UUID.randomUUID();
+        reading.count = 42;
+        reading.valid = true;
+        reading.amount = new BigDecimal("10.25");
+        reading.temperature = new Temperature(293150L);
+
+        final Map<String, ItemAttribute> attributes = StorageAnnotationsManager.instanceToAttributes(reading);
+        assertEquals(reading.id.toString(), attributes.get("id").get());
+        assertEquals(Long.valueOf(293150L), attributes.get("temperature").get());
+
+        final ReadingRecord mapped = new ReadingRecord();
+        StorageAnnotationsManager.mapItemAttributesToInstance(mapped, attributes);
+        assertEquals(reading.id, mapped.id);
+        assertEquals(42, mapped.count);
+        assertEquals(true, mapped.valid);
+        assertEquals(new BigDecimal("10.25"), mapped.amount);
+        assertEquals(293150L, mapped.temperature.milliKelvin);
+
+        final Map<String, ItemAttribute> partial = new LinkedHashMap<>();
+        partial.put("count", new ItemAttribute("7"));
+        StorageAnnotationsManager.mapItemAttributesToInstance(mapped, partial);
+        assertEquals(7, mapped.count);
+        assertEquals(true, mapped.valid);
+        assertNull(mapped.amount);
+
+        final ReadingRecord decoded = (ReadingRecord) StorageAnnotationsManager.jsonToInstance(StorageAnnotationsManager.instanceToJson(reading), ReadingRecord.class);
+        assertEquals(reading.id, decoded.id);
+        assertEquals(42, decoded.count);
+        assertEquals(293150L, decoded.temperature.milliKelvin);
+
+    }
+
+}
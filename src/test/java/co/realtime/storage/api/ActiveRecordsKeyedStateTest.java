@@ -0,0 +1,59 @@
+package co.realtime.storage.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class ActiveRecordsKeyedStateTest {
+
+    @Test
+    public void keysAreLookedUpByValueOrStorageKey() {
+
+        final EntityRecordSample found = new EntityRecordSample();
+        final EntityRecordSample missing = new EntityRecordSample();
+        final EntityRecordSample failed = new EntityRecordSample();
+        final Error notFound = new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.RESOURCE_NOT_FOUND, "Item not found");
+        final Error throttled = new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.THROTTLING, "Throttled");
+
+        final List<StorageKey> keys = Arrays.asList(StorageKey.of("1", "rio"), StorageKey.of("2", "rio"), StorageKey.of("3", "rio"));
+        final ActiveRecordsKeyedState<EntityRecordSample> state = new ActiveRecordsKeyedState<>(keys, new ActiveRecordsBatchState<>(Arrays.asList(found, missing, failed), new Error[] {
+                null, notFound, throttled }));
+
+        assertSame(found, state.record(StorageKey.of("1", "rio")));
+        assertNull(state.record(StorageKey.of("2", "rio")));
+        assertTrue(state.isNotFound(StorageKey.of("2", "rio")));
+        assertFalse(state.isNotFound(StorageKey.of("3", "rio")));
+        assertSame(throttled, state.error(StorageKey.of("3", "rio")));
+        assertNull(state.record("1"));
+        assertEquals(Arrays.asList(StorageKey.of("2", "rio")), state.notFoundKeys());
+        assertEquals(Arrays.asList(found), state.records());
+        assertTrue(state.hasErrors());
+
+    }
+
+    @Test
+    public void keysAreSetThroughTheMappingPlan() {
+
+        final EntityRecordSample record = new EntityRecordSample();
+        StorageMappingRegistry.planOf(EntityRecordSample.class).getPrimaryKey().set(record, "2700");
+        StorageMappingRegistry.planOf(EntityRecordSample.class).getSecondaryKey().set(record, "rio");
+
+        assertEquals(StorageKey.of("2700", "rio"), StorageKey.of(record.getPrimaryKey(), record.getSecondaryKey()));
+        assertEquals(StorageKey.of("2700"), StorageKey.from("2700"));
+
+    }
+
+}
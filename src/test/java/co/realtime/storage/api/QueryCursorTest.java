@@ -0,0 +1,59 @@
+package co.realtime.storage.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import co.realtime.storage.models.EntityRecordSample;
+
+public class QueryCursorTest {
+
+    private static EntityRecordSample entity(final String cnes, final String cap) {
+        final EntityRecordSample entity = new EntityRecordSample();
+        entity.setCnes(cnes);
+        entity.setCap(cap);
+        return entity;
+    }
+
+    @Test
+    public void cursorsRoundTripThroughTheirToken() {
+
+        final QueryCursor strings = new QueryCursor(StorageKey.of("a~b c&d", "ção"));
+        assertEquals(strings, QueryCursor.decode(strings.encode()));
+        assertFalse(strings.encode().contains(" "));
+
+        final QueryCursor numbers = new QueryCursor(StorageKey.of(Long.valueOf(42L), Double.valueOf(1.5)));
+        assertEquals(numbers, QueryCursor.decode(numbers.encode()));
+
+        final QueryCursor primaryOnly = QueryCursor.decode(new QueryCursor(StorageKey.of("p")).encode());
+        assertEquals("p", primaryOnly.getKey().getPrimaryKey());
+        assertNull(primaryOnly.getKey().getSecondaryKey());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedTokensAreRejected() {
+        QueryCursor.decode("x1~");
+    }
+
+    @Test
+    public void pagesResumeAfterTheirLastRecord() {
+
+        final QueryPage<EntityRecordSample> page = new QueryPage<>(Arrays.asList(entity("1", "A"), entity("1", "B"), entity("1", "C")), 2);
+        assertEquals(2, page.records().size());
+        assertTrue(page.hasNext());
+        assertEquals(StorageKey.of("1", "B"), page.nextCursor().getKey());
+
+        final QueryPage<EntityRecordSample> last = new QueryPage<>(Arrays.asList(entity("1", "D")), 2);
+        assertEquals(1, last.records().size());
+        assertFalse(last.hasNext());
+        assertNull(last.nextCursor());
+
+    }
+
+}
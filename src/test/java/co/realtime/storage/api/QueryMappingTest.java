@@ -0,0 +1,54 @@
+package co.realtime.storage.api;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.async.ActiveRecordsCollectionStateFuture;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class QueryMappingTest {
+
+    /**
+     * The Class MalformedEntity. Maps every snapshot as a malformed one.
+     */
+    public static class MalformedEntity extends EntityRecordSample {
+
+        @Override
+        public void mapAttributesFromItemSnapshot(final ItemSnapshot itemSnapshot) {
+            throw new NumberFormatException("malformed");
+        }
+
+    }
+
+    @Test
+    public void snapshotsFailingToMapFailTheQuery() throws Exception {
+
+        final ActiveRecordsCollectionStateFuture<MalformedEntity> future = new ActiveRecordsCollectionStateFuture<>(null, null);
+        // the mapping task, plus the end of the results
+        final AtomicInteger pending = new AtomicInteger(2);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        QueryRef.mappingTask(future, future.reserveRecord(), MalformedEntity.class, StorageMappingRegistry.planOf(MalformedEntity.class), null, pending, failed).run();
+        QueryRef.finishMapping(future, pending, failed);
+
+        assertTrue(failed.get());
+        try {
+            final ActiveRecordsCollectionState<MalformedEntity> state = future.get(1, TimeUnit.SECONDS);
+            assertTrue(state.hasError());
+            assertTrue(state.error().getMessage().contains("malformed"));
+        } catch (final TimeoutException e) {
+            fail("the query did not complete");
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package co.realtime.storage.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.models.EntityRecordSample;
+import co.realtime.storage.models.PatientRecordSample;
+
+public class QueryPlannerTest {
+
+    private static final StorageMappingPlan ENTITY = StorageMappingRegistry.planOf(EntityRecordSample.class);
+
+    private static final StorageMappingPlan PATIENT = StorageMappingRegistry.planOf(PatientRecordSample.class);
+
+    private static QueryPredicate entity(final String fieldName, final QueryOperatorEnum operator, final Object... values) {
+        return QueryPredicate.of(ENTITY, fieldName, operator, values);
+    }
+
+    @Test
+    public void pinnedKeysAreReadWithAnItemGet() {
+
+        final QueryPlan plan = QueryPlanner.plan(ENTITY, "Entity", Arrays.asList(entity("cap", QueryOperatorEnum.EQ, "C1"), entity("cnes", QueryOperatorEnum.EQ, "1")), false);
+        assertEquals(QueryPlanKindEnum.POINT_GET, plan.getKind());
+        assertEquals("1", plan.primaryKey().get());
+        assertEquals("C1", plan.secondaryKey().get());
+        assertEquals("POINT_GET Entity where cnes = 1, cap = C1", plan.explain());
+
+        final QueryPlan patient = QueryPlanner.plan(PATIENT, "Patient", Arrays.asList(QueryPredicate.of(PATIENT, "cpf", QueryOperatorEnum.EQ, "123")), false);
+        assertEquals(QueryPlanKindEnum.POINT_GET, patient.getKind());
+        assertNull(patient.secondaryKey());
+
+    }
+
+    @Test
+    public void pinnedPrimaryKeysAreQueriedByRange() {
+
+        final QueryPlan plan = QueryPlanner.plan(ENTITY, "Entity",
+                Arrays.asList(entity("cnes", QueryOperatorEnum.EQ, "1"), entity("cap", QueryOperatorEnum.BEGINS_WITH, "C"), entity("name", QueryOperatorEnum.CONTAINS, "Rio")), false);
+        assertEquals(QueryPlanKindEnum.KEY_QUERY, plan.getKind());
+        assertEquals(1, plan.getSecondaryKeyPredicates().size());
+        assertEquals(1, plan.getFilterPredicates().size());
+        assertEquals("KEY_QUERY Entity where cnes = 1, key range cap begins with C, filter name contains Rio", plan.explain());
+
+        // an item get can not resume after a cursor, nor filter its item
+        assertEquals(QueryPlanKindEnum.KEY_QUERY, QueryPlanner.plan(ENTITY, "Entity", Arrays.asList(entity("cnes", QueryOperatorEnum.EQ, "1"), entity("cap", QueryOperatorEnum.EQ, "C1")), true).getKind());
+        assertEquals(QueryPlanKindEnum.KEY_QUERY,
+                QueryPlanner.plan(PATIENT, "Patient", Arrays.asList(QueryPredicate.of(PATIENT, "cpf", QueryOperatorEnum.EQ, "1"), QueryPredicate.of(PATIENT, "name", QueryOperatorEnum.EQ, "Ana")), false).getKind());
+
+    }
+
+    @Test
+    public void unpinnedPrimaryKeysAreScanned() {
+
+        final QueryPlan plan = QueryPlanner.plan(ENTITY, "Entity", Arrays.asList(entity("cap", QueryOperatorEnum.EQ, "C1"), entity("cnes", QueryOperatorEnum.GT, "1")), false);
+        assertEquals(QueryPlanKindEnum.SCAN, plan.getKind());
+        assertNull(plan.primaryKey());
+        assertEquals("SCAN Entity where filter cap = C1, filter cnes > 1", plan.explain());
+        assertEquals("SCAN Entity", QueryPlanner.plan(ENTITY, "Entity", Arrays.<QueryPredicate> asList(), false).explain());
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resumedScansAreRejected() {
+        // items (a,1),(a,2),(b,1),(b,2) in pages of 2: resuming after cap 2 on a scan would skip every item of b
+        QueryPlanner.plan(ENTITY, "Entity", Arrays.asList(entity("name", QueryOperatorEnum.BEGINS_WITH, "Rio")), true);
+    }
+
+    @Test
+    public void resumedKeyQueriesAreRangedBySecondaryKey() {
+        final QueryPlan plan = QueryPlanner.plan(ENTITY, "Entity", Arrays.asList(entity("cnes", QueryOperatorEnum.EQ, "a")), true);
+        assertEquals(QueryPlanKindEnum.KEY_QUERY, plan.getKind());
+        assertEquals("a", plan.primaryKey().get());
+    }
+
+}
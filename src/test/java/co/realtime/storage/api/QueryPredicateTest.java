@@ -0,0 +1,91 @@
+package co.realtime.storage.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import co.realtime.storage.annotations.JsonStorageProperty;
+import co.realtime.storage.annotations.StorageMappingPlan;
+import co.realtime.storage.annotations.StorageMappingRegistry;
+import co.realtime.storage.annotations.StorageProperty;
+import co.realtime.storage.annotations.StoragePropertyEnum;
+import co.realtime.storage.annotations.StorageTable;
+import co.realtime.storage.models.ActiveRecord;
+import co.realtime.storage.models.ConnectionInfoSample;
+
+public class QueryPredicateTest {
+
+    public enum VisitStatus {
+        OPEN, CLOSED
+    }
+
+    @StorageTable(name = "Visit", primaryKey = "patient", secondaryKey = "startedAt")
+    public static class VisitRecord extends ActiveRecord {
+
+        @StorageProperty(name = "patient_id", isPrimaryKey = true)
+        private UUID patient;
+
+        @StorageProperty(name = "started_at", isSecondaryKey = true)
+        private Date startedAt;
+
+        @StoragePropertyEnum(name = "visit_status")
+        private VisitStatus status;
+
+        @StorageProperty(name = "room")
+        private Integer room;
+
+        @JsonStorageProperty(name = "connection")
+        private ConnectionInfoSample connection;
+
+    }
+
+    private static final StorageMappingPlan PLAN = StorageMappingRegistry.planOf(VisitRecord.class);
+
+    @Test
+    public void fieldsAreResolvedToTheirStorageNames() {
+
+        final UUID patient = UUID.randomUUID();
+        final QueryPredicate predicate = QueryPredicate.of(PLAN, "patient", QueryOperatorEnum.EQ, patient);
+        assertEquals("patient_id", predicate.getName());
+        assertEquals(patient.toString(), predicate.getValues().get(0).get());
+        assertEquals("visit_status", QueryPredicate.of(PLAN, "visit_status", QueryOperatorEnum.NOT_NULL).getName());
+
+    }
+
+    @Test
+    public void valuesAreConvertedAsTheFieldIsStored() {
+
+        final QueryPredicate startedAt = QueryPredicate.of(PLAN, "startedAt", QueryOperatorEnum.BETWEEN, new Date(1000L), new Date(2000L));
+        assertEquals(1000L, ((Number) startedAt.getValues().get(0).get()).longValue());
+        assertEquals(2000L, ((Number) startedAt.getValues().get(1).get()).longValue());
+        assertEquals("started_at between 1000 and 2000", startedAt.toString());
+
+        assertEquals("CLOSED", QueryPredicate.of(PLAN, "status", QueryOperatorEnum.NE, VisitStatus.CLOSED).getValues().get(0).get());
+        assertEquals(Integer.valueOf(12), QueryPredicate.of(PLAN, "room", QueryOperatorEnum.GT, Integer.valueOf(12)).getValues().get(0).get());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jsonPropertiesAreNotQueryable() {
+        QueryPredicate.of(PLAN, "connection", QueryOperatorEnum.CONTAINS, "x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldsAreRejected() {
+        QueryPredicate.of(PLAN, "doctor", QueryOperatorEnum.EQ, "x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void betweenNeedsTwoValues() {
+        QueryPredicate.of(PLAN, "room", QueryOperatorEnum.BETWEEN, Integer.valueOf(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValuesAreRejected() {
+        QueryPredicate.of(PLAN, "room", QueryOperatorEnum.EQ, (Object) null);
+    }
+
+}
@@ -0,0 +1,173 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import co.realtime.storage.api.ActiveRecordsBatchState;
+import co.realtime.storage.api.OnErrorCommand;
+import co.realtime.storage.api.OnSuccessRecordCommand;
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class ActiveRecordBatchTest {
+
+    @Test
+    public void inFlightOperationsAreBoundedByTheWindow() throws Exception {
+
+        final List<EntityRecordSample> records = records(500);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final ExecutorService storage = Executors.newFixedThreadPool(8);
+
+        try {
+            final ActiveRecordsBatchState<EntityRecordSample> state = new ActiveRecordBatch<EntityRecordSample>(records, 4) {
+
+                @Override
+                protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+
+                    final int current = inFlight.incrementAndGet();
+                    synchronized (maxInFlight) {
+                        maxInFlight.set(Math.max(maxInFlight.get(), current));
+                    }
+
+                    storage.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            inFlight.decrementAndGet();
+                            onSuccess.execute(record);
+                        }
+
+                    });
+
+                }
+
+            }.start().get(5, TimeUnit.SECONDS);
+
+            assertEquals(500, state.size());
+            assertTrue(maxInFlight.get() <= 4);
+            assertTrue(!state.hasErrors());
+        } finally {
+            storage.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void errorsAreCollectedByPosition() throws Exception {
+
+        final List<EntityRecordSample> records = records(10);
+        final Error error = new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.RESOURCE_NOT_FOUND, "Item not found");
+
+        final ActiveRecordsBatchState<EntityRecordSample> state = new ActiveRecordBatch<EntityRecordSample>(records, 3) {
+
+            @Override
+            protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+                if (records.indexOf(record) % 3 == 0) {
+                    onError.execute(error);
+                } else {
+                    onSuccess.execute(record);
+                }
+            }
+
+        }.start().get();
+
+        assertEquals(4, state.errorCount());
+        assertSame(error, state.error(3));
+        assertNull(state.error(4));
+        assertEquals(records.get(9), state.failedRecords().get(3));
+        assertEquals(6, state.succeededRecords().size());
+
+    }
+
+    @Test
+    public void inlineCompletionsDoNotRecurse() throws Exception {
+
+        final ActiveRecordsBatchState<EntityRecordSample> state = new ActiveRecordBatch<EntityRecordSample>(records(100000), 1) {
+
+            @Override
+            protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+                onSuccess.execute(record);
+            }
+
+        }.start().get();
+
+        assertEquals(100000, state.size());
+
+    }
+
+    @Test
+    public void recordsReportingTwiceFinishOnce() throws Exception {
+
+        final List<EntityRecordSample> records = records(10);
+        final Error timeout = new Error(ErrorSourceEnum.SERVICES, ErrorTypeEnum.TIMEOUT, "Operation timed out");
+
+        final ActiveRecordsBatchState<EntityRecordSample> state = new ActiveRecordBatch<EntityRecordSample>(records, 2) {
+
+            @Override
+            protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+                onSuccess.execute(record);
+                onError.execute(timeout);
+            }
+
+        }.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, state.size());
+        assertEquals(0, state.errorCount());
+
+    }
+
+    @Test
+    public void errorsThrownByOperationsAreCollected() throws Exception {
+
+        final ActiveRecordsBatchState<EntityRecordSample> state = new ActiveRecordBatch<EntityRecordSample>(records(5), 2) {
+
+            @Override
+            protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+                throw new IllegalAccessError("Cannot access record because doesnt have primary key defined!");
+            }
+
+        }.start().get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, state.errorCount());
+
+    }
+
+    @Test
+    public void emptyBatchCompletesAtOnce() throws Exception {
+        assertEquals(0, new ActiveRecordBatch<EntityRecordSample>(Collections.<EntityRecordSample> emptyList(), 1) {
+
+            @Override
+            protected void execute(final EntityRecordSample record, final OnSuccessRecordCommand<EntityRecordSample> onSuccess, final OnErrorCommand onError) {
+                throw new IllegalStateException();
+            }
+
+        }.start().get().size());
+    }
+
+    private static List<EntityRecordSample> records(final int count) {
+
+        final List<EntityRecordSample> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new EntityRecordSample());
+        }
+
+        return records;
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import co.realtime.storage.api.ActiveRecordState;
+import co.realtime.storage.api.OnSuccessRecordCommand;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.models.ActiveRecord;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class ActiveRecordStateFutureTest {
+
+    @Test
+    public void everyWaiterGetsTheState() throws Exception {
+
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(null, null);
+        final ExecutorService waiters = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<ActiveRecordState<EntityRecordSample>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(waiters.submit(new Callable<ActiveRecordState<EntityRecordSample>>() {
+
+                    @Override
+                    public ActiveRecordState<EntityRecordSample> call() throws Exception {
+                        return future.get();
+                    }
+
+                }));
+            }
+
+            final EntityRecordSample record = new EntityRecordSample();
+            future.processRecordAsync(record);
+            future.processRecordAsync(new EntityRecordSample());
+
+            assertTrue(future.isDone());
+            for (final Future<ActiveRecordState<EntityRecordSample>> result : results) {
+                assertSame(record, result.get(1, TimeUnit.SECONDS).record());
+            }
+            assertSame(record, future.get().record());
+        } finally {
+            waiters.shutdownNow();
+        }
+
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void timedGetExpires() throws Exception {
+        new ActiveRecordStateFuture<EntityRecordSample>(null, null).get(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledFutureIsNotCompletedLater() throws Exception {
+
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(null, null);
+        assertTrue(future.cancel(false));
+        assertFalse(future.isRunning());
+        future.processRecordAsync(new EntityRecordSample());
+        assertTrue(future.isCancelled());
+        future.get();
+
+    }
+
+    @Test
+    public void cancelRunsTheCompletionCallbacksButNotTheCommands() {
+
+        final AtomicBoolean successRun = new AtomicBoolean(false);
+        final AtomicBoolean completionRun = new AtomicBoolean(false);
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(new OnSuccessRecordCommand<EntityRecordSample>() {
+
+            @Override
+            public void execute(final ActiveRecord record) {
+                successRun.set(true);
+            }
+
+        }, null);
+
+        future.whenComplete(new Runnable() {
+
+            @Override
+            public void run() {
+                completionRun.set(true);
+            }
+
+        });
+
+        assertTrue(future.cancel(false));
+        assertTrue(completionRun.get());
+        assertFalse(successRun.get());
+
+    }
+
+    @Test
+    public void timedOutWaitersAreUnlinked() throws Exception {
+
+        final AtomicBoolean completionRun = new AtomicBoolean(false);
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(null, null);
+
+        for (int i = 0; i < 1000; i++) {
+            if (i == 500) {
+                future.whenComplete(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        completionRun.set(true);
+                    }
+
+                });
+            }
+            try {
+                future.get(1, TimeUnit.MICROSECONDS);
+            } catch (final TimeoutException e) {
+                // polled again
+            }
+        }
+
+        // only the completion callback is left
+        assertEquals(1, future.pendingWaiters());
+        future.processRecordAsync(new EntityRecordSample());
+        future.get();
+        assertTrue(completionRun.get());
+
+    }
+
+    @Test
+    public void deadlineFailsWithTimeoutAndSuppressesLateCallbacks() throws Exception {
+
+        final AtomicBoolean successRun = new AtomicBoolean(false);
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(new OnSuccessRecordCommand<EntityRecordSample>() {
+
+            @Override
+            public void execute(final ActiveRecord record) {
+                successRun.set(true);
+            }
+
+        }, null);
+
+        future.withDeadline(20, TimeUnit.MILLISECONDS);
+        final ActiveRecordState<EntityRecordSample> state = future.get(1, TimeUnit.SECONDS);
+
+        assertTrue(state.hasError());
+        assertEquals(ErrorTypeEnum.TIMEOUT, state.error().getErrorType());
+        assertTrue(future.isSettled());
+
+        future.processRecordAsync(new EntityRecordSample());
+        assertFalse(successRun.get());
+        assertSame(state, future.get());
+
+    }
+
+    @Test
+    public void cancelledCollectionStopsCollectingRecords() throws Exception {
+
+        final ActiveRecordsCollectionStateFuture<EntityRecordSample> future = new ActiveRecordsCollectionStateFuture<>(null, null);
+        future.addRecord(new EntityRecordSample());
+        final int position = future.reserveRecord();
+
+        assertTrue(future.cancel(false));
+        future.addRecord(new EntityRecordSample());
+        future.setRecord(position, new EntityRecordSample());
+        future.processRecordsAsync();
+
+        // neither completed by the late results nor expired by a deadline
+        future.withDeadline(0, TimeUnit.MILLISECONDS);
+        assertTrue(future.isCancelled());
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.exceptions.StorageErrorException;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class ActiveRecordStreamTest {
+
+    @Test
+    public void endOfResultsStopsTheIteration() throws InterruptedException {
+        final ActiveRecordStream<EntityRecordSample> stream = new ActiveRecordStream<>(EntityRecordSample.class, 1);
+        stream.processEnd();
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    public void errorsAreRaisedToTheConsumer() throws InterruptedException {
+
+        final ActiveRecordStream<EntityRecordSample> stream = new ActiveRecordStream<>(EntityRecordSample.class, 1);
+        final Error error = new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.THROTTLING, "Throttled");
+        stream.processError(error);
+
+        try {
+            stream.hasNext();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(error, ((StorageErrorException) e.getCause()).getError());
+        }
+
+    }
+
+    @Test
+    public void producerWaitsForRoomAndIsReleasedByClose() throws InterruptedException {
+
+        final ActiveRecordStream<EntityRecordSample> stream = new ActiveRecordStream<>(EntityRecordSample.class, 1);
+        stream.processError(new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.UNKNOWN, "first"));
+
+        final CountDownLatch released = new CountDownLatch(1);
+        final Thread producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    stream.processEnd();
+                    released.countDown();
+                } catch (final InterruptedException e) {
+                    // test thread
+                }
+            }
+
+        });
+        producer.start();
+
+        assertFalse(released.await(100, TimeUnit.MILLISECONDS));
+        stream.close();
+        assertTrue(released.await(1, TimeUnit.SECONDS));
+        assertFalse(stream.hasNext());
+
+    }
+
+    @Test
+    public void producerGivesUpOnAnAbandonedStream() throws InterruptedException {
+
+        final ActiveRecordStream<EntityRecordSample> stream = new ActiveRecordStream<>(EntityRecordSample.class, 1).withStallTimeout(50, TimeUnit.MILLISECONDS);
+        stream.processError(new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.UNKNOWN, "first"));
+
+        final long started = System.nanoTime();
+        stream.processEnd();
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(stream.isClosed());
+
+        try {
+            stream.hasNext();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(ErrorTypeEnum.TIMEOUT, ((StorageErrorException) e.getCause()).getError().getErrorType());
+        }
+
+    }
+
+    @Test
+    public void deadlineClosesTheStream() {
+
+        final ActiveRecordStream<EntityRecordSample> stream = new ActiveRecordStream<>(EntityRecordSample.class, 1).withDeadline(20, TimeUnit.MILLISECONDS);
+
+        try {
+            stream.hasNext();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals(ErrorTypeEnum.TIMEOUT, ((StorageErrorException) e.getCause()).getError().getErrorType());
+        }
+
+        assertTrue(stream.isClosed());
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import co.realtime.storage.models.EntityRecordSample;
+
+public class ActiveRecordsCollectionStateFutureTest {
+
+    @Test
+    public void recordsMappedOutOfOrderKeepTheirPosition() throws Exception {
+
+        final ActiveRecordsCollectionStateFuture<EntityRecordSample> future = new ActiveRecordsCollectionStateFuture<>(null, null);
+        final EntityRecordSample first = new EntityRecordSample();
+        final EntityRecordSample third = new EntityRecordSample();
+
+        final int firstPosition = future.reserveRecord();
+        future.reserveRecord();
+        final int thirdPosition = future.reserveRecord();
+
+        future.setRecord(thirdPosition, third);
+        future.setRecord(firstPosition, first);
+        future.processRecordsAsync();
+
+        final List<EntityRecordSample> records = future.get().records();
+        assertEquals(2, records.size());
+        assertSame(first, records.get(0));
+        assertSame(third, records.get(1));
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void requestsOverTheLimitWaitForAPermit() {
+
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 8);
+        final List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 3);
+
+        assertEquals(2, permits.size());
+        assertEquals(1, limiter.getWaiting());
+
+        permits.get(0).release(false);
+        assertEquals(3, permits.size());
+        assertEquals(0, limiter.getWaiting());
+        assertEquals(2, limiter.getInFlight());
+
+    }
+
+    @Test
+    public void throttlingHalvesTheLimitOncePerRound() {
+
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 64);
+        final List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 16);
+
+        // every request of the round is throttled, the limit is only halved once
+        for (final AdaptiveConcurrencyLimiter.Permit permit : permits) {
+            permit.release(true);
+        }
+        assertEquals(8, limiter.getLimit());
+
+        // a request started after the decrease can decrease it again
+        acquire(limiter, 1).get(0).release(true);
+        assertEquals(4, limiter.getLimit());
+
+    }
+
+    @Test
+    public void limitGrowsBackWithoutThrottling() {
+
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 6);
+        for (int i = 0; i < 100; i++) {
+            acquire(limiter, 1).get(0).release(false);
+        }
+
+        assertEquals(6, limiter.getLimit());
+
+        final AdaptiveConcurrencyLimiter.Permit permit = acquire(limiter, 1).get(0);
+        permit.release(false);
+        permit.release(true);
+        assertTrue(limiter.getLimit() == 6 && limiter.getInFlight() == 0);
+
+    }
+
+    @Test
+    public void failingWaitingTasksNeitherStopTheOthersNorKeepTheirPermit() {
+
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        final List<AdaptiveConcurrencyLimiter.Permit> held = acquire(limiter, 1);
+
+        limiter.acquire(new AdaptiveConcurrencyLimiter.Task() {
+
+            @Override
+            public void start(final AdaptiveConcurrencyLimiter.Permit permit) {
+                throw new IllegalStateException("send failed");
+            }
+
+        });
+        final List<AdaptiveConcurrencyLimiter.Permit> queued = acquire(limiter, 1);
+        assertEquals(2, limiter.getWaiting());
+
+        // the failing task gives its permit back, which starts the task queued after it
+        held.get(0).release(false);
+        assertEquals(1, queued.size());
+        assertEquals(0, limiter.getWaiting());
+        assertEquals(1, limiter.getInFlight());
+
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(final AdaptiveConcurrencyLimiter limiter, final int count) {
+
+        final List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            limiter.acquire(new AdaptiveConcurrencyLimiter.Task() {
+
+                @Override
+                public void start(final AdaptiveConcurrencyLimiter.Permit permit) {
+                    permits.add(permit);
+                }
+
+            });
+        }
+
+        return permits;
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import co.realtime.storage.api.ActiveRecordState;
+import co.realtime.storage.api.OnSuccessRecordCommand;
+import co.realtime.storage.models.ActiveRecord;
+import co.realtime.storage.models.EntityRecordSample;
+
+public class StorageCallbackExecutorTest {
+
+    @After
+    public void restoreDefaultExecutor() {
+        StorageCallbackExecutor.INSTANCE.configure(new Properties());
+        StorageCallbackExecutor.INSTANCE.setExceptionHandler(null);
+    }
+
+    @Test
+    public void callbacksRunAwayFromTheDeliveringThread() throws Exception {
+
+        final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        final ActiveRecordStateFuture<EntityRecordSample> future = new ActiveRecordStateFuture<>(new OnSuccessRecordCommand<EntityRecordSample>() {
+
+            @Override
+            public void execute(final ActiveRecord record) {
+                callbackThread.set(Thread.currentThread());
+            }
+
+        }, null);
+
+        final EntityRecordSample record = new EntityRecordSample();
+        future.processRecordAsync(record);
+
+        final ActiveRecordState<EntityRecordSample> state = future.get();
+        assertEquals(record, state.record());
+        assertNotSame(Thread.currentThread(), callbackThread.get());
+        assertTrue(callbackThread.get().getName().startsWith("storage-callback-"));
+
+    }
+
+    @Test
+    public void inlineExecutorKeepsTheDeliveringThread() throws Exception {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageCallbackExecutor.EXECUTOR_PROPERTY, "inline");
+        StorageCallbackExecutor.INSTANCE.configure(properties);
+
+        final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                callbackThread.set(Thread.currentThread());
+            }
+
+        });
+
+        assertEquals(Thread.currentThread(), callbackThread.get());
+        assertEquals(0, StorageCallbackExecutor.INSTANCE.getQueueDepth());
+
+    }
+
+    @Test
+    public void callbacksSubmittedFromAFullPoolRunOnTheSubmittingThread() throws Exception {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageCallbackExecutor.POOL_SIZE_PROPERTY, "1");
+        properties.setProperty(StorageCallbackExecutor.QUEUE_SIZE_PROPERTY, "1");
+        StorageCallbackExecutor.INSTANCE.configure(properties);
+
+        final CountDownLatch done = new CountDownLatch(3);
+        final Runnable nested = new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+
+        };
+
+        // the only worker fills the queue, then submits again: waiting for room would wait for itself
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                StorageCallbackExecutor.INSTANCE.execute(nested);
+                StorageCallbackExecutor.INSTANCE.execute(nested);
+                done.countDown();
+            }
+
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    public void exceptionsOfCallbacksReachTheHandler() throws Exception {
+
+        final AtomicReference<Throwable> handled = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        StorageCallbackExecutor.INSTANCE.setExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(final Thread thread, final Throwable exception) {
+                handled.set(exception);
+                done.countDown();
+            }
+
+        });
+
+        final IllegalStateException thrown = new IllegalStateException("callback failed");
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                throw thrown;
+            }
+
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(thrown, handled.get());
+
+    }
+
+    @Test
+    public void callbacksFindingTheQueueFullRunOnTheDeliveringThreadAfterAWhile() throws Exception {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageCallbackExecutor.POOL_SIZE_PROPERTY, "1");
+        properties.setProperty(StorageCallbackExecutor.QUEUE_SIZE_PROPERTY, "1");
+        StorageCallbackExecutor.INSTANCE.configure(properties);
+
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final Runnable block = new Runnable() {
+
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    stalled.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        };
+
+        // the only worker stalls and the queue fills
+        StorageCallbackExecutor.INSTANCE.execute(block);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        StorageCallbackExecutor.INSTANCE.execute(block);
+
+        final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        StorageCallbackExecutor.INSTANCE.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                callbackThread.set(Thread.currentThread());
+            }
+
+        });
+
+        assertEquals(Thread.currentThread(), callbackThread.get());
+        stalled.countDown();
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+
+public class StorageFetchCoalescerTest {
+
+    private static final OnItemSnapshot IGNORED = new OnItemSnapshot() {
+
+        @Override
+        public void run(final ItemSnapshot itemSnapshot) {
+            // not reached, the gets have no table
+        }
+
+    };
+
+    @Before
+    public void enable() {
+        StorageFetchCoalescer.INSTANCE.setEnabled(true);
+    }
+
+    @After
+    public void restoreDefaults() {
+        StorageFetchCoalescer.INSTANCE.setEnabled(false);
+        StorageThrottling.INSTANCE.configure(new Properties());
+        StorageCallbackExecutor.INSTANCE.setExceptionHandler(null);
+    }
+
+    @Test
+    public void getsFailingToSendLeaveNoFlightBehind() {
+
+        final AtomicReference<Integer> errors = new AtomicReference<>(Integer.valueOf(0));
+        final OnError onError = new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                errors.set(Integer.valueOf(errors.get().intValue() + 1));
+            }
+
+        };
+
+        final ItemAttribute key = new ItemAttribute("unsent");
+        StorageFetchCoalescer.INSTANCE.get(null, "coalescer-unsent", key, null, IGNORED, onError);
+        StorageFetchCoalescer.INSTANCE.get(null, "coalescer-unsent", key, null, IGNORED, onError);
+
+        assertEquals(Integer.valueOf(2), errors.get());
+
+    }
+
+    @Test
+    public void joinedGetsAreCalledBackEvenIfAnotherThrows() throws InterruptedException {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageThrottling.ENABLED_PROPERTY, "true");
+        properties.setProperty(StorageThrottling.INITIAL_LIMIT_PROPERTY, "1");
+        properties.setProperty(StorageThrottling.MAX_LIMIT_PROPERTY, "1");
+        StorageThrottling.INSTANCE.configure(properties);
+
+        final AtomicReference<Throwable> handled = new AtomicReference<>();
+        StorageCallbackExecutor.INSTANCE.setExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(final Thread thread, final Throwable exception) {
+                handled.set(exception);
+            }
+
+        });
+
+        // holds the only permit of the table, so the gets wait on one flight
+        final AtomicReference<OnItemSnapshot> holder = new AtomicReference<>();
+        StorageThrottling.INSTANCE.execute("coalescer-joined", StorageRequestKindEnum.READ, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                holder.set(onItemSnapshot);
+            }
+
+        }, IGNORED, null);
+
+        final CountDownLatch joined = new CountDownLatch(1);
+        final ItemAttribute key = new ItemAttribute("joined");
+        StorageFetchCoalescer.INSTANCE.get(null, "coalescer-joined", key, null, IGNORED, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                throw new IllegalStateException("first");
+            }
+
+        });
+        StorageFetchCoalescer.INSTANCE.get(null, "coalescer-joined", key, null, IGNORED, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                joined.countDown();
+            }
+
+        });
+
+        holder.get().run(null);
+
+        assertTrue(joined.await(1, TimeUnit.SECONDS));
+        assertEquals("first", handled.get().getMessage());
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package co.realtime.storage.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.realtime.storage.api.ActiveRecordState;
+import co.realtime.storage.models.EntityRecordSample;
+
+/**
+ * Completes thousands of futures from a pool of completing threads while a pool of waiting threads blocks on them, comparing the lock free
+ * ActiveRecordStateFuture with the former synchronized one-slot queue completion. The former completion only supports one waiter per future,
+ * so it is measured with one waiter; the lock free one is also measured with several waiters per future. Run it with the main method, e.g.
+ * java -cp target/classes:target/test-classes:... co.realtime.storage.async.StorageFutureContentionBenchmark [futures] [threads] [rounds]
+ */
+public class StorageFutureContentionBenchmark {
+
+    public static void main(final String[] args) throws Exception {
+
+        final int futures = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        final ExecutorService completers = Executors.newFixedThreadPool(threads);
+        final ExecutorService waiters = Executors.newFixedThreadPool(threads * 4);
+        final EntityRecordSample record = new EntityRecordSample();
+
+        try {
+
+            // warm up
+            for (int i = 0; i < rounds; i++) {
+                runQueueBased(futures, threads, completers, waiters, record);
+                runLockFree(futures, threads, 1, completers, waiters, record);
+            }
+
+            long queueBased = 0;
+            long lockFree = 0;
+            long lockFreeFourWaiters = 0;
+            for (int i = 0; i < rounds; i++) {
+                queueBased += runQueueBased(futures, threads, completers, waiters, record);
+                lockFree += runLockFree(futures, threads, 1, completers, waiters, record);
+                lockFreeFourWaiters += runLockFree(futures, threads, 4, completers, waiters, record);
+            }
+
+            System.out.println(String.format("%d futures, %d completing threads, %d rounds", Integer.valueOf(futures), Integer.valueOf(threads), Integer.valueOf(rounds)));
+            System.out.println(String.format("synchronized queue, 1 waiter   %8.1f ns/future", Double.valueOf((double) queueBased / rounds / futures)));
+            System.out.println(String.format("lock free, 1 waiter            %8.1f ns/future", Double.valueOf((double) lockFree / rounds / futures)));
+            System.out.println(String.format("lock free, 4 waiters           %8.1f ns/future", Double.valueOf((double) lockFreeFourWaiters / rounds / futures)));
+
+        } finally {
+            completers.shutdownNow();
+            waiters.shutdownNow();
+        }
+
+    }
+
+    private static long runLockFree(final int futures, final int threads, final int waitersPerFuture, final ExecutorService completers, final ExecutorService waiters, final EntityRecordSample record) throws InterruptedException {
+
+        final ActiveRecordStateFuture<EntityRecordSample>[] pending = new ActiveRecordStateFuture[futures];
+        for (int i = 0; i < futures; i++) {
+            pending[i] = new ActiveRecordStateFuture<>(null, null);
+        }
+
+        final AtomicLong sink = new AtomicLong();
+        final int waitingThreads = threads * waitersPerFuture;
+        final CountDownLatch done = new CountDownLatch(waitingThreads + threads);
+        final long start = System.nanoTime();
+
+        for (int t = 0; t < waitingThreads; t++) {
+            final int offset = t % threads;
+            waiters.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < futures; i += threads) {
+                            sink.addAndGet(pending[i].get().hasError() ? 0 : 1);
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                    }
+                    done.countDown();
+                }
+
+            });
+        }
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            completers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < futures; i += threads) {
+                            pending[i].processRecordAsync(record);
+                        }
+                    } catch (final InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    done.countDown();
+                }
+
+            });
+        }
+
+        done.await();
+        return System.nanoTime() - start;
+
+    }
+
+    private static long runQueueBased(final int futures, final int threads, final ExecutorService completers, final ExecutorService waiters, final EntityRecordSample record) throws InterruptedException {
+
+        final QueueBasedFuture[] pending = new QueueBasedFuture[futures];
+        for (int i = 0; i < futures; i++) {
+            pending[i] = new QueueBasedFuture();
+        }
+
+        final AtomicLong sink = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(threads * 2);
+        final long start = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            waiters.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < futures; i += threads) {
+                            sink.addAndGet(pending[i].get().hasError() ? 0 : 1);
+                        }
+                    } catch (final InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    done.countDown();
+                }
+
+            });
+            completers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < futures; i += threads) {
+                            pending[i].processRecordAsync(record);
+                        }
+                    } catch (final InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    done.countDown();
+                }
+
+            });
+        }
+
+        done.await();
+        return System.nanoTime() - start;
+
+    }
+
+    /**
+     * The former completion: a synchronized put into a one slot queue, taken by a single waiter.
+     */
+    private static final class QueueBasedFuture {
+
+        private final BlockingQueue<ActiveRecordState<EntityRecordSample>> reply = new ArrayBlockingQueue<>(1);
+
+        private boolean done = false;
+
+        synchronized void processRecordAsync(final EntityRecordSample record) throws InterruptedException {
+            this.reply.put(new ActiveRecordState<>(record));
+            this.done = true;
+        }
+
+        ActiveRecordState<EntityRecordSample> get() throws InterruptedException {
+            return this.reply.take();
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorSourceEnum;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.exceptions.StorageErrorException;
+
+public class StoragePromiseTest {
+
+    @Test
+    public void chainsCompleteFromTheCompletingThread() throws Exception {
+
+        final StoragePromise<Integer> fetched = new StoragePromise<>();
+        final StoragePromise<String> saved = fetched.map(new StorageFunction<Integer, Integer>() {
+
+            @Override
+            public Integer apply(final Integer value) {
+                return Integer.valueOf(value.intValue() + 1);
+            }
+
+        }).then(new StorageFunction<Integer, StoragePromise<String>>() {
+
+            @Override
+            public StoragePromise<String> apply(final Integer value) {
+                return StoragePromise.completed("saved " + value);
+            }
+
+        });
+
+        assertFalse(saved.isDone());
+        assertTrue(fetched.complete(Integer.valueOf(41)));
+        assertFalse(fetched.complete(Integer.valueOf(0)));
+        assertEquals("saved 42", saved.get());
+
+    }
+
+    @Test
+    public void allKeepsTheOrderAndFailsWithTheFirstError() throws Exception {
+
+        final StoragePromise<String> first = new StoragePromise<>();
+        final StoragePromise<String> second = new StoragePromise<>();
+        final List<StoragePromise<String>> promises = Arrays.asList(first, second);
+        final StoragePromise<List<String>> all = StoragePromise.all(promises);
+
+        second.complete("b");
+        first.complete("a");
+        assertEquals(Arrays.asList("a", "b"), all.get());
+
+        final Error error = new Error(ErrorSourceEnum.DATA_ACCESS, ErrorTypeEnum.RESOURCE_NOT_FOUND, "Item not found");
+        final StoragePromise<List<String>> failed = StoragePromise.all(Arrays.asList(StoragePromise.<String> failed(error), new StoragePromise<String>()));
+        try {
+            failed.get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertEquals(error, ((StorageErrorException) e.getCause()).getError());
+        }
+
+    }
+
+    @Test
+    public void functionExceptionsFailTheChain() {
+
+        final StoragePromise<String> mapped = StoragePromise.completed("x").map(new StorageFunction<String, String>() {
+
+            @Override
+            public String apply(final String value) throws Exception {
+                throw new IllegalStateException(value);
+            }
+
+        });
+
+        assertTrue(mapped.isFailed());
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.exceptions.Error;
+import co.realtime.storage.exceptions.ErrorTypeEnum;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+
+public class StorageThrottlingTest {
+
+    /** The Constant THROTTLED. Data access source, throttling type. */
+    private static final Integer THROTTLED = Integer.valueOf(418);
+
+    @Before
+    public void enable() {
+        final Properties properties = new Properties();
+        properties.setProperty(StorageThrottling.ENABLED_PROPERTY, "true");
+        properties.setProperty(StorageThrottling.MAX_RETRIES_PROPERTY, "3");
+        properties.setProperty(StorageThrottling.BASE_BACKOFF_PROPERTY, "1");
+        properties.setProperty(StorageThrottling.MAX_BACKOFF_PROPERTY, "5");
+        StorageThrottling.INSTANCE.configure(properties);
+    }
+
+    @After
+    public void restoreDefaults() {
+        final Properties properties = new Properties();
+        properties.setProperty(StorageThrottling.MAX_RETRIES_PROPERTY, "5");
+        properties.setProperty(StorageThrottling.BASE_BACKOFF_PROPERTY, "50");
+        properties.setProperty(StorageThrottling.MAX_BACKOFF_PROPERTY, "5000");
+        StorageThrottling.INSTANCE.configure(properties);
+    }
+
+    @Test
+    public void errorCodesAreParsedByType() {
+        assertEquals(ErrorTypeEnum.THROTTLING, new Error(THROTTLED.toString(), "Throttled").getErrorType());
+        assertTrue(StorageThrottling.isThrottling(Integer.valueOf(219)));
+        assertFalse(StorageThrottling.isThrottling(Integer.valueOf(411)));
+    }
+
+    @Test
+    public void throttledReadsAreRetriedUntilTheySucceed() throws InterruptedException {
+
+        final Outcome outcome = execute(StorageRequestKindEnum.READ, 2);
+
+        assertTrue(outcome.done.await(1, TimeUnit.SECONDS));
+        assertEquals(3, outcome.attempts.get());
+        assertEquals(null, outcome.errorCode.get());
+
+    }
+
+    @Test
+    public void throttledReadsFailOnceTheRetriesAreExhausted() throws InterruptedException {
+
+        final Outcome outcome = execute(StorageRequestKindEnum.READ, 10);
+
+        assertTrue(outcome.done.await(1, TimeUnit.SECONDS));
+        assertEquals(4, outcome.attempts.get());
+        assertEquals(THROTTLED, outcome.errorCode.get());
+
+    }
+
+    @Test
+    public void throttledWritesAreNotRetried() throws InterruptedException {
+
+        final Outcome outcome = execute(StorageRequestKindEnum.WRITE, 1);
+
+        assertTrue(outcome.done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, outcome.attempts.get());
+        assertEquals(THROTTLED, outcome.errorCode.get());
+
+    }
+
+    @Test
+    public void retriesFailingToSendReportTheirError() throws InterruptedException {
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicReference<String> errorMessage = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        StorageThrottling.INSTANCE.execute("Entity", StorageRequestKindEnum.READ, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                if (attempts.incrementAndGet() == 1) {
+                    onError.run(THROTTLED, "Throttled");
+                } else {
+                    throw new IllegalStateException("send failed");
+                }
+            }
+
+        }, new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+                done.countDown();
+            }
+
+        }, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String message) {
+                errorMessage.set(message);
+                done.countDown();
+            }
+
+        });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertTrue(errorMessage.get().contains("send failed"));
+        assertEquals(0, StorageThrottling.INSTANCE.limiterOf("Entity").getInFlight());
+
+    }
+
+    private static Outcome execute(final StorageRequestKindEnum kind, final int throttledAttempts) {
+
+        final Outcome outcome = new Outcome();
+        StorageThrottling.INSTANCE.execute("Entity", kind, new ThrottledRequest() {
+
+            @Override
+            public void send(final OnItemSnapshot onItemSnapshot, final OnError onError) {
+                if (outcome.attempts.incrementAndGet() <= throttledAttempts) {
+                    onError.run(THROTTLED, "Throttled");
+                } else {
+                    onItemSnapshot.run(null);
+                }
+            }
+
+        }, new OnItemSnapshot() {
+
+            @Override
+            public void run(final ItemSnapshot itemSnapshot) {
+                outcome.done.countDown();
+            }
+
+        }, new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                outcome.errorCode.set(errorCode);
+                outcome.done.countDown();
+            }
+
+        });
+
+        return outcome;
+
+    }
+
+    private static final class Outcome {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final AtomicReference<Integer> errorCode = new AtomicReference<>();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+    }
+
+}
@@ -0,0 +1,166 @@
+package co.realtime.storage.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.ItemSnapshot;
+import co.realtime.storage.ext.OnError;
+import co.realtime.storage.ext.OnItemSnapshot;
+
+public class StorageWriteBehindTest {
+
+    private static final OnItemSnapshot IGNORED = new OnItemSnapshot() {
+
+        @Override
+        public void run(final ItemSnapshot itemSnapshot) {
+            // ignored
+        }
+
+    };
+
+    private static Map<String, ItemAttribute> attribute(final String name, final String value) {
+        return Collections.singletonMap(name, new ItemAttribute(value));
+    }
+
+    private static OnError counting(final AtomicInteger errors) {
+
+        return new OnError() {
+
+            @Override
+            public void run(final Integer errorCode, final String errorMessage) {
+                errors.incrementAndGet();
+            }
+
+        };
+
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        StorageWriteBehind.INSTANCE.shutdown(1, TimeUnit.SECONDS);
+        StorageWriteBehind.INSTANCE.configure(new Properties());
+    }
+
+    @Test
+    public void savesOfAnItemAreMergedUntilSealed() {
+
+        final StorageWriteBehind.Write write = new StorageWriteBehind.Write(null, new ItemAttribute("1"), null);
+        assertTrue(write.merge(attribute("name", "Rio"), false, IGNORED, null));
+        assertTrue(write.merge(attribute("cap", "C1"), false, IGNORED, null));
+        assertEquals(2, write.attributes().size());
+        assertFalse(write.isWhole());
+
+        // a whole item replaces the changes merged before it, later changes apply over it
+        assertTrue(write.merge(attribute("endpoint", "e"), true, IGNORED, null));
+        assertTrue(write.merge(attribute("name", "Porto"), false, IGNORED, null));
+        assertEquals(2, write.attributes().size());
+        assertEquals("Porto", write.attributes().get("name").get());
+        assertTrue(write.isWhole());
+
+        write.seal();
+        assertFalse(write.merge(attribute("name", "Lisboa"), false, IGNORED, null));
+        assertEquals(4, write.saves());
+
+    }
+
+    @Test
+    public void failedWritesFailEveryMergedSaveAndReleaseTheirRoom() throws Exception {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageWriteBehind.MAX_PENDING_PROPERTY, "2");
+        StorageWriteBehind.INSTANCE.configure(properties);
+
+        final AtomicInteger errors = new AtomicInteger();
+        final long merged = StorageWriteBehind.INSTANCE.getMergedSaves();
+
+        // no table ref, so sending the write fails
+        StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("1"), null, attribute("name", "Rio"), false, IGNORED, counting(errors));
+        StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("1"), null, attribute("cap", "C1"), false, IGNORED, counting(errors));
+        assertEquals(1, StorageWriteBehind.INSTANCE.getBufferedItems());
+        assertEquals(merged + 1, StorageWriteBehind.INSTANCE.getMergedSaves());
+
+        // the buffer is full, a third save waits for room
+        final CountDownLatch written = new CountDownLatch(1);
+        final Thread third = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("2"), null, attribute("name", "Porto"), false, IGNORED, counting(errors));
+                    written.countDown();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+        });
+        third.start();
+        assertFalse(written.await(100, TimeUnit.MILLISECONDS));
+
+        StorageWriteBehind.INSTANCE.flush();
+        assertEquals(2, errors.get());
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        StorageWriteBehind.INSTANCE.flush();
+        assertEquals(3, errors.get());
+        assertEquals(0, StorageWriteBehind.INSTANCE.getBufferedItems());
+
+    }
+
+    @Test
+    public void deletesAfterABufferedSaveRunOnceItsWriteLanded() throws InterruptedException {
+
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicInteger errorsBeforeDelete = new AtomicInteger(-1);
+        final Runnable delete = new Runnable() {
+
+            @Override
+            public void run() {
+                errorsBeforeDelete.set(errors.get());
+            }
+
+        };
+
+        // nothing pending, the delete runs at once
+        StorageWriteBehind.INSTANCE.afterPendingWrites("WriteBehindTest", new ItemAttribute("1"), null, delete);
+        assertEquals(0, errorsBeforeDelete.get());
+
+        // the buffered save is flushed first, so a later flush can not write back the deleted item
+        errorsBeforeDelete.set(-1);
+        StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("1"), null, attribute("name", "Rio"), false, IGNORED, counting(errors));
+        StorageWriteBehind.INSTANCE.afterPendingWrites("WriteBehindTest", new ItemAttribute("1"), null, delete);
+        assertEquals(1, errorsBeforeDelete.get());
+        assertEquals(0, StorageWriteBehind.INSTANCE.getBufferedItems());
+
+    }
+
+    @Test
+    public void savesFindingTheBufferFullFailAfterTheMaxWait() throws Exception {
+
+        final Properties properties = new Properties();
+        properties.setProperty(StorageWriteBehind.MAX_PENDING_PROPERTY, "1");
+        properties.setProperty(StorageWriteBehind.MAX_WAIT_PROPERTY, "20");
+        StorageWriteBehind.INSTANCE.configure(properties);
+
+        final AtomicInteger errors = new AtomicInteger();
+        StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("1"), null, attribute("name", "Rio"), false, IGNORED, counting(errors));
+        StorageWriteBehind.INSTANCE.write(null, "WriteBehindTest", new ItemAttribute("2"), null, attribute("name", "Porto"), false, IGNORED, counting(errors));
+
+        assertEquals(1, errors.get());
+        assertEquals(1, StorageWriteBehind.INSTANCE.getBufferedItems());
+
+    }
+
+}
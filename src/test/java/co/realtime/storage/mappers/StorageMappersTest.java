@@ -0,0 +1,154 @@
+package co.realtime.storage.mappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+import co.realtime.storage.annotations.StorageAnnotationsManager;
+import co.realtime.storage.models.ConnectionInfoSample;
+import co.realtime.storage.models.EntityRecordSample;
+import co.realtime.storage.models.PatientRecordSample;
+
+public class StorageMappersTest {
+
+    public static class Broken {
+        // mapped by a generated mapper that can not be instantiated
+    }
+
+    public static class BrokenStorageMapper implements StorageMapper<Broken> {
+
+        public BrokenStorageMapper(final String unused) {
+            // no no-arg constructor
+        }
+
+        @Override
+        public void mapAttributes(final Broken instance, final Map<String, ItemAttribute> attributes) {
+            // not reached
+        }
+
+        @Override
+        public Map<String, ItemAttribute> toAttributes(final Broken instance) {
+            return null;
+        }
+
+        @Override
+        public Object primaryKey(final Broken instance) {
+            return null;
+        }
+
+        @Override
+        public Object secondaryKey(final Broken instance) {
+            return null;
+        }
+
+    }
+
+    public static class Coordinates {
+
+        private final double latitude;
+
+        public Coordinates(final double latitude) {
+            this.latitude = latitude;
+        }
+
+        public double getLatitude() {
+            return this.latitude;
+        }
+
+    }
+
+    @Test
+    public void generatedMapperIsResolved() {
+        assertNotNull(StorageMappers.mapperFor(PatientRecordSample.class));
+        assertNotNull(StorageMappers.mapperFor(EntityRecordSample.class));
+        assertNull(StorageMappers.mapperFor(ConnectionInfoSample.class));
+    }
+
+    @Test
+    public void generatedMapperMatchesReflection() {
+
+        final PatientRecordSample patient = new PatientRecordSample();
+        patient.setCpf("1");
+        patient.setName("joao");
+
+        final List<ConnectionInfoSample> connections = new ArrayList<>(0);
+        final ConnectionInfoSample connection = new ConnectionInfoSample();
+        connection.setName("Joao Antunes");
+        connections.add(connection);
+        patient.setConnections(connections);
+
+        final StorageMapper<PatientRecordSample> mapper = StorageMappers.mapperFor(PatientRecordSample.class);
+        final Map<String, ItemAttribute> attributes = mapper.toAttributes(patient);
+        final Map<String, ItemAttribute> reflectedAttributes = StorageAnnotationsManager.instanceToAttributes(patient);
+        assertEquals(reflectedAttributes.keySet(), attributes.keySet());
+        assertEquals("1", mapper.primaryKey(patient));
+        assertNull(mapper.secondaryKey(patient));
+
+        final PatientRecordSample mapped = new PatientRecordSample();
+        mapper.mapAttributes(mapped, attributes);
+        assertEquals("1", mapped.getCpf());
+        assertEquals("joao", mapped.getName());
+        assertEquals("Joao Antunes", mapped.getConnections().iterator().next().getName());
+
+    }
+
+    @Test
+    public void lazyJsonIsKeptRawUntilLoaded() {
+
+        final String json = "[{\"name\":\"Joao Antunes\"}]";
+        final Map<String, ItemAttribute> attributes = new LinkedHashMap<>();
+        attributes.put("cpf", new ItemAttribute("1"));
+        attributes.put("connections", new ItemAttribute(json));
+
+        final StorageMapper<PatientRecordSample> mapper = StorageMappers.mapperFor(PatientRecordSample.class);
+        final PatientRecordSample generated = new PatientRecordSample();
+        mapper.mapAttributes(generated, attributes);
+        final PatientRecordSample reflected = new PatientRecordSample();
+        StorageAnnotationsManager.mapItemAttributesToInstance(reflected, attributes);
+
+        for (final PatientRecordSample patient : Arrays.asList(generated, reflected)) {
+            assertEquals(json, patient.deferredJsonProperty("connections"));
+            assertEquals(json, mapper.toAttributes(patient).get("connections").get());
+            assertEquals(json, StorageAnnotationsManager.instanceToAttributes(patient).get("connections").get());
+            assertEquals("Joao Antunes", patient.getConnections().iterator().next().getName());
+            assertNull(patient.deferredJsonProperty("connections"));
+        }
+
+    }
+
+    @Test
+    public void generatedMappersThatCanNotBeInstantiatedFail() {
+
+        try {
+            StorageMappers.mapperFor(Broken.class);
+            fail("reflection was used instead of the generated mapper");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains(Broken.class.getName()));
+        }
+
+    }
+
+    @Test
+    public void embeddedObjectsThatCanNotBeInstantiatedFail() {
+
+        try {
+            StorageMapperSupport.toEmbedded(Coordinates.class, new LinkedHashMap<String, ItemAttribute>());
+            fail("the embedded object was mapped as null");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains(Coordinates.class.getName()));
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package co.realtime.storage.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import co.realtime.storage.ItemAttribute;
+
+public class ActiveRecordChangesTest {
+
+    private static Map<String, ItemAttribute> storedEntity() {
+
+        final EntityRecordSample stored = new EntityRecordSample();
+        stored.setCnes("1");
+        stored.setCap("C1");
+        stored.setName("Rio");
+        stored.setEndpoint("e");
+        return new HashMap<>(stored.attributes());
+
+    }
+
+    @Test
+    public void recordsNotFromStorageAreSavedWhole() {
+        assertNull(new EntityRecordSample().changedAttributes());
+    }
+
+    @Test
+    public void onlyChangedAttributesAreSentAlongWithTheKeys() {
+
+        final EntityRecordSample record = new EntityRecordSample();
+        record.mapAttributes(storedEntity(), null);
+        assertTrue(record.changedAttributes().isEmpty());
+
+        record.setName("Porto");
+        final Map<String, ItemAttribute> changed = record.changedAttributes();
+        assertEquals(3, changed.size());
+        assertEquals("Porto", changed.get("name").get());
+        assertEquals("1", changed.get("cnes").get());
+        assertEquals("C1", changed.get("cap").get());
+
+        // a key changed or an attribute removed needs a whole save
+        record.setEndpoint(null);
+        assertNull(record.changedAttributes());
+        record.setEndpoint("e");
+        record.setCap("C2");
+        assertNull(record.changedAttributes());
+
+    }
+
+    @Test
+    public void partialSavesLeaveTheLoadedSnapshotUntouched() {
+
+        final Map<String, ItemAttribute> snapshot = storedEntity();
+        final EntityRecordSample record = new EntityRecordSample();
+        record.mapAttributes(snapshot, null);
+
+        record.setName("Porto");
+        record.storeAttributes(record.changedAttributes());
+        assertTrue(record.changedAttributes().isEmpty());
+        assertEquals("Rio", snapshot.get("name").get());
+
+        record.setName("Lisboa");
+        record.storeAttributes(record.changedAttributes());
+        assertTrue(record.changedAttributes().isEmpty());
+        assertEquals("Rio", snapshot.get("name").get());
+
+    }
+
+}
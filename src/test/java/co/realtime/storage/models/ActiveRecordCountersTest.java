@@ -0,0 +1,24 @@
+package co.realtime.storage.models;
+
+import org.junit.Test;
+
+import co.realtime.storage.ext.StorageException;
+
+public class ActiveRecordCountersTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyNumericPropertiesCanBeIncremented() throws StorageException {
+        new EntityRecordSample().increment("name", Integer.valueOf(1), null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keysCanNotBeDecremented() throws StorageException {
+        new PatientRecordSample().decrement("cpf", Integer.valueOf(1), null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPropertiesAreRejected() throws StorageException {
+        new EntityRecordSample().increment("visits", Integer.valueOf(1), null, null);
+    }
+
+}
@@ -0,0 +1,53 @@
+package co.realtime.storage.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import co.realtime.storage.async.StorageDeadlines;
+
+public class PropertiesUtilsTest {
+
+    private static Properties properties(final String name, final String value) {
+        final Properties properties = new Properties();
+        properties.setProperty(name, value);
+        return properties;
+    }
+
+    @Test
+    public void missingPropertiesTakeTheirDefault() {
+        assertEquals(7L, PropertiesUtils.longProperty(new Properties(), "storage.size", 7L, 1L));
+        assertEquals(0, PropertiesUtils.intProperty(properties("storage.retries", " 0 "), "storage.retries", 3, 0));
+        assertTrue(PropertiesUtils.booleanProperty(properties("storage.enabled", "true "), "storage.enabled"));
+        assertFalse(PropertiesUtils.booleanProperty(new Properties(), "storage.enabled"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valuesBelowTheMinimumAreRejected() {
+        PropertiesUtils.intProperty(properties("storage.size", "0"), "storage.size", 7, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valuesBeyondAnIntAreRejected() {
+        PropertiesUtils.intProperty(properties("storage.size", "3000000000"), "storage.size", 7, 1);
+    }
+
+    @Test
+    public void invalidTimeoutsNameTheirProperty() {
+
+        try {
+            StorageDeadlines.INSTANCE.configure(properties(StorageDeadlines.TIMEOUT_PROPERTY, "2s"));
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith(StorageDeadlines.TIMEOUT_PROPERTY));
+            assertEquals(0L, StorageDeadlines.INSTANCE.getDefaultTimeoutMillis());
+        }
+
+    }
+
+}